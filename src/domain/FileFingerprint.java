@@ -0,0 +1,117 @@
+package domain;
+
+/**
+ * Records what an indexed file looked like when it was read: its size, its modification
+ * time and, when one was taken, a CRC32 of its content. A repository keeps one for each
+ * file it has indexed, by path, so a file can be skipped when it is indexed again
+ * unchanged. Fingerprints are immutable.
+ */
+public final class FileFingerprint {
+
+    private final long size;
+    private final long lastModified;
+    private final boolean hashed;
+    private final int hash;
+
+    /**
+     * Creates a fingerprint without a content hash.
+     * @param size The length of the file in bytes
+     * @param lastModified The modification time of the file, in milliseconds since the epoch
+     * Precondition: none
+     * Postcondition: A fingerprint is created
+     */
+    public FileFingerprint(long size, long lastModified) {
+        this(size, lastModified, false, 0);
+    }
+
+    /**
+     * Creates a fingerprint with a content hash.
+     * @param size The length of the file in bytes
+     * @param lastModified The modification time of the file, in milliseconds since the epoch
+     * @param hash The CRC32 of the content of the file
+     * Precondition: none
+     * Postcondition: A fingerprint is created
+     */
+    public FileFingerprint(long size, long lastModified, int hash) {
+        this(size, lastModified, true, hash);
+    }
+
+    private FileFingerprint(long size, long lastModified, boolean hashed, int hash) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.hashed = hashed;
+        this.hash = hash;
+    }
+
+    /**
+     * Checks whether a file has the size and modification time recorded, which is taken
+     * to mean it has not changed.
+     * @param size The current length of the file
+     * @param lastModified The current modification time of the file
+     * @return true if both match
+     * Precondition: none
+     * Postcondition: The result is returned
+     */
+    public boolean matches(long size, long lastModified) {
+        return this.size == size && this.lastModified == lastModified;
+    }
+
+    /**
+     * Gets the length of the file when it was read.
+     * @return the size in bytes
+     * Precondition: none
+     * Postcondition: The size is returned
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the modification time of the file when it was read.
+     * @return the time in milliseconds since the epoch
+     * Precondition: none
+     * Postcondition: The time is returned
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Tells whether a hash of the content was taken.
+     * @return true if getHash holds the CRC32 of the content
+     * Precondition: none
+     * Postcondition: The result is returned
+     */
+    public boolean hasHash() {
+        return hashed;
+    }
+
+    /**
+     * Gets the CRC32 of the content of the file when it was read.
+     * @return the hash, 0 if none was taken
+     * Precondition: none
+     * Postcondition: The hash is returned
+     */
+    public int getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof FileFingerprint)) {
+            return false;
+        }
+        FileFingerprint that = (FileFingerprint) other;
+        return size == that.size && lastModified == that.lastModified && hashed == that.hashed && hash == that.hash;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(size) * 31 * 31 + Long.hashCode(lastModified) * 31 + hash;
+    }
+
+    @Override
+    public String toString() {
+        return size + " bytes, modified " + lastModified + (hashed ? String.format(", crc %08x", hash) : "");
+    }
+}
@@ -0,0 +1,86 @@
+package domain;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numbers the files of a repository, so words can record the file of an occurrence
+ * as a small int instead of its path. Ids are given out from 0 in the order files are
+ * first seen and never change. The words of a repository share one table, which is
+ * written once when they are serialized together.
+ *
+ * The table is safe to use from several threads.
+ */
+public class FileTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> names = new ArrayList<>();
+    private transient Map<String, Integer> ids = new HashMap<>();
+
+    /**
+     * Gets the id of a file, giving it the next id if it is new.
+     * @param name The path of the file
+     * @return the id of the file
+     * Precondition: name is not null
+     * Postcondition: The file has an id
+     */
+    public synchronized int idOf(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of a file without adding it.
+     * @param name The path of the file
+     * @return the id of the file, or -1 if it has none
+     * Precondition: name is not null
+     * Postcondition: The id is returned
+     */
+    public synchronized int find(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the path of a file from its id.
+     * @param id The id of the file
+     * @return the path of the file
+     * @throws IndexOutOfBoundsException if no file has the id
+     * Precondition: none
+     * Postcondition: The path is returned
+     */
+    public synchronized String nameOf(int id) throws IndexOutOfBoundsException {
+        return names.get(id);
+    }
+
+    /**
+     * Gets the number of files in the table.
+     * @return the number of files
+     * Precondition: none
+     * Postcondition: The number of files is returned
+     */
+    public synchronized int size() {
+        return names.size();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        ids = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (ids.put(names.get(i), i) != null) {
+                throw new InvalidObjectException("File listed twice: " + names.get(i));
+            }
+        }
+    }
+}
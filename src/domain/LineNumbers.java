@@ -0,0 +1,328 @@
+package domain;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * The line numbers a word occurs on in one file, in the order they were recorded.
+ *
+ * While lines are being added they are kept in a growable int[]. Sealing the list
+ * trades the array for a byte[] holding the difference of each line from the one
+ * before it as a zig-zag varint, which takes one byte for most lines since a word's
+ * lines in a file are close and increasing. Differences may also be negative, for
+ * example when the same file is indexed twice. A sealed list is unsealed again by
+ * the next change, and it is always written to a stream in the sealed form.
+ *
+ * The read methods return ints without boxing them.
+ */
+public final class LineNumbers implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private transient int count;
+    private transient int[] lines;
+    private transient byte[] encoded;
+
+    /**
+     * Creates an empty, unsealed list.
+     * Precondition: none
+     * Postcondition: An empty list is created
+     */
+    public LineNumbers() {
+        lines = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Creates an unsealed list holding the given lines.
+     * @param values The lines, in order
+     * Precondition: values is not null
+     * Postcondition: A list holding a copy of values is created
+     */
+    public LineNumbers(int... values) {
+        lines = Arrays.copyOf(values, Math.max(values.length, INITIAL_CAPACITY));
+        count = values.length;
+    }
+
+    private LineNumbers(int count, byte[] encoded) {
+        this.count = count;
+        this.encoded = encoded;
+    }
+
+    /**
+     * Creates a sealed list from lines in the encoded form returned by encoded().
+     * @param count The number of lines
+     * @param encoded The encoded lines, which the list keeps
+     * @return the list
+     * @throws IllegalArgumentException if encoded does not hold exactly count lines
+     * Precondition: encoded is not null and is not changed afterwards
+     * Postcondition: A sealed list is returned
+     */
+    public static LineNumbers fromEncoded(int count, byte[] encoded) throws IllegalArgumentException {
+        if (!isEncoding(count, encoded)) {
+            throw new IllegalArgumentException("Corrupt line numbers: " + count + " lines in " + encoded.length + " bytes");
+        }
+        return new LineNumbers(count, encoded);
+    }
+
+    /**
+     * Adds a line at the end of the list, unsealing it if needed.
+     * @param line The line number
+     * Precondition: none
+     * Postcondition: The line is the last one in the list
+     */
+    public void add(int line) {
+        unseal();
+        if (count == lines.length) {
+            lines = Arrays.copyOf(lines, count + (count >> 1) + 1);
+        }
+        lines[count++] = line;
+    }
+
+    /**
+     * Adds every line of another list at the end of this one, unsealing it if needed.
+     * @param other The lines to add
+     * Precondition: other is not null and is not this list
+     * Postcondition: The lines of other follow the lines already in this list
+     */
+    public void addAll(LineNumbers other) {
+        unseal();
+        if (count + other.count > lines.length) {
+            lines = Arrays.copyOf(lines, Math.max(count + other.count, count + (count >> 1) + 1));
+        }
+        PrimitiveIterator.OfInt it = other.iterator();
+        while (it.hasNext()) {
+            lines[count++] = it.nextInt();
+        }
+    }
+
+    /**
+     * Adds an offset to every line, unsealing the list if needed.
+     * @param offset The number added to each line
+     * Precondition: none
+     * Postcondition: Every line is increased by offset
+     */
+    public void offset(int offset) {
+        unseal();
+        for (int i = 0; i < count; i++) {
+            lines[i] += offset;
+        }
+    }
+
+    /**
+     * Gets the number of lines recorded, counting a line once per occurrence on it.
+     * @return the number of lines
+     * Precondition: none
+     * Postcondition: The number of lines is returned
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Checks whether the list is sealed.
+     * @return true if the lines are held encoded
+     * Precondition: none
+     * Postcondition: The result is returned
+     */
+    public boolean isSealed() {
+        return encoded != null;
+    }
+
+    /**
+     * Encodes the lines as zig-zag varint differences and frees the int[]. Does nothing
+     * if the list is already sealed.
+     * Precondition: none
+     * Postcondition: The list is sealed and holds the same lines
+     */
+    public void seal() {
+        if (encoded == null) {
+            encoded = encode(lines, count);
+            lines = null;
+        }
+    }
+
+    /**
+     * Seals the list and gets the encoded lines: the zig-zag varint difference of each
+     * line from the one before it, starting from 0.
+     * @return a read-only buffer over the encoded lines
+     * Precondition: The list is not changed while the buffer is used
+     * Postcondition: The list is sealed and the buffer is returned
+     */
+    public ByteBuffer encoded() {
+        seal();
+        return ByteBuffer.wrap(encoded).asReadOnlyBuffer();
+    }
+
+    private void unseal() {
+        if (encoded != null) {
+            lines = decode(Math.max(count, INITIAL_CAPACITY));
+            encoded = null;
+        }
+    }
+
+    /**
+     * decodes the sealed lines into a new array of the given length
+     */
+    private int[] decode(int length) {
+        int[] decoded = new int[length];
+        PrimitiveIterator.OfInt it = iterator();
+        for (int i = 0; i < count; i++) {
+            decoded[i] = it.nextInt();
+        }
+        return decoded;
+    }
+
+    /**
+     * Passes every line to an action, in order.
+     * @param action The action to run on each line
+     * Precondition: action is not null
+     * Postcondition: The action has seen every line
+     */
+    public void forEach(IntConsumer action) {
+        PrimitiveIterator.OfInt it = iterator();
+        while (it.hasNext()) {
+            action.accept(it.nextInt());
+        }
+    }
+
+    /**
+     * Gets an iterator over the lines that returns them as ints.
+     * @return an iterator over the lines, in order
+     * Precondition: The list is not changed while the iterator is used
+     * Postcondition: The iterator is returned
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int index;
+            private int position;
+            private int line;
+
+            @Override
+            public boolean hasNext() {
+                return index < count;
+            }
+
+            @Override
+            public int nextInt() {
+                if (index >= count) {
+                    throw new NoSuchElementException();
+                }
+                if (encoded == null) {
+                    return lines[index++];
+                }
+                int zigzag = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = encoded[position++];
+                    zigzag |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                index++;
+                line += (zigzag >>> 1) ^ -(zigzag & 1);
+                return line;
+            }
+        };
+    }
+
+    /**
+     * Copies the lines into a new array.
+     * @return the lines, in order
+     * Precondition: none
+     * Postcondition: A new array is returned
+     */
+    public int[] toArray() {
+        return encoded == null ? Arrays.copyOf(lines, count) : decode(count);
+    }
+
+    /**
+     * Formats the lines like a List of Integers, for example "[3, 7, 7]".
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(count * 4 + 2).append('[');
+        forEach(line -> {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(line);
+        });
+        return sb.append(']').toString();
+    }
+
+    /**
+     * encodes lines as zig-zag varints of the difference from the line before
+     */
+    private static byte[] encode(int[] values, int count) {
+        byte[] out = new byte[count + 4];
+        int position = 0;
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = values[i] - previous;
+            previous = values[i];
+            int zigzag = (delta << 1) ^ (delta >> 31);
+            if (position + 5 > out.length) {
+                out = Arrays.copyOf(out, Math.max(out.length * 2, position + 5));
+            }
+            while ((zigzag & ~0x7F) != 0) {
+                out[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            out[position++] = (byte) zigzag;
+        }
+        return Arrays.copyOf(out, position);
+    }
+
+    /**
+     * checks that bytes hold exactly count varints of at most five bytes each
+     */
+    private static boolean isEncoding(int count, byte[] bytes) {
+        if (count < 0 || bytes.length > 5L * count) {
+            return false;
+        }
+        int values = 0;
+        int run = 0;
+        for (byte b : bytes) {
+            if (b < 0) {
+                if (++run == 5) {
+                    return false;
+                }
+            } else {
+                values++;
+                run = 0;
+            }
+        }
+        return values == count && run == 0;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        byte[] bytes = encoded != null ? encoded : encode(lines, count);
+        out.writeInt(count);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        count = in.readInt();
+        int length = in.readInt();
+        if (count < 0 || length < 0 || length > 5L * count) {
+            throw new InvalidObjectException("Corrupt line numbers: " + count + " lines in " + length + " bytes");
+        }
+        encoded = new byte[length];
+        in.readFully(encoded);
+        if (!isEncoding(count, encoded)) {
+            throw new InvalidObjectException("Corrupt line numbers: " + count + " lines in " + length + " bytes");
+        }
+    }
+}
@@ -1,29 +1,85 @@
 package domain;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Represents a word and tracks its occurrences across different files.
+ * Files are recorded by their id in a FileTable shared by the words of a repository,
+ * and each file's line numbers are kept in a LineNumbers, in the order the files
+ * were first seen. The total frequency and the number of files are kept up to date
+ * as occurrences are added, so the report sorts can read them in constant time.
  */
 public class Word implements Comparable<Word>, Serializable {
     private static final long serialVersionUID = 1L;
     
     private String word;
-    private Map<String, List<Integer>> fileOccurrences;
+    private FileTable files;
+    private int[] fileIds;
+    private LineNumbers[] lines;
+    private int fileCount;
+    private transient int totalFrequency;
     
     /**
-     * Creates a new Word with the specified text.
+     * Creates a new Word with the specified text and a file table of its own.
      * @param word
      * Precondition: word is not null
      * Postcondition: A new Word object is created with the specified text and empty occurrences
      */
     public Word(String word) {
+        this(word, new FileTable());
+    }
+    
+    /**
+     * Creates a new Word with the specified text that records files in a shared table.
+     * @param word The text of the word
+     * @param files The table the word's files are numbered in
+     * Precondition: word and files are not null
+     * Postcondition: A new Word object is created with the specified text and empty occurrences
+     */
+    public Word(String word, FileTable files) {
         this.word = word;
-        this.fileOccurrences = new HashMap<>();
+        this.files = files;
+        this.fileIds = new int[1];
+        this.lines = new LineNumbers[1];
+    }
+    
+    /**
+     * Creates a Word holding occurrences that were recorded before, such as when a
+     * repository is read back. The arrays are kept by the word.
+     * @param word The text of the word
+     * @param files The table the word's files are numbered in
+     * @param fileIds The ids of the files the word occurs in, in the order they were first seen
+     * @param lines The line numbers in each file, in the same order
+     * @throws IllegalArgumentException if the arrays differ in length, an id is not in
+     *                                  files or a list of line numbers is missing
+     * Precondition: word and files are not null, and no id appears twice
+     * Postcondition: A new Word object is created with the given occurrences
+     */
+    public Word(String word, FileTable files, int[] fileIds, LineNumbers[] lines) throws IllegalArgumentException {
+        if (fileIds.length != lines.length) {
+            throw new IllegalArgumentException(fileIds.length + " files but " + lines.length + " line lists for " + word);
+        }
+        int tableSize = files.size();
+        for (int i = 0; i < fileIds.length; i++) {
+            if (fileIds[i] < 0 || fileIds[i] >= tableSize || lines[i] == null) {
+                throw new IllegalArgumentException("Bad occurrences for " + word + " in file " + fileIds[i]);
+            }
+            totalFrequency += lines[i].size();
+        }
+        this.word = word;
+        this.files = files;
+        this.fileCount = fileIds.length;
+        this.fileIds = fileIds.length > 0 ? fileIds : new int[1];
+        this.lines = lines.length > 0 ? lines : new LineNumbers[1];
     }
     
     /**
@@ -31,10 +87,110 @@ public class Word implements Comparable<Word>, Serializable {
      * @param filename
      * @param lineNumber
      * Precondition: filename is not null
-     * Postcondition: The occurrence is recorded in the fileOccurrences map
+     * Postcondition: The occurrence is recorded for the file
      */
     public void addOccurrence(String filename, int lineNumber) {
-        fileOccurrences.computeIfAbsent(filename, k -> new ArrayList<>()).add(lineNumber);
+        addOccurrence(files.idOf(filename), lineNumber);
+    }
+    
+    /**
+     * Record the occurrence of the word on a line of a file given by its id.
+     * @param fileId The id of the file in the word's file table
+     * @param lineNumber The line the word occurs on
+     * Precondition: fileId was given out by getFileTable()
+     * Postcondition: The occurrence is recorded for the file
+     */
+    public void addOccurrence(int fileId, int lineNumber) {
+        linesOf(fileId).add(lineNumber);
+        totalFrequency++;
+    }
+    
+    /**
+     * Removes every occurrence of the word in a file, such as when the file has changed
+     * and is indexed again. The other files keep their order.
+     * @param filename The path of the file
+     * @return true if the word occurred in the file
+     * Precondition: filename is not null
+     * Postcondition: The word has no occurrences in the file
+     */
+    public boolean removeFile(String filename) {
+        int fileId = files.find(filename);
+        int index = fileId < 0 ? -1 : indexOf(fileId);
+        if (index < 0) {
+            return false;
+        }
+        totalFrequency -= lines[index].size();
+        System.arraycopy(fileIds, index + 1, fileIds, index, fileCount - index - 1);
+        System.arraycopy(lines, index + 1, lines, index, fileCount - index - 1);
+        fileCount--;
+        lines[fileCount] = null;
+        return true;
+    }
+    
+    /**
+     * finds the line numbers of a file, adding an empty list if the word has none yet
+     */
+    private LineNumbers linesOf(int fileId) {
+        int index = indexOf(fileId);
+        if (index < 0) {
+            if (fileCount == fileIds.length) {
+                fileIds = Arrays.copyOf(fileIds, fileCount * 2);
+                lines = Arrays.copyOf(lines, fileCount * 2);
+            }
+            index = fileCount++;
+            fileIds[index] = fileId;
+            lines[index] = new LineNumbers();
+        }
+        return lines[index];
+    }
+    
+    /**
+     * position of a file in fileIds, or -1; the file seen last is checked first, since
+     * occurrences are mostly added one file at a time
+     */
+    private int indexOf(int fileId) {
+        for (int i = fileCount - 1; i >= 0; i--) {
+            if (fileIds[i] == fileId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Adds every occurrence of another word with the same text to this word.
+     * For each file the other word's line numbers are appended after this word's.
+     * @param other The word whose occurrences are added
+     * @return this word, so the method can be used to combine trees of words
+     * @throws IllegalArgumentException if the other word has different text
+     * Precondition: other is not null
+     * Postcondition: This word holds the occurrences of both words
+     */
+    public Word merge(Word other) {
+        if (!word.equals(other.word)) {
+            throw new IllegalArgumentException("Cannot merge " + other.word + " into " + word);
+        }
+        for (int i = 0; i < other.fileCount; i++) {
+            int fileId = other.files == files ? other.fileIds[i] : files.idOf(other.files.nameOf(other.fileIds[i]));
+            linesOf(fileId).addAll(other.lines[i]);
+        }
+        totalFrequency += other.totalFrequency;
+        return this;
+    }
+    
+    /**
+     * Adds an offset to every line number recorded for a file. Used when part of a file
+     * is indexed on its own with lines numbered from 1.
+     * @param filename The file whose line numbers are shifted
+     * @param offset The number of lines before the part that was indexed
+     * Precondition: filename is not null
+     * Postcondition: Every line number recorded for filename is increased by offset
+     */
+    public void offsetLines(String filename, int offset) {
+        LineNumbers fileLines = getLines(filename);
+        if (fileLines != null) {
+            fileLines.offset(offset);
+        }
     }
     
     /**
@@ -48,28 +204,161 @@ public class Word implements Comparable<Word>, Serializable {
     }
     
     /**
-     * Gets the map of file occurrences for the word.
-     * @return A map with filenames as keys and lists of line numbers as values
+     * Gets the table the word's files are numbered in.
+     * @return The file table
+     * Precondition: The Word object is initialized
+     * Postcondition: The file table is returned
+     */
+    public FileTable getFileTable() {
+        return files;
+    }
+
+    /**
+     * Moves the word onto another file table, renumbering its files. Words read from an
+     * older repository each come with a table of their own, and are given one shared
+     * table this way once the repository is loaded.
+     * @param table The table to number the word's files in
+     * Precondition: table is not null
+     * Postcondition: getFileTable() returns table, the occurrences are unchanged
+     */
+    public void shareFileTable(FileTable table) {
+        if (table == files) {
+            return;
+        }
+        for (int i = 0; i < fileCount; i++) {
+            fileIds[i] = table.idOf(files.nameOf(fileIds[i]));
+        }
+        files = table;
+    }
+
+    /**
+     * Seals the line numbers of every file, which stores them compactly until the
+     * word's next occurrence in that file is added, and trims the file arrays.
      * Precondition: The Word object is initialized
-     * Postcondition: The map of file occurrences is returned
+     * Postcondition: Every list of line numbers is sealed
+     */
+    public void seal() {
+        if (fileIds.length > fileCount) {
+            fileIds = Arrays.copyOf(fileIds, Math.max(fileCount, 1));
+            lines = Arrays.copyOf(lines, Math.max(fileCount, 1));
+        }
+        for (int i = 0; i < fileCount; i++) {
+            lines[i].seal();
+        }
+    }
+    
+    /**
+     * Gets the line numbers of every file the word occurs in, in the order the files
+     * were first seen. The line numbers can be read without boxing them, and must not
+     * be changed through the map, since the word keeps count of them.
+     * @return An unmodifiable map with filenames as keys and line numbers as values
+     * Precondition: The Word object is initialized
+     * Postcondition: A map of the file occurrences is returned
+     */
+    public Map<String, LineNumbers> getFileLines() {
+        Map<String, LineNumbers> byName = new LinkedHashMap<>();
+        for (int i = 0; i < fileCount; i++) {
+            byName.put(files.nameOf(fileIds[i]), lines[i]);
+        }
+        return Collections.unmodifiableMap(byName);
+    }
+    
+    /**
+     * Gets the line numbers the word occurs on in one file.
+     * @param filename The file
+     * @return the line numbers, or null if the word does not occur in the file
+     * Precondition: The Word object is initialized
+     * Postcondition: The line numbers are returned
+     */
+    public LineNumbers getLines(String filename) {
+        int fileId = files.find(filename);
+        int index = fileId < 0 ? -1 : indexOf(fileId);
+        return index < 0 ? null : lines[index];
+    }
+    
+    /**
+     * Gets the name of one of the files the word occurs in.
+     * @param index The position of the file, from 0 to getFileCount() - 1, in the order
+     *              the files were first seen
+     * @return the path of the file
+     * @throws IndexOutOfBoundsException if index is not the position of a file
+     * Precondition: none
+     * Postcondition: The path is returned
+     */
+    public String getFileAt(int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        return files.nameOf(fileIds[index]);
+    }
+    
+    /**
+     * Gets the id of one of the files the word occurs in.
+     * @param index The position of the file, as for getFileAt
+     * @return the id of the file in getFileTable()
+     * @throws IndexOutOfBoundsException if index is not the position of a file
+     * Precondition: none
+     * Postcondition: The id is returned
+     */
+    public int getFileIdAt(int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        return fileIds[index];
+    }
+    
+    /**
+     * Gets the line numbers of one of the files the word occurs in, without building
+     * the map getFileLines returns. The line numbers must not be changed.
+     * @param index The position of the file, as for getFileAt
+     * @return the line numbers in the file
+     * @throws IndexOutOfBoundsException if index is not the position of a file
+     * Precondition: none
+     * Postcondition: The line numbers are returned
+     */
+    public LineNumbers getLinesAt(int index) throws IndexOutOfBoundsException {
+        checkIndex(index);
+        return lines[index];
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fileCount) {
+            throw new IndexOutOfBoundsException("File " + index + " of " + fileCount);
+        }
+    }
+    
+    /**
+     * Gets the map of file occurrences for the word, in the order the files were first seen.
+     * The line numbers are copied into boxed lists; getFileLines reads them without copying.
+     * @return A new map with filenames as keys and lists of line numbers as values
+     * Precondition: The Word object is initialized
+     * Postcondition: A copy of the file occurrences is returned
      */
     public Map<String, List<Integer>> getFileOccurrences() {
-        return fileOccurrences;
+        Map<String, List<Integer>> copy = new LinkedHashMap<>();
+        for (int i = 0; i < fileCount; i++) {
+            List<Integer> boxed = new ArrayList<>(lines[i].size());
+            lines[i].forEach(boxed::add);
+            copy.put(files.nameOf(fileIds[i]), boxed);
+        }
+        return copy;
     }
     
   
     /**
-     * Calculates the words total number of occurrences.
+     * Gets the words total number of occurrences, which is counted as they are added.
      * @return total frequency count of the word
      * Precondition: The word object is initialized
      * Postcondition: The total number of occurrences is returned
      */
     public int getTotalFrequency() {
-        int total = 0;
-        for (List<Integer> lines : fileOccurrences.values()) {
-            total += lines.size();
-        }
-        return total;
+        return totalFrequency;
+    }
+    
+    /**
+     * Gets the number of files the word occurs in, without listing them.
+     * @return the number of files
+     * Precondition: The word object is initialized
+     * Postcondition: The number of files is returned
+     */
+    public int getFileCount() {
+        return fileCount;
     }
     
   
@@ -80,7 +369,32 @@ public class Word implements Comparable<Word>, Serializable {
      * Postcondition: A list containing the names of all files where this word occurs is returned
      */
     public List<String> getFiles() {
-        return new ArrayList<>(fileOccurrences.keySet());
+        List<String> names = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            names.add(files.nameOf(fileIds[i]));
+        }
+        return names;
+    }
+    
+    /**
+     * Compares a piece of text to a word's text, in the same order as compareTo.
+     * Lets a tree of words be searched by text without building a Word first.
+     * @param text The text to compare
+     * @param other The word to compare against
+     * @return negative, zero or positive as text orders before, with or after the word
+     * Precondition: text and other are not null
+     * Postcondition: The result is returned
+     */
+    public static int compareText(CharSequence text, Word other) {
+        String otherWord = other.word;
+        int length = Math.min(text.length(), otherWord.length());
+        for (int i = 0; i < length; i++) {
+            int diff = text.charAt(i) - otherWord.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return text.length() - otherWord.length();
     }
     
     /**
@@ -98,17 +412,73 @@ public class Word implements Comparable<Word>, Serializable {
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append(word).append(": ");
-        fileOccurrences.forEach((file, lines) -> sb.append(file).append(" -> ").append(lines).append("  "));
+        for (int i = 0; i < fileCount; i++) {
+            sb.append(files.nameOf(fileIds[i])).append(" -> ").append(lines[i]).append("  ");
+        }
         return sb.toString().trim();
     }
 
 
     
-    private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
-        in.defaultReadObject();
-        if (fileOccurrences == null) {
-            fileOccurrences = new HashMap<>();
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        word = (String) fields.get("word", null);
+        if (word == null) {
+            throw new InvalidObjectException("Word without text");
+        }
+        if (fields.getObjectStreamClass().getField("fileOccurrences") != null) {
+            readLegacy(fields.get("fileOccurrences", null));
+            return;
+        }
+        files = (FileTable) fields.get("files", null);
+        fileIds = (int[]) fields.get("fileIds", null);
+        lines = (LineNumbers[]) fields.get("lines", null);
+        fileCount = fields.get("fileCount", 0);
+        if (files == null || fileIds == null || lines == null || fileCount < 0
+                || fileCount > fileIds.length || fileCount > lines.length) {
+            throw new InvalidObjectException("Corrupt occurrences for " + word);
+        }
+        for (int i = 0; i < fileCount; i++) {
+            if (lines[i] == null) {
+                throw new InvalidObjectException("Corrupt occurrences for " + word);
+            }
+            totalFrequency += lines[i].size();
         }
     }
-
+    
+    /**
+     * converts the map of file names to lists of Integers that repositories of the first
+     * release stored; the word gets a file table of its own, which the loader replaces
+     * with a shared one through shareFileTable
+     */
+    private void readLegacy(Object stored) throws InvalidObjectException {
+        files = new FileTable();
+        fileIds = new int[1];
+        lines = new LineNumbers[1];
+        if (stored == null) {
+            return;
+        }
+        if (!(stored instanceof Map)) {
+            throw new InvalidObjectException("Unexpected occurrences for " + word);
+        }
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) stored).entrySet()) {
+            Object value = entry.getValue();
+            if (!(entry.getKey() instanceof String)) {
+                throw new InvalidObjectException("Unexpected file name in " + word);
+            }
+            if (!(value instanceof List)) {
+                throw new InvalidObjectException("Unexpected line numbers for " + entry.getKey() + " in " + word);
+            }
+            LineNumbers fileLines = linesOf(files.idOf((String) entry.getKey()));
+            try {
+                for (Object line : (List<?>) value) {
+                    fileLines.add((Integer) line);
+                }
+            } catch (ClassCastException | NullPointerException e) {
+                throw new InvalidObjectException("Unexpected line number for " + entry.getKey() + " in " + word);
+            }
+            totalFrequency += fileLines.size();
+        }
+        seal();
+    }
 }
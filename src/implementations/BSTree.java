@@ -1,8 +1,22 @@
 package implementations;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NavigableSet;
 import java.util.NoSuchElementException;
-import java.util.Stack;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntBiFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import utilities.BSTreeADT;
 import utilities.Iterator;
@@ -10,18 +24,37 @@ import utilities.Iterator;
  * Class for the BST data structure
  * @param <E> Elements that the list holds.
  */
-public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Serializable
+public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Iterable<E>, Serializable
 {
 	private static final long serialVersionUID = 1L;
-	private BSTreeNode<E> root;
+	private transient BSTreeNode<E> root;
 	private int size;
+	private boolean balanced;
+	private transient BSTreeNode<E>[] path;
+	/** number of nodes on the path recorded by the last descend that found nothing */
+	private transient int pathDepth;
+	/** comparison of the key of that descend with the last node on the path */
+	private transient int pathComp;
+	private transient boolean threaded;
 	
 	
 	
 	public BSTree () 
+	{
+		this(false);
+	}
+	
+	/**
+	 * Creates an empty tree.
+	 * When balanced, the tree rebalances itself (AVL) on every add, removeMin and
+	 * removeMax so its height stays O(log n) for any insertion order.
+	 * @param balanced true to keep the tree height balanced
+	 */
+	public BSTree(boolean balanced) 
 	{
 		root = null;
 		size = 0;
+		this.balanced = balanced;
 	}
 	public BSTree(E rootElement) 
 	{
@@ -29,6 +62,241 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
 		add(rootElement);
 	}
 	
+	/**
+	 * Builds a perfectly balanced tree from elements already in ascending order.
+	 * The nodes are linked in O(n) without any rebalancing; the only comparisons
+	 * are the n - 1 checks that the input really is sorted.
+	 * Precondition: sorted is in strictly ascending order and holds no null
+	 * Postcondition: a tree holding every element is returned
+	 * @param <E> type of the elements
+	 * @param sorted elements in ascending order, the array is not kept
+	 * @param balanced whether later adds and removes keep the tree balanced
+	 * @return a tree holding every element of sorted
+	 * @throws NullPointerException if sorted or any of its elements is null
+	 * @throws IllegalArgumentException if the elements are out of order or repeat
+	 */
+	public static <E extends Comparable<? super E>> BSTree<E> fromSorted(E[] sorted, boolean balanced)
+			throws NullPointerException, IllegalArgumentException
+	{
+		for (int i = 0; i < sorted.length; i++) 
+		{
+			checkOrder(i == 0 ? null : sorted[i - 1], sorted[i], i);
+		}
+		return build(sorted, sorted.length, balanced);
+	}
+	
+	
+	/**
+	 * Builds a perfectly balanced tree from an iterator over ascending elements,
+	 * such as another tree's inorderIterator(). Runs in O(n).
+	 * Precondition: sorted yields elements in strictly ascending order and no null
+	 * Postcondition: a tree holding every element is returned
+	 * @param <E> type of the elements
+	 * @param sorted iterator over elements in ascending order
+	 * @param balanced whether later adds and removes keep the tree balanced
+	 * @return a tree holding every element sorted yielded
+	 * @throws NullPointerException if sorted or any element is null
+	 * @throws IllegalArgumentException if the elements are out of order or repeat
+	 */
+	public static <E extends Comparable<? super E>> BSTree<E> fromSorted(Iterator<E> sorted, boolean balanced)
+			throws NullPointerException, IllegalArgumentException
+	{
+		return fromSorted(sorted, balanced, null);
+	}
+	
+	
+	/**
+	 * Builds a perfectly balanced tree from an iterator over ascending elements,
+	 * folding runs of equal elements together with the combiner. Runs in O(n).
+	 * Precondition: sorted yields elements in ascending order and no null
+	 * Postcondition: a tree holding one element per distinct value is returned
+	 * @param <E> type of the elements
+	 * @param sorted iterator over elements in ascending order
+	 * @param balanced whether later adds and removes keep the tree balanced
+	 * @param combiner combines the element kept so far (first argument) with an
+	 *           equal one that follows it; its result must compare equal to both.
+	 *           When null, equal elements are rejected
+	 * @return a tree holding every distinct element sorted yielded
+	 * @throws NullPointerException if sorted, an element or a combined element is null
+	 * @throws IllegalArgumentException if the elements are out of order, or repeat
+	 *            and there is no combiner
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E extends Comparable<? super E>> BSTree<E> fromSorted(Iterator<E> sorted, boolean balanced,
+			BiFunction<? super E, ? super E, ? extends E> combiner) throws NullPointerException, IllegalArgumentException
+	{
+		Object[] elements = new Object[16];
+		int count = 0;
+		int index = 0;
+		while (sorted.hasNext()) 
+		{
+			E next = sorted.next();
+			E last = count == 0 ? null : (E) elements[count - 1];
+			if (combiner != null && last != null && next != null && next.compareTo(last) == 0) 
+			{
+				E combined = combiner.apply(last, next);
+				checkOrder(null, combined, index);
+				if (combined.compareTo(last) != 0) 
+				{
+					throw new IllegalArgumentException("Combined element at index " + index + " does not equal its inputs");
+				}
+				elements[count - 1] = combined;
+			}
+			else 
+			{
+				checkOrder(last, next, index);
+				if (count == elements.length) 
+				{
+					elements = Arrays.copyOf(elements, count * 2);
+				}
+				elements[count++] = next;
+			}
+			index++;
+		}
+		return build(elements, count, balanced);
+	}
+	
+	
+	/**
+	 * Builds a new tree holding the elements of both trees in O(n + m), by walking
+	 * both in order and linking the merged sequence into a perfectly balanced tree.
+	 * Elements present in both trees are passed to the combiner, so for example two
+	 * Words can have their occurrences merged with Word::merge.
+	 * Precondition: no argument is null
+	 * Postcondition: first and second keep their shape, a new tree is returned
+	 * @param <E> type of the elements
+	 * @param first tree whose elements come first on ties, its balanced option is kept
+	 * @param second tree whose elements come second on ties
+	 * @param combiner combines an element of first (first argument) with the equal
+	 *           element of second; its result must compare equal to both
+	 * @return a new tree holding the union of both trees
+	 * @throws NullPointerException if an argument is null or the combiner returns null
+	 * @throws IllegalArgumentException if a combined element does not equal its inputs
+	 */
+	public static <E extends Comparable<? super E>> BSTree<E> union(BSTree<E> first, BSTree<E> second,
+			BiFunction<? super E, ? super E, ? extends E> combiner) throws NullPointerException, IllegalArgumentException
+	{
+		if (first == null || second == null || combiner == null) 
+		{
+			throw new NullPointerException("Cannot union with a null tree or combiner");
+		}
+		
+		Iterator<E> left = first.inorderIterator();
+		Iterator<E> right = second.inorderIterator();
+		Iterator<E> merged = new Iterator<E>() 
+		{
+			E nextLeft = left.hasNext() ? left.next() : null;
+			E nextRight = right.hasNext() ? right.next() : null;
+
+			@Override
+			public boolean hasNext()
+			{
+				return nextLeft != null || nextRight != null;
+			}
+
+			@Override
+			public E next() throws NoSuchElementException
+			{
+				E result;
+				if (nextRight == null || (nextLeft != null && nextLeft.compareTo(nextRight) <= 0)) 
+				{
+					if (nextLeft == null) 
+					{
+						throw new NoSuchElementException();
+					}
+					result = nextLeft;
+					nextLeft = left.hasNext() ? left.next() : null;
+				}
+				else 
+				{
+					result = nextRight;
+					nextRight = right.hasNext() ? right.next() : null;
+				}
+				return result;
+			}
+		};
+		return fromSorted(merged, first.balanced, combiner);
+	}
+	
+	
+	/**
+	 * checks that an element can follow the previous one in a sorted input
+	 * @param previous element before it, null for the first
+	 * @param element element to check
+	 * @param index position of element in the input, for the error message
+	 */
+	private static <E extends Comparable<? super E>> void checkOrder(E previous, E element, int index)
+	{
+		if (element == null) 
+		{
+			throw new NullPointerException("Element at index " + index + " is null");
+		}
+		if (previous != null) 
+		{
+			int comp = previous.compareTo(element);
+			if (comp == 0) 
+			{
+				throw new IllegalArgumentException("Duplicate element at index " + index + ": " + element);
+			}
+			if (comp > 0) 
+			{
+				throw new IllegalArgumentException("Element at index " + index + " is out of order: " + element);
+			}
+		}
+	}
+	
+	
+	/**
+	 * links checked, ascending elements into a perfectly balanced tree
+	 * @param elements ascending elements
+	 * @param count number of elements to use from the front of the array
+	 * @param balanced whether the tree keeps itself balanced afterwards
+	 * @return the built tree
+	 */
+	private static <E extends Comparable<? super E>> BSTree<E> build(Object[] elements, int count, boolean balanced)
+	{
+		BSTree<E> tree = new BSTree<>(balanced);
+		tree.root = build(elements, 0, count);
+		tree.size = count;
+		return tree;
+	}
+	
+	
+	/**
+	 * links elements[from, to) into a perfectly balanced subtree, recursing only
+	 * O(log n) deep
+	 * @param elements ascending elements
+	 * @param from first element of the subtree
+	 * @param to one past the last element of the subtree
+	 * @return the root of the subtree, null if it is empty
+	 */
+	@SuppressWarnings("unchecked")
+	private static <E extends Comparable<? super E>> BSTreeNode<E> build(Object[] elements, int from, int to)
+	{
+		if (from >= to) 
+		{
+			return null;
+		}
+		
+		int middle = (from + to) >>> 1;
+		BSTreeNode<E> node = new BSTreeNode<>((E) elements[middle]);
+		node.setLeft(build(elements, from, middle));
+		node.setRight(build(elements, middle + 1, to));
+		update(node);
+		return node;
+	}
+	
+	/**
+	 * tells if the tree keeps itself height balanced
+	 * Precondition: none
+	 * Postcondition: returns true if balanced, false otherwise
+	 * @return true if the tree rebalances on add and remove
+	 */
+	public boolean isBalanced()
+	{
+		return balanced;
+	}
+	
 /**
  * gets the root node
  * Precondition: the tree exists.
@@ -38,6 +306,7 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
 	@Override
 	public BSTreeNode<E> getRoot() throws NullPointerException
 	{
+		checkNotThreaded();
 		if (isEmpty()) 
 		{
 			throw new NullPointerException("The tree is empty");
@@ -47,7 +316,7 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
 
 	
 	/**
-	 * gets the height of the tree
+	 * gets the height of the tree, kept up to date by every add and remove
 	 * Precondition: tree exists
 	 * Postcondition: height returned
 	 * @return height of the tree
@@ -55,25 +324,7 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
 	@Override
 	public int getHeight()
 	{
-		return getHeight(root);
-	}
-	
-	
-	/**
-	 * Helper method to getHeight
-	 * Precondition: none
-	 * Postcondition: Height calculated for the tree
-	 * @param node node on the tree
-	 * @return calculated height of the tree
-	 */
-	private int getHeight(BSTreeNode<E> node) 
-	{
-		if(node == null) 
-		{
-			return 0;
-		}
-		
-		return 1 + Math.max(getHeight(node.getLeft()), getHeight(node.getRight()));
+		return height(root);
 	}
 
 	
@@ -111,9 +362,49 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
 	@Override
 	public void clear()
 	{
+		checkNotThreaded();
 		root = null;
 		size = 0;
+		path = null;
+		
+	}
+
+	
+	/**
+	 * removes every element the filter accepts; the elements left are relinked into a
+	 * perfectly balanced tree, so removing any number of elements takes O(n)
+	 * Precondition: filter is not null
+	 * Postcondition: the tree holds, in order, the elements the filter rejected
+	 * @param filter tells which elements to remove, seeing each element once in order
+	 * @return the number of elements removed
+	 * @throws NullPointerException if filter is null
+	 */
+	public int removeIf(Predicate<? super E> filter) throws NullPointerException
+	{
+		checkNotThreaded();
+		if (filter == null) 
+		{
+			throw new NullPointerException("Cannot remove with a null filter");
+		}
 		
+		Object[] kept = new Object[size];
+		int count = 0;
+		Iterator<E> elements = inorderIterator();
+		while (elements.hasNext()) 
+		{
+			E element = elements.next();
+			if (!filter.test(element)) 
+			{
+				kept[count++] = element;
+			}
+		}
+		int removed = size - count;
+		if (removed > 0) 
+		{
+			root = build(kept, 0, count);
+			size = count;
+		}
+		return removed;
 	}
 
 	
@@ -143,39 +434,23 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
 	@Override
 	public BSTreeNode<E> search(E entry) throws NullPointerException
 	{
+		checkNotThreaded();
 		if (entry == null) 
 		{
 			throw new NullPointerException("Cannot search for null");
 		}
-		return search(root, entry);
-	}
-	
-	
-	/**
-	 * helper method for search
-	 * @param node the node searched for
-	 * @param entry the element attached to the node
-	 * @return the searched for node
-	 */
-	private BSTreeNode<E> search(BSTreeNode<E> node, E entry)
-	{
-		if (node == null) 
-		{
-			return null;
-		}
-		
-		int comp = entry.compareTo(node.getElement());
-		if (comp == 0) 
-		{
-			return node;
-		}
 		
-		if (comp < 0) 
+		BSTreeNode<E> node = root;
+		while (node != null) 
 		{
-			return search(node.getLeft(), entry);
+			int comp = entry.compareTo(node.getElement());
+			if (comp == 0) 
+			{
+				return node;
+			}
+			node = comp < 0 ? node.getLeft() : node.getRight();
 		}
-		
-		return search(node.getRight(), entry);
+		return null;
 	}
 
 	
@@ -188,206 +463,801 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
 	@Override
 	public boolean add(E newEntry) throws NullPointerException
 	{
+		checkNotThreaded();
 		if (newEntry == null) 
 		{
 			throw new NullPointerException("Cannot add null");
 		}
 		
-		if (root == null) 
+		if (descend(newEntry, BSTree::compareNatural) != null) 
 		{
-			root = new BSTreeNode<>(newEntry);
-			size++;
-			return true;
+			return false;
 		}
-		return add(root, newEntry);
+		insertLeaf(newEntry);
+		return true;
 	}
 	
+	
 	/**
-	 * helper method to add
-	 * @param node node to be added
-	 * @param entry element attached to node to be added
-	 * @return returns true if node is added
+	 * finds the element equal to the one given, adding it if it is not there
+	 * Precondition: newEntry cannot be null
+	 * Postcondition: the tree holds an element equal to newEntry
+	 * @return the element stored in the tree, newEntry if it was added
+	 */
+	@Override
+	public E addOrGet(E newEntry) throws NullPointerException
+	{
+		if (newEntry == null) 
+		{
+			throw new NullPointerException("Cannot add null");
+		}
+		return computeIfAbsent(newEntry, BSTree::compareNatural, Function.identity());
+	}
+	
+	
+	/**
+	 * finds the element matching a key, adding one made by the factory if there is none
+	 * Precondition: no argument is null, the factory's element orders where the key does
+	 * Postcondition: the tree holds an element matching the key
+	 * @return the element stored in the tree for the key
 	 */
-	private boolean add(BSTreeNode<E> node, E entry) 
+	@Override
+	public <K> E computeIfAbsent(K key, ToIntBiFunction<? super K, ? super E> comparator,
+			Function<? super K, ? extends E> factory) throws NullPointerException
 	{
-		int comp = entry.compareTo(node.getElement());
-		if (comp == 0) 
+		checkNotThreaded();
+		if (key == null || comparator == null || factory == null) 
 		{
-			return false;
+			throw new NullPointerException("Cannot compute with a null key, comparator or factory");
 		}
 		
-		if (comp < 0) 
+		BSTreeNode<E> node = descend(key, comparator);
+		if (node != null) 
 		{
-			if (node.getLeft() == null) 
-			{
-				node.setLeft(new BSTreeNode<>(entry));
-				size++;
-				return true;
-			}
-			else 
-			{
-				return add(node.getLeft(), entry);
-			}
+			return node.getElement();
 		}
-		else 
+		try 
 		{
-			if (node.getRight()== null) 
-			{
-				node.setRight(new BSTreeNode<>(entry));
-				size++;
-				return true;
-			}
-			else 
+			E created = factory.apply(key);
+			if (created == null) 
 			{
-				return add(node.getRight(), entry);
+				throw new NullPointerException("Factory returned null");
 			}
+			insertLeaf(created);
+			return created;
+		} 
+		finally 
+		{
+			// a no-op after insertLeaf; drops the path when the factory failed
+			clearPath();
 		}
 	}
-
+	
 	
 	/**
-	 * removes smallest element/node pair from the tree
-	 * Precondition: tree must exist
-	 * Postcondition: returns node removed
-	 * @return node removed
+	 * adds the element, or replaces the equal stored one with the remapped result
+	 * Precondition: no argument is null, the remapped element compares equal to the stored one
+	 * Postcondition: the tree holds the added or remapped element
+	 * @return the element stored in the tree after the call
 	 */
 	@Override
-	public BSTreeNode<E> removeMin()
+	public E merge(E entry, BiFunction<? super E, ? super E, ? extends E> remapping)
+			throws NullPointerException, IllegalArgumentException
 	{
-		if (root == null) 
+		checkNotThreaded();
+		if (entry == null || remapping == null) 
 		{
-			return null;
+			throw new NullPointerException("Cannot merge null");
 		}
 		
-		final BSTreeNode<E>[] result = removeMin(root, null);
-		root = result[1];
-		size--;
-		return result[0];
+		BSTreeNode<E> node = descend(entry, BSTree::compareNatural);
+		if (node == null) 
+		{
+			insertLeaf(entry);
+			return entry;
+		}
+		E merged = remapping.apply(node.getElement(), entry);
+		if (merged == null) 
+		{
+			throw new NullPointerException("Remapping function returned null");
+		}
+		if (merged.compareTo(node.getElement()) != 0) 
+		{
+			throw new IllegalArgumentException("Remapped element does not equal the stored one");
+		}
+		node.setElement(merged);
+		return merged;
 	}
 	
+	
 	/**
-	 * helper method to removeMin
-	 * @param node node to be removed
-	 * @param parent parent node of the node to be removed
-	 * @return node to be removed
+	 * walks down from the root to the node matching a key, recording the path in the
+	 * path buffer so insertLeaf can hang a new leaf at its end; the path is cleared when
+	 * the key is found
+	 * @param key key to look for
+	 * @param comparator compares the key to the element of a node
+	 * @return the node matching the key, null if there is none
 	 */
-	private BSTreeNode<E>[] removeMin(BSTreeNode<E> node, BSTreeNode<E> parent)
+	private <K> BSTreeNode<E> descend(K key, ToIntBiFunction<? super K, ? super E> comparator)
 	{
-		if (node.getLeft()== null) 
+		BSTreeNode<E>[] stack = path(height(root) + 1);
+		int depth = 0;
+		int comp = 0;
+		BSTreeNode<E> node = root;
+		while (node != null) 
 		{
-			if (parent == null) 
+			comp = comparator.applyAsInt(key, node.getElement());
+			if (comp == 0) 
 			{
-				return new BSTreeNode[] {node, node.getRight()};
+				Arrays.fill(stack, 0, depth, null);
+				pathDepth = 0;
+				return node;
 			}
-			
-			parent.setLeft(node.getRight());
-			return new BSTreeNode[] {node, root};
+			if (depth == stack.length) 
+			{
+				stack = growPath();
+			}
+			stack[depth++] = node;
+			node = comp < 0 ? node.getLeft() : node.getRight();
 		}
-		
-		return removeMin(node.getLeft(), node);
+		pathDepth = depth;
+		pathComp = comp;
+		return null;
 	}
-
+	
 	
 	/**
-	 * removes largest node in the tree
-	 * Precondition: tree must exist
-	 * Postcondition: largest node removed
-	 * @return returns removed node
+	 * hangs a new leaf at the end of the path recorded by the last descend that found
+	 * nothing, then retraces the path
+	 * @param entry element of the new leaf
 	 */
-	@Override
-	public BSTreeNode<E> removeMax()
+	private void insertLeaf(E entry)
 	{
-		if (root == null) 
+		BSTreeNode<E> leaf = new BSTreeNode<>(entry);
+		size++;
+		if (pathDepth == 0) 
 		{
-			return null;
+			root = leaf;
 		}
-		final BSTreeNode<E>[] result = removeMax(root, null);
-		root = result[1];
-		size--;
-		return result[0];
-		
+		else if (pathComp < 0) 
+		{
+			path[pathDepth - 1].setLeft(leaf);
+		}
+		else 
+		{
+			path[pathDepth - 1].setRight(leaf);
+		}
+		retrace(path, pathDepth);
+		pathDepth = 0;
 	}
 	
 	
 	/**
-	 * helper method to removeMax
-	 * @param node node to be removed
-	 * @param parent parent of the node to be removed
-	 * @return node removed
+	 * drops the path recorded by the last descend without inserting
 	 */
-	private BSTreeNode<E>[] removeMax(BSTreeNode<E> node, BSTreeNode<E> parent)
+	private void clearPath()
 	{
-		if(node.getRight() == null) 
-		{
-			if (parent == null) 
-			{
-				return new BSTreeNode[] {node, node.getLeft()};
-			}
-			parent.setRight(node.getLeft());
-			return new BSTreeNode[] {node, root};
-		}
-		return removeMax(node.getRight(), node);
+		Arrays.fill(path, 0, pathDepth, null);
+		pathDepth = 0;
+	}
+	
+	
+	/**
+	 * natural order comparison, as a comparator for computeIfAbsent
+	 * @param key element being looked up
+	 * @param element element stored in the tree
+	 * @return result of key.compareTo(element)
+	 */
+	private static <T extends Comparable<? super T>> int compareNatural(T key, T element)
+	{
+		return key.compareTo(element);
 	}
 
 	
 	/**
-	 * generates an inorder iterator, resulting elements are in their natural order.
-	 * Precondition: tree exists
-	 * Postcondition: elements are presented in the order that they are entered into the tree
-	 * @return an Iterator with elements in natural order
+	 * counts the elements that are smaller than the given one
+	 * Precondition: entry cannot be null
+	 * Postcondition: the tree is unchanged
+	 * @param entry element to rank, does not have to be in the tree
+	 * @return number of elements strictly less than entry
+	 * @throws NullPointerException if entry is null
 	 */
-	@Override
-	public Iterator<E> inorderIterator()
+	public int rank(E entry) throws NullPointerException
 	{
-		Stack <BSTreeNode<E>> stack = new Stack<>();
-		return new Iterator<E>() 
+		checkNotThreaded();
+		if (entry == null) 
 		{
-			BSTreeNode<E> current = root;
-
-			@Override
-			public boolean hasNext()
-			{
-				return !stack.isEmpty() || current != null;			
-			}
-
-			@Override
-			public E next() throws NoSuchElementException
+			throw new NullPointerException("Cannot rank null");
+		}
+		
+		int rank = 0;
+		BSTreeNode<E> node = root;
+		while (node != null) 
+		{
+			int comp = entry.compareTo(node.getElement());
+			if (comp <= 0) 
 			{
-				while(current != null) 
-				{
-					stack.push(current);
-					current = current.getLeft();
-				}
-				if (!stack.isEmpty()) 
+				if (comp == 0) 
 				{
-					BSTreeNode<E> node = stack.pop();
-					current = node.getRight();
-					return node.getElement();
+					return rank + size(node.getLeft());
 				}
-				throw new NoSuchElementException();
+				node = node.getLeft();
 			}
-		};
+			else 
+			{
+				rank += size(node.getLeft()) + 1;
+				node = node.getRight();
+			}
+		}
+		return rank;
 	}
-
+	
 	
 	/**
-	 * Returns an iterator with elements in order of root element first.
-	 * Precondition: tree exists
-	 * Postcondition: returns iterator with root element first order
-	 * @return root element first Iterator
+	 * finds the element at a position in the natural order
+	 * Precondition: 0 <= index < size()
+	 * Postcondition: the tree is unchanged
+	 * @param index zero based position, 0 is the smallest element
+	 * @return the element with exactly index smaller elements
+	 * @throws IndexOutOfBoundsException if index is negative or not less than size()
 	 */
-	@Override
-	public Iterator<E> preorderIterator()
+	public E select(int index) throws IndexOutOfBoundsException
 	{
-		Stack <BSTreeNode<E>> stack = new Stack<>();
-		if (root != null) 
+		checkNotThreaded();
+		if (index < 0 || index >= size) 
 		{
-			stack.push(root);
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
 		}
-		return new Iterator<E>() 
+		
+		BSTreeNode<E> node = root;
+		while (true) 
 		{
-
-			@Override
+			int leftSize = size(node.getLeft());
+			if (index < leftSize) 
+			{
+				node = node.getLeft();
+			}
+			else if (index > leftSize) 
+			{
+				index -= leftSize + 1;
+				node = node.getRight();
+			}
+			else 
+			{
+				return node.getElement();
+			}
+		}
+	}
+	
+	
+	/**
+	 * counts the elements in the range [from, to)
+	 * Precondition: from and to cannot be null and from cannot be greater than to
+	 * Postcondition: the tree is unchanged
+	 * @param from lowest element counted
+	 * @param to first element past the range
+	 * @return number of elements e with from <= e < to
+	 * @throws NullPointerException if from or to is null
+	 * @throws IllegalArgumentException if from is greater than to
+	 */
+	public int countRange(E from, E to) throws NullPointerException, IllegalArgumentException
+	{
+		if (from == null || to == null) 
+		{
+			throw new NullPointerException("Cannot count a range with a null bound");
+		}
+		if (from.compareTo(to) > 0) 
+		{
+			throw new IllegalArgumentException("from is greater than to");
+		}
+		return rank(to) - rank(from);
+	}
+
+	
+	/**
+	 * finds the greatest element less than or equal to the given one
+	 * Precondition: entry cannot be null
+	 * Postcondition: the tree is unchanged
+	 * @param entry element to look for, does not have to be in the tree
+	 * @return the greatest element <= entry, or null if there is none
+	 * @throws NullPointerException if entry is null
+	 */
+	public E floor(E entry) throws NullPointerException
+	{
+		return closest(entry, true, true);
+	}
+	
+	
+	/**
+	 * finds the least element greater than or equal to the given one
+	 * Precondition: entry cannot be null
+	 * Postcondition: the tree is unchanged
+	 * @param entry element to look for, does not have to be in the tree
+	 * @return the least element >= entry, or null if there is none
+	 * @throws NullPointerException if entry is null
+	 */
+	public E ceiling(E entry) throws NullPointerException
+	{
+		return closest(entry, false, true);
+	}
+	
+	
+	/**
+	 * finds the greatest element strictly less than the given one
+	 * Precondition: entry cannot be null
+	 * Postcondition: the tree is unchanged
+	 * @param entry element to look for, does not have to be in the tree
+	 * @return the greatest element < entry, or null if there is none
+	 * @throws NullPointerException if entry is null
+	 */
+	public E lower(E entry) throws NullPointerException
+	{
+		return closest(entry, true, false);
+	}
+	
+	
+	/**
+	 * finds the least element strictly greater than the given one
+	 * Precondition: entry cannot be null
+	 * Postcondition: the tree is unchanged
+	 * @param entry element to look for, does not have to be in the tree
+	 * @return the least element > entry, or null if there is none
+	 * @throws NullPointerException if entry is null
+	 */
+	public E higher(E entry) throws NullPointerException
+	{
+		return closest(entry, false, false);
+	}
+	
+	
+	/**
+	 * helper method for floor, ceiling, lower and higher, one descent of the tree
+	 * @param entry element to look for
+	 * @param below true to look for elements below entry, false for above
+	 * @param inclusive true if an element equal to entry is a match
+	 * @return the closest matching element, or null if there is none
+	 */
+	private E closest(E entry, boolean below, boolean inclusive)
+	{
+		checkNotThreaded();
+		if (entry == null) 
+		{
+			throw new NullPointerException("Cannot search for null");
+		}
+		
+		E result = null;
+		BSTreeNode<E> node = root;
+		while (node != null) 
+		{
+			int comp = entry.compareTo(node.getElement());
+			if (comp == 0 && inclusive) 
+			{
+				return node.getElement();
+			}
+			if (below ? comp > 0 : comp >= 0) 
+			{
+				if (below) 
+				{
+					result = node.getElement();
+				}
+				node = node.getRight();
+			}
+			else 
+			{
+				if (!below) 
+				{
+					result = node.getElement();
+				}
+				node = node.getLeft();
+			}
+		}
+		return result;
+	}
+
+	
+	/**
+	 * removes smallest element/node pair from the tree
+	 * Precondition: tree must exist
+	 * Postcondition: returns node removed, detached from the tree
+	 * @return node removed
+	 */
+	@Override
+	public BSTreeNode<E> removeMin()
+	{
+		checkNotThreaded();
+		if (root == null) 
+		{
+			return null;
+		}
+		
+		BSTreeNode<E>[] stack = path(height(root));
+		int depth = 0;
+		BSTreeNode<E> min = root;
+		while (min.getLeft() != null) 
+		{
+			if (depth == stack.length) 
+			{
+				stack = growPath();
+			}
+			stack[depth++] = min;
+			min = min.getLeft();
+		}
+		
+		if (depth == 0) 
+		{
+			root = min.getRight();
+		}
+		else 
+		{
+			stack[depth - 1].setLeft(min.getRight());
+		}
+		size--;
+		retrace(stack, depth);
+		detach(min);
+		return min;
+	}
+
+	
+	/**
+	 * removes largest node in the tree
+	 * Precondition: tree must exist
+	 * Postcondition: largest node removed and detached from the tree
+	 * @return returns removed node
+	 */
+	@Override
+	public BSTreeNode<E> removeMax()
+	{
+		checkNotThreaded();
+		if (root == null) 
+		{
+			return null;
+		}
+		
+		BSTreeNode<E>[] stack = path(height(root));
+		int depth = 0;
+		BSTreeNode<E> max = root;
+		while (max.getRight() != null) 
+		{
+			if (depth == stack.length) 
+			{
+				stack = growPath();
+			}
+			stack[depth++] = max;
+			max = max.getRight();
+		}
+		
+		if (depth == 0) 
+		{
+			root = max.getLeft();
+		}
+		else 
+		{
+			stack[depth - 1].setRight(max.getLeft());
+		}
+		size--;
+		retrace(stack, depth);
+		detach(max);
+		return max;
+	}
+	
+	
+	/**
+	 * walks a recorded root to leaf path bottom up, fixing heights and sizes and rebalancing
+	 * every node on it, then clears the path
+	 * @param stack nodes from the root down, stack[0] is the root
+	 * @param depth number of nodes on the path
+	 */
+	private void retrace(BSTreeNode<E>[] stack, int depth)
+	{
+		for (int i = depth - 1; i >= 0; i--) 
+		{
+			BSTreeNode<E> node = stack[i];
+			stack[i] = null;
+			BSTreeNode<E> top = rebalance(node);
+			if (top != node) 
+			{
+				if (i == 0) 
+				{
+					root = top;
+				}
+				else if (stack[i - 1].getLeft() == node) 
+				{
+					stack[i - 1].setLeft(top);
+				}
+				else 
+				{
+					stack[i - 1].setRight(top);
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * clears the links of a node that was removed from the tree
+	 * @param node removed node
+	 */
+	private static void detach(BSTreeNode<?> node)
+	{
+		node.setLeft(null);
+		node.setRight(null);
+		node.setHeight(1);
+		node.setSize(1);
+	}
+	
+	
+	/**
+	 * gets the reusable path buffer, big enough for the given number of nodes
+	 * @param capacity number of nodes the path must hold
+	 * @return the path buffer
+	 */
+	@SuppressWarnings("unchecked")
+	private BSTreeNode<E>[] path(int capacity)
+	{
+		if (path == null || path.length < capacity) 
+		{
+			path = (BSTreeNode<E>[]) new BSTreeNode<?>[Math.max(capacity, 32)];
+		}
+		return path;
+	}
+	
+	
+	/**
+	 * doubles the path buffer, in case a node link was changed from outside the tree
+	 * @return the grown path buffer
+	 */
+	private BSTreeNode<E>[] growPath()
+	{
+		path = Arrays.copyOf(path, path.length * 2);
+		return path;
+	}
+	
+	
+	/**
+	 * recomputes every recorded height and size bottom up, for trees saved before they were kept
+	 */
+	private void recomputeSubtrees()
+	{
+		BSTreeNode<E>[] stack = path(32);
+		int depth = 0;
+		BSTreeNode<E> node = root;
+		BSTreeNode<E> last = null;
+		while (node != null || depth > 0) 
+		{
+			if (node != null) 
+			{
+				if (depth == stack.length) 
+				{
+					stack = growPath();
+				}
+				stack[depth++] = node;
+				node = node.getLeft();
+			}
+			else 
+			{
+				BSTreeNode<E> top = stack[depth - 1];
+				if (top.getRight() != null && top.getRight() != last) 
+				{
+					node = top.getRight();
+				}
+				else 
+				{
+					update(top);
+					stack[--depth] = null;
+					last = top;
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * saves the tree as its size and balanced option followed by the elements in order,
+	 * walked without recursion so the depth of the tree does not matter; nodes are not
+	 * written. Cannot be done while a threaded walk has links rewired
+	 * @param out stream the tree is written to
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		checkNotThreaded();
+		out.defaultWriteObject();
+		Iterator<E> it = inorderIterator();
+		while (it.hasNext()) 
+		{
+			out.writeObject(it.next());
+		}
+	}
+	
+	
+	/**
+	 * restores the tree, linking the elements into a perfectly balanced tree in O(n).
+	 * Trees of the first release hold their nodes in a root field instead; those are
+	 * kept as they were, and the heights and sizes their nodes lack are rebuilt
+	 * @param in stream the tree is read from
+	 * @throws IOException if the stream cannot be read or the elements are not in order
+	 * @throws ClassNotFoundException if an element class cannot be found
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		ObjectInputStream.GetField fields = in.readFields();
+		size = fields.get("size", 0);
+		balanced = fields.get("balanced", false);
+		if (fields.getObjectStreamClass().getField("root") != null) 
+		{
+			try 
+			{
+				root = (BSTreeNode<E>) fields.get("root", null);
+			} 
+			catch (ClassCastException e) 
+			{
+				throw new InvalidObjectException("Saved tree is damaged: " + e.getMessage());
+			}
+			recomputeSubtrees();
+			return;
+		}
+		
+		if (size < 0) 
+		{
+			throw new InvalidObjectException("Negative tree size " + size);
+		}
+		// grown as elements arrive, so a damaged size cannot claim the memory up front
+		Object[] elements = new Object[Math.min(size, 1024)];
+		for (int i = 0; i < size; i++) 
+		{
+			if (i == elements.length) 
+			{
+				elements = Arrays.copyOf(elements, (int) Math.min(size, 2L * i));
+			}
+			elements[i] = in.readObject();
+			try 
+			{
+				checkOrder(i == 0 ? null : (E) elements[i - 1], (E) elements[i], i);
+			} 
+			catch (ClassCastException | NullPointerException | IllegalArgumentException e) 
+			{
+				throw new InvalidObjectException("Saved tree is damaged: " + e.getMessage());
+			}
+		}
+		root = build(elements, 0, size);
+	}
+	
+	
+	/**
+	 * recorded height of a subtree, 0 for an empty one
+	 * @param node root of the subtree
+	 * @return recorded height
+	 */
+	private static int height(BSTreeNode<?> node)
+	{
+		return node == null ? 0 : node.getHeight();
+	}
+	
+	
+	/**
+	 * recorded size of a subtree, 0 for an empty one
+	 * @param node root of the subtree
+	 * @return recorded number of nodes
+	 */
+	private static int size(BSTreeNode<?> node)
+	{
+		return node == null ? 0 : node.getSize();
+	}
+	
+	
+	/**
+	 * recomputes the height and size of a node from its children
+	 * @param node node whose children are up to date
+	 */
+	private static void update(BSTreeNode<?> node)
+	{
+		node.setHeight(1 + Math.max(height(node.getLeft()), height(node.getRight())));
+		node.setSize(1 + size(node.getLeft()) + size(node.getRight()));
+	}
+	
+	
+	/**
+	 * updates the height and size of a node whose subtree just changed and, for balanced
+	 * trees, restores the AVL property with one or two rotations
+	 * @param node node whose children are up to date
+	 * @return the node now at the top of this subtree
+	 */
+	private BSTreeNode<E> rebalance(BSTreeNode<E> node)
+	{
+		update(node);
+		if (!balanced) 
+		{
+			return node;
+		}
+		
+		int balance = height(node.getLeft()) - height(node.getRight());
+		if (balance > 1) 
+		{
+			if (height(node.getLeft().getLeft()) < height(node.getLeft().getRight())) 
+			{
+				node.setLeft(rotateLeft(node.getLeft()));
+			}
+			return rotateRight(node);
+		}
+		if (balance < -1) 
+		{
+			if (height(node.getRight().getRight()) < height(node.getRight().getLeft())) 
+			{
+				node.setRight(rotateRight(node.getRight()));
+			}
+			return rotateLeft(node);
+		}
+		return node;
+	}
+	
+	
+	/**
+	 * rotates a subtree to the left, its right child becomes the new top
+	 * @param node top of the subtree
+	 * @return new top of the subtree
+	 */
+	private static <T extends Comparable<? super T>> BSTreeNode<T> rotateLeft(BSTreeNode<T> node)
+	{
+		BSTreeNode<T> pivot = node.getRight();
+		node.setRight(pivot.getLeft());
+		pivot.setLeft(node);
+		update(node);
+		update(pivot);
+		return pivot;
+	}
+	
+	
+	/**
+	 * rotates a subtree to the right, its left child becomes the new top
+	 * @param node top of the subtree
+	 * @return new top of the subtree
+	 */
+	private static <T extends Comparable<? super T>> BSTreeNode<T> rotateRight(BSTreeNode<T> node)
+	{
+		BSTreeNode<T> pivot = node.getLeft();
+		node.setLeft(pivot.getRight());
+		pivot.setRight(node);
+		update(node);
+		update(pivot);
+		return pivot;
+	}
+
+	
+	/**
+	 * generates an inorder iterator, resulting elements are in their natural order.
+	 * The walk is lazy and keeps only the path to the next element.
+	 * Precondition: tree exists
+	 * Postcondition: elements are presented in the order that they are entered into the tree
+	 * @return an Iterator with elements in natural order
+	 */
+	@Override
+	public Iterator<E> inorderIterator()
+	{
+		return rangeIterator(null, false, null, false, false);
+	}
+
+	
+	/**
+	 * Returns an iterator with elements in order of root element first.
+	 * The walk is lazy and keeps only the pending right children of the path.
+	 * Precondition: tree exists
+	 * Postcondition: returns iterator with root element first order
+	 * @return root element first Iterator
+	 */
+	@Override
+	public Iterator<E> preorderIterator()
+	{
+		checkNotThreaded();
+		NodeStack<E> stack = new NodeStack<>();
+		if (root != null) 
+		{
+			stack.push(root);
+		}
+		return new Iterator<E>() 
+		{
+
+			@Override
 			public boolean hasNext()
 			{
 				return !stack.isEmpty();
@@ -421,6 +1291,8 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
 	
 	/**
 	 * Generates Iterator that orders the elements with root element last
+	 * The walk is lazy: the stack holds the path to the next element, which is
+	 * found by descending to the first leaf of the next right subtree.
 	 * Precondition: tree exists
 	 * Postcondition: elements ordered with root last
 	 * @return iterator that orders elements with root last.
@@ -428,26 +1300,9 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
 	@Override
 	public Iterator<E> postorderIterator()
 	{
-		Stack <BSTreeNode<E>> stack = new Stack<>();
-		Stack<E> output = new Stack<>();
-		if (root != null) 
-		{
-			stack.push(root);
-		}
-		
-		while (!stack.isEmpty()) 
-		{
-			BSTreeNode<E> node = stack.pop();
-			output.push(node.getElement());
-			if (node.getLeft() != null) 
-			{
-				stack.push(node.getLeft());
-			}
-			if (node.getRight() != null) 
-			{
-				stack.push(node.getRight());
-			}
-		}
+		checkNotThreaded();
+		NodeStack<E> stack = new NodeStack<>();
+		descendToLeaf(stack, root);
 		return new Iterator<E>() 
 		{
 
@@ -455,20 +1310,497 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
 			public boolean hasNext()
 			{
 				
-				return !output.isEmpty();
+				return !stack.isEmpty();
 			}
 
 			@Override
 			public E next() throws NoSuchElementException
 			{
-				if (output.isEmpty()) 
+				if (stack.isEmpty()) 
 				{
 					throw new NoSuchElementException();
 				}
-				return output.pop();
+				BSTreeNode<E> node = stack.pop();
+				if (!stack.isEmpty()) 
+				{
+					BSTreeNode<E> parent = stack.peek();
+					if (parent.getLeft() == node) 
+					{
+						descendToLeaf(stack, parent.getRight());
+					}
+				}
+				return node.getElement();
 			}
 			
 		};
 	}
+	
+	
+	/**
+	 * pushes the path from a node down to the first leaf of its subtree in post order
+	 * @param stack stack the path is pushed on
+	 * @param node top of the subtree, may be null
+	 */
+	private static <T extends Comparable<? super T>> void descendToLeaf(NodeStack<T> stack, BSTreeNode<T> node)
+	{
+		while (node != null) 
+		{
+			stack.push(node);
+			node = node.getLeft() != null ? node.getLeft() : node.getRight();
+		}
+	}
+	
+	
+	/**
+	 * Gives a java.util.Iterator over the elements in natural order, so the tree
+	 * can be used in for-each loops. It cannot remove elements.
+	 * Precondition: tree exists
+	 * Postcondition: returns an iterator with elements in natural order
+	 * @return an in-order java.util.Iterator
+	 */
+	@Override
+	public java.util.Iterator<E> iterator()
+	{
+		return adapt(inorderIterator());
+	}
+	
+	
+	/**
+	 * Gives a spliterator over the elements in natural order. It is SIZED and
+	 * SUBSIZED from the recorded subtree sizes, and splits its range of ranks in
+	 * half, each half seeking to its first element in O(height), so fork-join
+	 * streams spread the work evenly. The tree must not be modified while the
+	 * spliterator is in use.
+	 * Precondition: tree exists
+	 * Postcondition: returns a spliterator over every element
+	 * @return an ORDERED, SORTED, SIZED, SUBSIZED, DISTINCT and NONNULL spliterator
+	 */
+	@Override
+	public Spliterator<E> spliterator()
+	{
+		checkNotThreaded();
+		return new RankSpliterator(0, size);
+	}
+	
+	
+	/**
+	 * Gives a sequential stream over the elements in natural order.
+	 * Precondition: tree exists
+	 * Postcondition: returns a stream over every element
+	 * @return a sequential stream
+	 */
+	public Stream<E> stream()
+	{
+		return StreamSupport.stream(spliterator(), false);
+	}
+	
+	
+	/**
+	 * Gives a parallel stream over the elements, split on ranges of the tree.
+	 * Precondition: tree exists
+	 * Postcondition: returns a stream over every element
+	 * @return a parallel stream
+	 */
+	public Stream<E> parallelStream()
+	{
+		return StreamSupport.stream(spliterator(), true);
+	}
+	
+	
+	/**
+	 * wraps a tree iterator as a read only java.util.Iterator
+	 * @param it the tree iterator
+	 * @return the wrapped iterator
+	 */
+	static <T> java.util.Iterator<T> adapt(Iterator<T> it)
+	{
+		return new java.util.Iterator<T>() 
+		{
+			@Override
+			public boolean hasNext()
+			{
+				return it.hasNext();
+			}
+
+			@Override
+			public T next()
+			{
+				return it.next();
+			}
+		};
+	}
+	
+	
+	/**
+	 * Generates an in-order iterator that needs O(1) extra memory, by Morris
+	 * threading: while it walks, it temporarily points the empty right link of
+	 * each node's predecessor back at the node, and removes the link again on
+	 * the way back up. Every node's links are restored when the iteration ends
+	 * or the iterator is closed, so use it with try-with-resources if the walk
+	 * may stop early; closing finishes the walk without returning elements.
+	 * Until then the tree is unusable: any other operation that follows links,
+	 * including creating another iterator, throws ConcurrentModificationException.
+	 * Iterators created before it must not be used while it is open.
+	 * Precondition: no other threaded iteration is open on the tree
+	 * Postcondition: returns an iterator with elements in natural order
+	 * @return a closeable in-order iterator
+	 * @throws ConcurrentModificationException if a threaded iteration is already open
+	 */
+	public ThreadedInorderIterator<E> threadedInorderIterator() throws ConcurrentModificationException
+	{
+		checkNotThreaded();
+		threaded = root != null;
+		return new ThreadedInorderIterator<>(this, root);
+	}
+	
+	
+	/**
+	 * called by a threaded iterator once every link it rewired is restored
+	 */
+	void threadedWalkEnded()
+	{
+		threaded = false;
+	}
+	
+	
+	/**
+	 * guards operations that follow links against an open threaded walk
+	 * @throws ConcurrentModificationException if a threaded iterator is open
+	 */
+	private void checkNotThreaded() throws ConcurrentModificationException
+	{
+		if (threaded) 
+		{
+			throw new ConcurrentModificationException("A threaded in-order iteration is open on the tree");
+		}
+	}
+	
+	
+	/**
+	 * Generates an iterator over the elements in the range [from, to) in their
+	 * natural order. It seeks straight to from in O(height) and stops at to.
+	 * Precondition: from and to cannot be null
+	 * Postcondition: returns an iterator over the range
+	 * @param from lowest element of the range
+	 * @param to first element past the range
+	 * @return an iterator with the elements of the range in natural order
+	 * @throws NullPointerException if from or to is null
+	 */
+	public Iterator<E> rangeIterator(E from, E to) throws NullPointerException
+	{
+		if (from == null || to == null) 
+		{
+			throw new NullPointerException("Cannot iterate a range with a null bound");
+		}
+		return rangeIterator(from, true, to, false, false);
+	}
+	
+	
+	/**
+	 * Generates an iterator with all elements in reverse natural order.
+	 * Precondition: tree exists
+	 * Postcondition: returns an iterator from the largest element down
+	 * @return an iterator with the elements in reverse natural order
+	 */
+	public Iterator<E> descendingIterator()
+	{
+		return rangeIterator(null, false, null, false, true);
+	}
+	
+	
+	/**
+	 * Generates an iterator over the elements in the range [from, to) in reverse
+	 * natural order, starting from the greatest element below to.
+	 * Precondition: from and to cannot be null
+	 * Postcondition: returns an iterator over the range
+	 * @param from lowest element of the range
+	 * @param to first element past the range
+	 * @return an iterator with the elements of the range in reverse natural order
+	 * @throws NullPointerException if from or to is null
+	 */
+	public Iterator<E> descendingRangeIterator(E from, E to) throws NullPointerException
+	{
+		if (from == null || to == null) 
+		{
+			throw new NullPointerException("Cannot iterate a range with a null bound");
+		}
+		return rangeIterator(from, true, to, false, true);
+	}
+	
+	
+	/**
+	 * Gives a java.util.NavigableSet view of the tree that reads the tree directly,
+	 * without copying. Adds through the view go to the tree; elements can only be
+	 * removed through pollFirst, pollLast and clear of the whole-tree view, since
+	 * the tree only supports removing its minimum and maximum.
+	 * Precondition: tree exists
+	 * Postcondition: returns a live view of the tree
+	 * @return a navigable set backed by this tree
+	 */
+	public NavigableSet<E> asNavigableSet()
+	{
+		return new BSTreeSetView<>(this, null, false, null, false, false);
+	}
+	
+	
+	/**
+	 * Generates an iterator over the elements between two optional bounds.
+	 * @param low lower bound, null for none
+	 * @param lowInclusive true if an element equal to low is in range
+	 * @param high upper bound, null for none
+	 * @param highInclusive true if an element equal to high is in range
+	 * @param descending true to iterate from the upper bound down
+	 * @return an iterator over the range
+	 */
+	Iterator<E> rangeIterator(E low, boolean lowInclusive, E high, boolean highInclusive, boolean descending)
+	{
+		checkNotThreaded();
+		return new RangeIterator(low, lowInclusive, high, highInclusive, descending);
+	}
+	
+	
+	/**
+	 * In-order walk over the elements between two optional bounds, in either
+	 * direction. The stack holds the path to the next element, so the iterator
+	 * seeks to its first element in O(height) and stops at the far bound.
+	 */
+	private class RangeIterator implements Iterator<E>
+	{
+		private final E low;
+		private final boolean lowInclusive;
+		private final E high;
+		private final boolean highInclusive;
+		private final boolean descending;
+		private final NodeStack<E> stack = new NodeStack<>();
+		
+		RangeIterator(E low, boolean lowInclusive, E high, boolean highInclusive, boolean descending)
+		{
+			this.low = low;
+			this.lowInclusive = lowInclusive;
+			this.high = high;
+			this.highInclusive = highInclusive;
+			this.descending = descending;
+			
+			BSTreeNode<E> node = root;
+			while (node != null) 
+			{
+				boolean inside = descending ? !aboveHigh(node.getElement()) : !belowLow(node.getElement());
+				if (inside) 
+				{
+					stack.push(node);
+				}
+				node = inside == descending ? node.getRight() : node.getLeft();
+			}
+		}
+		
+		private boolean belowLow(E element)
+		{
+			if (low == null) 
+			{
+				return false;
+			}
+			int comp = element.compareTo(low);
+			return comp < 0 || (comp == 0 && !lowInclusive);
+		}
+		
+		private boolean aboveHigh(E element)
+		{
+			if (high == null) 
+			{
+				return false;
+			}
+			int comp = element.compareTo(high);
+			return comp > 0 || (comp == 0 && !highInclusive);
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			if (stack.isEmpty()) 
+			{
+				return false;
+			}
+			E next = stack.peek().getElement();
+			return descending ? !belowLow(next) : !aboveHigh(next);
+		}
+
+		@Override
+		public E next() throws NoSuchElementException
+		{
+			if (!hasNext()) 
+			{
+				throw new NoSuchElementException();
+			}
+			BSTreeNode<E> node = stack.pop();
+			BSTreeNode<E> child = descending ? node.getLeft() : node.getRight();
+			while (child != null) 
+			{
+				stack.push(child);
+				child = descending ? child.getRight() : child.getLeft();
+			}
+			return node.getElement();
+		}
+	}
+	
+	
+	/**
+	 * Spliterator over the elements whose ranks fall in [from, to). It only finds
+	 * its first node when traversal starts, by descending on subtree sizes, then
+	 * walks in order with a stack of the path to the next node.
+	 */
+	private final class RankSpliterator implements Spliterator<E>
+	{
+		private static final int MIN_SPLIT = 1024;
+		
+		private int from;
+		private final int to;
+		private NodeStack<E> stack;
+		
+		RankSpliterator(int from, int to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+		
+		/**
+		 * pushes the path to the node with rank from, keeping only the nodes
+		 * still to be visited
+		 */
+		private void seek()
+		{
+			stack = new NodeStack<>();
+			int index = from;
+			BSTreeNode<E> node = root;
+			while (node != null && index < to) 
+			{
+				int leftSize = size(node.getLeft());
+				if (index < leftSize) 
+				{
+					stack.push(node);
+					node = node.getLeft();
+				}
+				else if (index > leftSize) 
+				{
+					index -= leftSize + 1;
+					node = node.getRight();
+				}
+				else 
+				{
+					stack.push(node);
+					node = null;
+				}
+			}
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super E> action)
+		{
+			if (from >= to) 
+			{
+				return false;
+			}
+			if (stack == null) 
+			{
+				seek();
+			}
+			BSTreeNode<E> node = stack.pop();
+			BSTreeNode<E> child = node.getRight();
+			while (child != null) 
+			{
+				stack.push(child);
+				child = child.getLeft();
+			}
+			from++;
+			action.accept(node.getElement());
+			return true;
+		}
+		
+		@Override
+		public void forEachRemaining(Consumer<? super E> action)
+		{
+			while (tryAdvance(action)) 
+			{
+			}
+		}
+
+		@Override
+		public Spliterator<E> trySplit()
+		{
+			if (stack != null || to - from < MIN_SPLIT) 
+			{
+				return null;
+			}
+			int middle = (from + to) >>> 1;
+			Spliterator<E> prefix = new RankSpliterator(from, middle);
+			from = middle;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize()
+		{
+			return to - from;
+		}
 
+		@Override
+		public int characteristics()
+		{
+			return ORDERED | SORTED | SIZED | SUBSIZED | DISTINCT | NONNULL;
+		}
+		
+		@Override
+		public java.util.Comparator<? super E> getComparator()
+		{
+			return null;
+		}
+	}
+	
+	
+	/**
+	 * Unsynchronized array stack of nodes for the iterators. It starts small and
+	 * doubles when a path outgrows it, so an iterator over a tall unbalanced tree
+	 * does not pay for its height before the first element, and walking a tree
+	 * allocates nothing per element once the stack has grown to the deepest path.
+	 * @param <T> the elements of the nodes
+	 */
+	private static final class NodeStack<T extends Comparable<? super T>>
+	{
+		/** enough for the paths of a balanced tree of 65535 nodes */
+		private static final int INITIAL_CAPACITY = 16;
+		
+		private BSTreeNode<T>[] nodes;
+		private int size;
+		
+		@SuppressWarnings("unchecked")
+		NodeStack()
+		{
+			nodes = (BSTreeNode<T>[]) new BSTreeNode<?>[INITIAL_CAPACITY];
+		}
+		
+		void push(BSTreeNode<T> node)
+		{
+			if (size == nodes.length) 
+			{
+				nodes = Arrays.copyOf(nodes, size * 2);
+			}
+			nodes[size++] = node;
+		}
+		
+		BSTreeNode<T> pop()
+		{
+			BSTreeNode<T> node = nodes[--size];
+			nodes[size] = null;
+			return node;
+		}
+		
+		BSTreeNode<T> peek()
+		{
+			return nodes[size - 1];
+		}
+		
+		boolean isEmpty()
+		{
+			return size == 0;
+		}
+	}
 }
@@ -15,12 +15,16 @@ public class BSTreeNode<E extends Comparable<? super E>> implements Serializable
 	private E element;
 	private BSTreeNode<E> left;
 	private BSTreeNode <E> right;
+	private int height;
+	private int size;
 	
 	public BSTreeNode(E element)
 	{
 		this.element = element;
 		this.left = null;
 		this.right = null;
+		this.height = 1;
+		this.size = 1;
 	}
 
 	public E getElement()
@@ -52,6 +56,34 @@ public class BSTreeNode<E extends Comparable<? super E>> implements Serializable
 	{
 		this.right = right;
 	}
+
+	/**
+	 * gets the height of the subtree rooted at this node, as last recorded by the tree
+	 * @return height of this subtree, 1 for a leaf
+	 */
+	public int getHeight()
+	{
+		return height;
+	}
+
+	void setHeight(int height)
+	{
+		this.height = height;
+	}
+
+	/**
+	 * gets the number of nodes in the subtree rooted at this node, as last recorded by the tree
+	 * @return size of this subtree, 1 for a leaf
+	 */
+	public int getSize()
+	{
+		return size;
+	}
+
+	void setSize(int size)
+	{
+		this.size = size;
+	}
 	
 	
 	
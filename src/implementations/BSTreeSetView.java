@@ -0,0 +1,329 @@
+package implementations;
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+import utilities.Iterator;
+
+/**
+ * Live java.util.NavigableSet view of a BSTree, optionally limited to a range
+ * and optionally in descending order. Lookups and iteration go straight to the
+ * tree; size() of a range is counted from subtree sizes in O(height).
+ * @param <E> the elements of the tree
+ */
+final class BSTreeSetView<E extends Comparable<? super E>> extends AbstractSet<E> implements NavigableSet<E>
+{
+	private final BSTree<E> tree;
+	private final E low;
+	private final boolean lowInclusive;
+	private final E high;
+	private final boolean highInclusive;
+	private final boolean descending;
+
+	/**
+	 * Creates a view of the elements between two optional bounds.
+	 * @param tree tree that backs the view
+	 * @param low lower bound in natural order, null for none
+	 * @param lowInclusive true if an element equal to low is in the view
+	 * @param high upper bound in natural order, null for none
+	 * @param highInclusive true if an element equal to high is in the view
+	 * @param descending true if the view is in reverse natural order
+	 */
+	BSTreeSetView(BSTree<E> tree, E low, boolean lowInclusive, E high, boolean highInclusive, boolean descending)
+	{
+		if (low != null && high != null && low.compareTo(high) > 0)
+		{
+			throw new IllegalArgumentException("Lower bound is greater than upper bound");
+		}
+		this.tree = tree;
+		this.low = low;
+		this.lowInclusive = lowInclusive;
+		this.high = high;
+		this.highInclusive = highInclusive;
+		this.descending = descending;
+	}
+
+	private boolean belowLow(E element)
+	{
+		if (low == null)
+		{
+			return false;
+		}
+		int comp = element.compareTo(low);
+		return comp < 0 || (comp == 0 && !lowInclusive);
+	}
+
+	private boolean aboveHigh(E element)
+	{
+		if (high == null)
+		{
+			return false;
+		}
+		int comp = element.compareTo(high);
+		return comp > 0 || (comp == 0 && !highInclusive);
+	}
+
+	private boolean inRange(E element)
+	{
+		return !belowLow(element) && !aboveHigh(element);
+	}
+
+	private boolean isWholeTree()
+	{
+		return low == null && high == null;
+	}
+
+	/**
+	 * checks that the bound of a new sub view lies inside this view
+	 * @param bound bound of the new view
+	 * @param inclusive whether the new view includes the bound
+	 */
+	private void checkBound(E bound, boolean inclusive)
+	{
+		if (bound == null)
+		{
+			throw new NullPointerException("Bound cannot be null");
+		}
+		boolean outside = (low != null && bound.compareTo(low) < 0) || (high != null && bound.compareTo(high) > 0);
+		if (outside || (inclusive && !inRange(bound)))
+		{
+			throw new IllegalArgumentException("Bound is outside the view: " + bound);
+		}
+	}
+
+	private E lowest()
+	{
+		Iterator<E> it = tree.rangeIterator(low, lowInclusive, high, highInclusive, false);
+		return it.hasNext() ? it.next() : null;
+	}
+
+	private E highest()
+	{
+		Iterator<E> it = tree.rangeIterator(low, lowInclusive, high, highInclusive, true);
+		return it.hasNext() ? it.next() : null;
+	}
+
+	/**
+	 * closest element in natural order that is also in the view
+	 * @param entry element to look for
+	 * @param below true to look below entry, false for above
+	 * @param inclusive true if an element equal to entry is a match
+	 * @return the closest element in the view, or null if there is none
+	 */
+	private E closest(E entry, boolean below, boolean inclusive)
+	{
+		if (below ? aboveHigh(entry) : belowLow(entry))
+		{
+			return below ? highest() : lowest();
+		}
+		E result = below
+				? (inclusive ? tree.floor(entry) : tree.lower(entry))
+				: (inclusive ? tree.ceiling(entry) : tree.higher(entry));
+		return result == null || !inRange(result) ? null : result;
+	}
+
+	/**
+	 * counts the elements of the tree that are below a bound
+	 * @param bound the bound
+	 * @param inclusive true to also count an element equal to the bound
+	 * @return number of elements below the bound
+	 */
+	private int countBelow(E bound, boolean inclusive)
+	{
+		int rank = tree.rank(bound);
+		return inclusive && tree.contains(bound) ? rank + 1 : rank;
+	}
+
+	@Override
+	public Comparator<? super E> comparator()
+	{
+		return descending ? Comparator.reverseOrder() : null;
+	}
+
+	@Override
+	public int size()
+	{
+		if (isWholeTree())
+		{
+			return tree.size();
+		}
+		int upper = high == null ? tree.size() : countBelow(high, highInclusive);
+		int lower = low == null ? 0 : countBelow(low, !lowInclusive);
+		return Math.max(0, upper - lower);
+	}
+
+	@Override
+	public boolean isEmpty()
+	{
+		return isWholeTree() ? tree.isEmpty() : lowest() == null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean contains(Object o)
+	{
+		E element = (E) o;
+		return inRange(element) && tree.contains(element);
+	}
+
+	@Override
+	public boolean add(E e)
+	{
+		if (!inRange(e))
+		{
+			throw new IllegalArgumentException("Element is outside the view: " + e);
+		}
+		return tree.add(e);
+	}
+
+	@Override
+	public void clear()
+	{
+		if (!isWholeTree())
+		{
+			throw new UnsupportedOperationException("Only the whole-tree view can be cleared");
+		}
+		tree.clear();
+	}
+
+	@Override
+	public E lower(E e)
+	{
+		return descending ? closest(e, false, false) : closest(e, true, false);
+	}
+
+	@Override
+	public E floor(E e)
+	{
+		return descending ? closest(e, false, true) : closest(e, true, true);
+	}
+
+	@Override
+	public E ceiling(E e)
+	{
+		return descending ? closest(e, true, true) : closest(e, false, true);
+	}
+
+	@Override
+	public E higher(E e)
+	{
+		return descending ? closest(e, true, false) : closest(e, false, false);
+	}
+
+	@Override
+	public E first()
+	{
+		E first = descending ? highest() : lowest();
+		if (first == null)
+		{
+			throw new NoSuchElementException();
+		}
+		return first;
+	}
+
+	@Override
+	public E last()
+	{
+		E last = descending ? lowest() : highest();
+		if (last == null)
+		{
+			throw new NoSuchElementException();
+		}
+		return last;
+	}
+
+	@Override
+	public E pollFirst()
+	{
+		if (!isWholeTree())
+		{
+			throw new UnsupportedOperationException("Only the whole-tree view can remove elements");
+		}
+		BSTreeNode<E> removed = descending ? tree.removeMax() : tree.removeMin();
+		return removed == null ? null : removed.getElement();
+	}
+
+	@Override
+	public E pollLast()
+	{
+		if (!isWholeTree())
+		{
+			throw new UnsupportedOperationException("Only the whole-tree view can remove elements");
+		}
+		BSTreeNode<E> removed = descending ? tree.removeMin() : tree.removeMax();
+		return removed == null ? null : removed.getElement();
+	}
+
+	@Override
+	public java.util.Iterator<E> iterator()
+	{
+		return BSTree.adapt(tree.rangeIterator(low, lowInclusive, high, highInclusive, descending));
+	}
+
+	@Override
+	public java.util.Iterator<E> descendingIterator()
+	{
+		return BSTree.adapt(tree.rangeIterator(low, lowInclusive, high, highInclusive, !descending));
+	}
+
+	@Override
+	public NavigableSet<E> descendingSet()
+	{
+		return new BSTreeSetView<>(tree, low, lowInclusive, high, highInclusive, !descending);
+	}
+
+	@Override
+	public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive)
+	{
+		checkBound(fromElement, fromInclusive);
+		checkBound(toElement, toInclusive);
+		if (descending)
+		{
+			return new BSTreeSetView<>(tree, toElement, toInclusive, fromElement, fromInclusive, true);
+		}
+		return new BSTreeSetView<>(tree, fromElement, fromInclusive, toElement, toInclusive, false);
+	}
+
+	@Override
+	public NavigableSet<E> headSet(E toElement, boolean inclusive)
+	{
+		checkBound(toElement, inclusive);
+		if (descending)
+		{
+			return new BSTreeSetView<>(tree, toElement, inclusive, high, highInclusive, true);
+		}
+		return new BSTreeSetView<>(tree, low, lowInclusive, toElement, inclusive, false);
+	}
+
+	@Override
+	public NavigableSet<E> tailSet(E fromElement, boolean inclusive)
+	{
+		checkBound(fromElement, inclusive);
+		if (descending)
+		{
+			return new BSTreeSetView<>(tree, low, lowInclusive, fromElement, inclusive, true);
+		}
+		return new BSTreeSetView<>(tree, fromElement, inclusive, high, highInclusive, false);
+	}
+
+	@Override
+	public SortedSet<E> subSet(E fromElement, E toElement)
+	{
+		return subSet(fromElement, true, toElement, false);
+	}
+
+	@Override
+	public SortedSet<E> headSet(E toElement)
+	{
+		return headSet(toElement, false);
+	}
+
+	@Override
+	public SortedSet<E> tailSet(E fromElement)
+	{
+		return tailSet(fromElement, true);
+	}
+}
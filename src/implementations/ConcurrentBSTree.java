@@ -0,0 +1,931 @@
+package implementations;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+/**
+ * Thread safe binary search tree for multi-threaded ingestion.
+ * <p>
+ * add, addOrGet, computeIfAbsent and search are lock-free: a new leaf is linked
+ * with a single compare-and-set on an empty child link, and a failed CAS just
+ * retries from the node where it failed. merge remaps an element under that
+ * node's monitor, so the remapping function runs exactly once per call.
+ * removeMin and removeMax are serialized by one lock; before a node is
+ * unlinked its empty child links are frozen so no insert can land under it,
+ * and it is marked removed so a racing merge or lookup retries instead of
+ * updating it. Every operation is linearizable except clear, which must only
+ * be called while no other thread uses the tree.
+ * </p>
+ * <p>
+ * Iterators are weakly consistent: they never throw
+ * ConcurrentModificationException and see every element that was present for
+ * the whole walk, and may or may not see elements added or removed during it.
+ * </p>
+ * <p>
+ * The tree does not rebalance, so it suits inputs in random order such as the
+ * words of a text. It does not record heights or sizes per node; getHeight()
+ * on the tree or on a node walks the subtree. Elements handed out are shared
+ * between threads, so callers that mutate them, like Word.addOccurrence, must
+ * synchronize on the element.
+ * </p>
+ * @param <E> Elements that the tree holds.
+ */
+public class ConcurrentBSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Iterable<E>
+{
+	private static final long serialVersionUID = 1L;
+
+	/** value of a node that has been removed from the tree */
+	private static final Object REMOVED = new Object();
+
+	/** link of a removed node, so inserts never hang a node under it */
+	private static final Node<?> TOMBSTONE = new Node<>(null);
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static final AtomicReferenceFieldUpdater<ConcurrentBSTree<?>, Node<?>> ROOT =
+			(AtomicReferenceFieldUpdater) AtomicReferenceFieldUpdater.newUpdater(ConcurrentBSTree.class, Node.class, "root");
+
+	private transient volatile Node<E> root;
+	private transient AtomicInteger size;
+	private transient ReentrantLock removalLock;
+
+	public ConcurrentBSTree()
+	{
+		size = new AtomicInteger();
+		removalLock = new ReentrantLock();
+	}
+
+	/**
+	 * gets the root node
+	 * Precondition: the tree exists.
+	 * Postcondition: Root node returned
+	 * @return root node
+	 */
+	@Override
+	public BSTreeNode<E> getRoot() throws NullPointerException
+	{
+		Node<E> node = root;
+		if (node == null)
+		{
+			throw new NullPointerException("The tree is empty");
+		}
+		return node;
+	}
+
+	/**
+	 * gets the height of the tree by walking every node, O(n)
+	 * Precondition: tree exists
+	 * Postcondition: height returned, weakly consistent with concurrent changes
+	 * @return height of the tree
+	 */
+	@Override
+	public int getHeight()
+	{
+		return measure(root, true);
+	}
+
+	/**
+	 * walks a subtree with an array stack of nodes and their depths
+	 * @param start root of the subtree, may be null
+	 * @param height true to measure the height, false to count the elements not removed
+	 * @return height or element count of the subtree, weakly consistent with concurrent changes
+	 */
+	private static int measure(Node<?> start, boolean height)
+	{
+		if (start == null)
+		{
+			return 0;
+		}
+		Node<?>[] nodes = new Node<?>[16];
+		int[] depths = new int[16];
+		int top = 0;
+		nodes[top] = start;
+		depths[top++] = 1;
+		int result = 0;
+		while (top > 0)
+		{
+			Node<?> node = nodes[--top];
+			nodes[top] = null;
+			int depth = depths[top];
+			if (height)
+			{
+				result = Math.max(result, depth);
+			}
+			else if (node.value != REMOVED)
+			{
+				result++;
+			}
+			if (top + 2 > nodes.length)
+			{
+				nodes = Arrays.copyOf(nodes, nodes.length * 2);
+				depths = Arrays.copyOf(depths, depths.length * 2);
+			}
+			Node<?> left = node.left();
+			Node<?> right = node.right();
+			if (left != null)
+			{
+				nodes[top] = left;
+				depths[top++] = depth + 1;
+			}
+			if (right != null)
+			{
+				nodes[top] = right;
+				depths[top++] = depth + 1;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Calculate size of the tree
+	 * Precondition: none
+	 * Postcondition: size returned
+	 * @return size of tree
+	 */
+	@Override
+	public int size()
+	{
+		return size.get();
+	}
+
+	/**
+	 * tells if tree is empty
+	 * Precondition: none
+	 * Postcondition: returns true if empty, false otherwise
+	 * @return true if empty, false otherwise
+	 */
+	@Override
+	public boolean isEmpty()
+	{
+		return root == null;
+	}
+
+	/**
+	 * clears all nodes from the tree
+	 * Precondition: no other thread is using the tree
+	 * Postcondition: tree will be empty
+	 */
+	@Override
+	public void clear()
+	{
+		removalLock.lock();
+		try
+		{
+			root = null;
+			size.set(0);
+		}
+		finally
+		{
+			removalLock.unlock();
+		}
+	}
+
+	/**
+	 * tells if the tree holds an element equal to the given one
+	 * Preconditions: entry cannot be null
+	 * Postconditions: returns true if found, false otherwise
+	 * @return true if found, false otherwise
+	 */
+	@Override
+	public boolean contains(E entry) throws NullPointerException
+	{
+		return search(entry) != null;
+	}
+
+	/**
+	 * search for the node holding an element, without locking
+	 * Precondition: entry cannot be null
+	 * Postcondition: returns the node with that element attached
+	 * @return node with the searched element, null if not found
+	 */
+	@Override
+	public BSTreeNode<E> search(E entry) throws NullPointerException
+	{
+		if (entry == null)
+		{
+			throw new NullPointerException("Cannot search for null");
+		}
+
+		Node<E> node = root;
+		while (node != null)
+		{
+			int comp = entry.compareTo(node.key());
+			if (comp == 0)
+			{
+				return node.value == REMOVED ? null : node;
+			}
+			node = comp < 0 ? node.left() : node.right();
+		}
+		return null;
+	}
+
+	/**
+	 * adds an element to the tree, without locking
+	 * Precondition: newEntry cannot be null
+	 * Postcondition: the tree holds an element equal to newEntry
+	 * @return true if newEntry was added, false if an equal element was already there
+	 */
+	@Override
+	public boolean add(E newEntry) throws NullPointerException
+	{
+		if (newEntry == null)
+		{
+			throw new NullPointerException("Cannot add null");
+		}
+		Node<E> fresh = new Node<>(newEntry);
+		return findOrInsert(newEntry, ConcurrentBSTree::compareNatural, null, fresh) == fresh;
+	}
+
+	/**
+	 * finds the element equal to the one given, adding it if it is not there
+	 * Precondition: newEntry cannot be null
+	 * Postcondition: the tree holds an element equal to newEntry
+	 * @return the element stored in the tree, newEntry if it was added
+	 */
+	@Override
+	public E addOrGet(E newEntry) throws NullPointerException
+	{
+		if (newEntry == null)
+		{
+			throw new NullPointerException("Cannot add null");
+		}
+		return findOrInsert(newEntry, ConcurrentBSTree::compareNatural, null, new Node<>(newEntry)).getElement();
+	}
+
+	/**
+	 * finds the element matching a key, adding one made by the factory if there is none.
+	 * When threads race on the same missing key the factory may run in several of
+	 * them, but only one created element is stored and every caller gets that one.
+	 * Precondition: no argument is null, the factory's element orders where the key does
+	 * Postcondition: the tree holds an element matching the key
+	 * @return the element stored in the tree for the key
+	 */
+	@Override
+	public <K> E computeIfAbsent(K key, ToIntBiFunction<? super K, ? super E> comparator,
+			Function<? super K, ? extends E> factory) throws NullPointerException
+	{
+		if (key == null || comparator == null || factory == null)
+		{
+			throw new NullPointerException("Cannot compute with a null key, comparator or factory");
+		}
+		return findOrInsert(key, comparator, factory, null).getElement();
+	}
+
+	/**
+	 * adds the element, or replaces the equal stored one with the remapped result.
+	 * The remapping runs under the node's monitor, exactly once per call.
+	 * Precondition: no argument is null, the remapped element compares equal to the stored one
+	 * Postcondition: the tree holds the added or remapped element
+	 * @return the element stored in the tree after the call
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public E merge(E entry, BiFunction<? super E, ? super E, ? extends E> remapping)
+			throws NullPointerException, IllegalArgumentException
+	{
+		if (entry == null || remapping == null)
+		{
+			throw new NullPointerException("Cannot merge null");
+		}
+
+		while (true)
+		{
+			Node<E> fresh = new Node<>(entry);
+			Node<E> node = findOrInsert(entry, ConcurrentBSTree::compareNatural, null, fresh);
+			if (node == fresh)
+			{
+				return entry;
+			}
+			synchronized (node)
+			{
+				Object value = node.value;
+				if (value != REMOVED)
+				{
+					E merged = remapping.apply((E) value, entry);
+					if (merged == null)
+					{
+						throw new NullPointerException("Remapping function returned null");
+					}
+					if (merged.compareTo(node.key()) != 0)
+					{
+						throw new IllegalArgumentException("Remapped element does not equal the stored one");
+					}
+					node.value = merged;
+					return merged;
+				}
+			}
+		}
+	}
+
+	/**
+	 * descends to the node matching a key, linking a new leaf with a CAS if there
+	 * is none, and retrying from the root when it meets a node being removed
+	 * @param key key to look for
+	 * @param comparator compares the key to a stored element
+	 * @param factory makes the element for a missing key, used when fresh is null
+	 * @param fresh node to link for a missing key, or null to make one from the factory
+	 * @return the node holding the key, which is fresh if it was linked
+	 */
+	private <K> Node<E> findOrInsert(K key, ToIntBiFunction<? super K, ? super E> comparator,
+			Function<? super K, ? extends E> factory, Node<E> fresh)
+	{
+		retry:
+		while (true)
+		{
+			Node<E> node = root;
+			if (node == null)
+			{
+				fresh = fresh != null ? fresh : create(key, factory);
+				if (ROOT.compareAndSet(this, null, fresh))
+				{
+					size.incrementAndGet();
+					return fresh;
+				}
+				continue;
+			}
+
+			while (true)
+			{
+				int comp = comparator.applyAsInt(key, node.key());
+				if (comp == 0)
+				{
+					if (node.value == REMOVED)
+					{
+						continue retry;
+					}
+					return node;
+				}
+
+				Node<E> next = comp < 0 ? node.leftLink : node.rightLink;
+				if (next == TOMBSTONE)
+				{
+					continue retry;
+				}
+				if (next != null)
+				{
+					node = next;
+					continue;
+				}
+
+				fresh = fresh != null ? fresh : create(key, factory);
+				if ((comp < 0 ? Node.LEFT : Node.RIGHT).compareAndSet(node, null, fresh))
+				{
+					size.incrementAndGet();
+					return fresh;
+				}
+			}
+		}
+	}
+
+	/**
+	 * makes a node for a missing key
+	 * @param key the key
+	 * @param factory makes the element from the key
+	 * @return the new node
+	 */
+	private <K> Node<E> create(K key, Function<? super K, ? extends E> factory)
+	{
+		E created = factory.apply(key);
+		if (created == null)
+		{
+			throw new NullPointerException("Factory returned null");
+		}
+		return new Node<>(created);
+	}
+
+	/**
+	 * natural order comparison, as a comparator for findOrInsert
+	 * @param key element being looked up
+	 * @param element element stored in the tree
+	 * @return result of key.compareTo(element)
+	 */
+	private static <T extends Comparable<? super T>> int compareNatural(T key, T element)
+	{
+		return key.compareTo(element);
+	}
+
+	/**
+	 * removes smallest element from the tree
+	 * Precondition: tree must exist
+	 * Postcondition: returns a detached node holding the removed element
+	 * @return node removed, or null if the tree is empty
+	 */
+	@Override
+	public BSTreeNode<E> removeMin()
+	{
+		return removeEnd(true);
+	}
+
+	/**
+	 * removes largest element from the tree
+	 * Precondition: tree must exist
+	 * Postcondition: returns a detached node holding the removed element
+	 * @return node removed, or null if the tree is empty
+	 */
+	@Override
+	public BSTreeNode<E> removeMax()
+	{
+		return removeEnd(false);
+	}
+
+	/**
+	 * helper method to removeMin and removeMax
+	 * @param min true to remove the smallest element, false for the largest
+	 * @return a detached node holding the removed element, or null if the tree is empty
+	 */
+	@SuppressWarnings("unchecked")
+	private BSTreeNode<E> removeEnd(boolean min)
+	{
+		AtomicReferenceFieldUpdater<Node<?>, Node<?>> outer = min ? Node.LEFT : Node.RIGHT;
+		AtomicReferenceFieldUpdater<Node<?>, Node<?>> inner = min ? Node.RIGHT : Node.LEFT;
+		removalLock.lock();
+		try
+		{
+			while (true)
+			{
+				Node<E> parent = null;
+				Node<E> node = root;
+				if (node == null)
+				{
+					return null;
+				}
+				Node<E> next;
+				while ((next = min ? node.leftLink : node.rightLink) != null)
+				{
+					parent = node;
+					node = next;
+				}
+
+				// freeze the outer link, if an insert got there first walk on to it
+				if (!outer.compareAndSet(node, null, TOMBSTONE))
+				{
+					continue;
+				}
+				inner.compareAndSet(node, null, TOMBSTONE);
+				Node<E> child = min ? node.rightLink : node.leftLink;
+				Node<E> replacement = child == TOMBSTONE ? null : child;
+
+				E element;
+				synchronized (node)
+				{
+					element = (E) node.value;
+					node.value = REMOVED;
+				}
+
+				if (parent == null)
+				{
+					root = replacement;
+				}
+				else if (min)
+				{
+					parent.leftLink = replacement;
+				}
+				else
+				{
+					parent.rightLink = replacement;
+				}
+				size.decrementAndGet();
+				return new BSTreeNode<>(element);
+			}
+		}
+		finally
+		{
+			removalLock.unlock();
+		}
+	}
+
+	/**
+	 * generates a weakly consistent iterator, resulting elements are in their natural order.
+	 * Precondition: tree exists
+	 * Postcondition: returns an iterator with elements in natural order
+	 * @return an Iterator with elements in natural order
+	 */
+	@Override
+	public Iterator<E> inorderIterator()
+	{
+		ArrayDeque<Node<E>> stack = new ArrayDeque<>();
+		return new Walk()
+		{
+			Node<E> current = root;
+
+			@Override
+			Node<E> step()
+			{
+				while (current != null)
+				{
+					stack.push(current);
+					current = current.left();
+				}
+				if (stack.isEmpty())
+				{
+					return null;
+				}
+				Node<E> node = stack.pop();
+				current = node.right();
+				return node;
+			}
+		};
+	}
+
+	/**
+	 * Returns a weakly consistent iterator with elements in order of root element first.
+	 * Precondition: tree exists
+	 * Postcondition: returns iterator with root element first order
+	 * @return root element first Iterator
+	 */
+	@Override
+	public Iterator<E> preorderIterator()
+	{
+		ArrayDeque<Node<E>> stack = new ArrayDeque<>();
+		Node<E> start = root;
+		if (start != null)
+		{
+			stack.push(start);
+		}
+		return new Walk()
+		{
+			@Override
+			Node<E> step()
+			{
+				if (stack.isEmpty())
+				{
+					return null;
+				}
+				Node<E> node = stack.pop();
+				Node<E> right = node.right();
+				Node<E> left = node.left();
+				if (right != null)
+				{
+					stack.push(right);
+				}
+				if (left != null)
+				{
+					stack.push(left);
+				}
+				return node;
+			}
+		};
+	}
+
+	/**
+	 * Generates a weakly consistent Iterator that orders the elements with root element last
+	 * Precondition: tree exists
+	 * Postcondition: elements ordered with root last
+	 * @return iterator that orders elements with root last.
+	 */
+	@Override
+	public Iterator<E> postorderIterator()
+	{
+		ArrayDeque<Node<E>> stack = new ArrayDeque<>();
+		ArrayDeque<Node<E>> visitedRight = new ArrayDeque<>();
+		Node<E> start = root;
+		if (start != null)
+		{
+			stack.push(start);
+		}
+		return new Walk()
+		{
+			@Override
+			Node<E> step()
+			{
+				// a node is returned after both of its subtrees; the right child read
+				// when the node was first reached is the one walked, so a racing insert
+				// is either seen in full or not at all
+				while (!stack.isEmpty())
+				{
+					Node<E> node = stack.peek();
+					if (visitedRight.peek() == node)
+					{
+						visitedRight.pop();
+						return stack.pop();
+					}
+					visitedRight.push(node);
+					Node<E> right = node.right();
+					Node<E> left = node.left();
+					if (right != null)
+					{
+						stack.push(right);
+					}
+					if (left != null)
+					{
+						stack.push(left);
+					}
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Gives a weakly consistent java.util.Iterator in natural order.
+	 * @return an in-order java.util.Iterator
+	 */
+	@Override
+	public java.util.Iterator<E> iterator()
+	{
+		return BSTree.adapt(inorderIterator());
+	}
+
+	/**
+	 * Iterator over the nodes a traversal steps through, skipping nodes removed
+	 * while the traversal was underway.
+	 */
+	private abstract class Walk implements Iterator<E>
+	{
+		private E pending;
+
+		/**
+		 * @return the next node of the traversal, or null when it is done
+		 */
+		abstract Node<E> step();
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public boolean hasNext()
+		{
+			while (pending == null)
+			{
+				Node<E> node = step();
+				if (node == null)
+				{
+					return false;
+				}
+				Object value = node.value;
+				if (value != REMOVED)
+				{
+					pending = (E) value;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public E next() throws NoSuchElementException
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			E next = pending;
+			pending = null;
+			return next;
+		}
+	}
+
+	/**
+	 * saves the tree as its element count followed by the elements in order
+	 * @param out stream the tree is written to
+	 * @throws IOException if the stream cannot be written
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException
+	{
+		out.defaultWriteObject();
+		List<E> elements = new ArrayList<>();
+		for (E element : this)
+		{
+			elements.add(element);
+		}
+		out.writeInt(elements.size());
+		for (E element : elements)
+		{
+			out.writeObject(element);
+		}
+	}
+
+	/**
+	 * restores the tree, adding the middle elements first so the tree comes back balanced
+	 * @param in stream the tree is read from
+	 * @throws IOException if the stream cannot be read
+	 * @throws InvalidObjectException if the count is negative or an element is null,
+	 *         a duplicate or of the wrong class
+	 * @throws ClassNotFoundException if an element class cannot be found
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		in.defaultReadObject();
+		size = new AtomicInteger();
+		removalLock = new ReentrantLock();
+		int count = in.readInt();
+		if (count < 0)
+		{
+			throw new InvalidObjectException("Negative tree size " + count);
+		}
+		// grown as elements arrive, so a damaged count cannot claim the memory up front
+		Object[] elements = new Object[Math.min(count, 1024)];
+		for (int i = 0; i < count; i++)
+		{
+			if (i == elements.length)
+			{
+				elements = Arrays.copyOf(elements, (int) Math.min(count, 2L * i));
+			}
+			elements[i] = in.readObject();
+		}
+
+		ArrayDeque<int[]> ranges = new ArrayDeque<>();
+		ranges.add(new int[] {0, elements.length});
+		while (!ranges.isEmpty())
+		{
+			int[] range = ranges.poll();
+			if (range[0] < range[1])
+			{
+				int middle = (range[0] + range[1]) >>> 1;
+				try
+				{
+					if (!add((E) elements[middle]))
+					{
+						throw new InvalidObjectException("Saved tree lists an element twice: " + elements[middle]);
+					}
+				}
+				catch (ClassCastException | NullPointerException e)
+				{
+					throw new InvalidObjectException("Saved tree is damaged: " + e.getMessage());
+				}
+				ranges.add(new int[] {range[0], middle});
+				ranges.add(new int[] {middle + 1, range[1]});
+			}
+		}
+	}
+
+	/**
+	 * Node whose links and element can be read and updated safely by many threads.
+	 * The key the node is ordered by never changes; merge may swap in a new
+	 * element that compares equal to it.
+	 * @param <E> the element attached to the node
+	 */
+	static final class Node<E extends Comparable<? super E>> extends BSTreeNode<E>
+	{
+		private static final long serialVersionUID = 1L;
+
+		static final AtomicReferenceFieldUpdater<Node<?>, Node<?>> LEFT = updater("leftLink");
+		static final AtomicReferenceFieldUpdater<Node<?>, Node<?>> RIGHT = updater("rightLink");
+
+		volatile Node<E> leftLink;
+		volatile Node<E> rightLink;
+		volatile Object value;
+
+		Node(E element)
+		{
+			super(element);
+			this.value = element;
+		}
+
+		E key()
+		{
+			return super.getElement();
+		}
+
+		Node<E> left()
+		{
+			Node<E> left = leftLink;
+			return left == TOMBSTONE ? null : left;
+		}
+
+		Node<E> right()
+		{
+			Node<E> right = rightLink;
+			return right == TOMBSTONE ? null : right;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public E getElement()
+		{
+			Object current = value;
+			return current == REMOVED ? key() : (E) current;
+		}
+
+		/**
+		 * replaces the element with one that compares equal to it, under the node's
+		 * monitor like merge
+		 * @param element the new element
+		 * @throws IllegalArgumentException if the element does not equal the stored one
+		 * @throws IllegalStateException if the node was removed from the tree
+		 */
+		@Override
+		public void setElement(E element)
+		{
+			if (element == null)
+			{
+				throw new NullPointerException("Cannot store null");
+			}
+			synchronized (this)
+			{
+				if (value == REMOVED)
+				{
+					throw new IllegalStateException("The node was removed from the tree");
+				}
+				if (element.compareTo(key()) != 0)
+				{
+					throw new IllegalArgumentException("Element does not equal the stored one");
+				}
+				value = element;
+			}
+		}
+
+		@Override
+		public BSTreeNode<E> getLeft()
+		{
+			return left();
+		}
+
+		/**
+		 * replaces the left link with a compare-and-set; as with BSTree the caller keeps
+		 * the tree ordered, and the tree's size is not updated
+		 * @param left a node of a ConcurrentBSTree, or null
+		 */
+		@Override
+		public void setLeft(BSTreeNode<E> left)
+		{
+			link(LEFT, left);
+		}
+
+		@Override
+		public BSTreeNode<E> getRight()
+		{
+			return right();
+		}
+
+		/**
+		 * replaces the right link with a compare-and-set; as with BSTree the caller keeps
+		 * the tree ordered, and the tree's size is not updated
+		 * @param right a node of a ConcurrentBSTree, or null
+		 */
+		@Override
+		public void setRight(BSTreeNode<E> right)
+		{
+			link(RIGHT, right);
+		}
+
+		/**
+		 * gets the height of the subtree by walking it, O(n)
+		 * @return height of this subtree, weakly consistent with concurrent changes
+		 */
+		@Override
+		public int getHeight()
+		{
+			return measure(this, true);
+		}
+
+		/**
+		 * counts the elements of the subtree by walking it, O(n)
+		 * @return elements in this subtree, weakly consistent with concurrent changes
+		 */
+		@Override
+		public int getSize()
+		{
+			return measure(this, false);
+		}
+
+		/**
+		 * swaps in a link, failing rather than linking under a removed node
+		 * @param updater LEFT or RIGHT
+		 * @param child the node to link, or null
+		 */
+		private void link(AtomicReferenceFieldUpdater<Node<?>, Node<?>> updater, BSTreeNode<E> child)
+		{
+			if (child != null && !(child instanceof Node))
+			{
+				throw new IllegalArgumentException("Only nodes of a ConcurrentBSTree can be linked");
+			}
+			while (true)
+			{
+				Node<?> current = updater.get(this);
+				if (current == TOMBSTONE)
+				{
+					throw new IllegalStateException("The node was removed from the tree");
+				}
+				if (updater.compareAndSet(this, current, (Node<?>) child))
+				{
+					return;
+				}
+			}
+		}
+
+		/**
+		 * makes a typed updater for one of the link fields
+		 * @param field name of the field
+		 * @return the updater
+		 */
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private static AtomicReferenceFieldUpdater<Node<?>, Node<?>> updater(String field)
+		{
+			return (AtomicReferenceFieldUpdater) AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, field);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package implementations;
+
+import java.util.NoSuchElementException;
+
+import utilities.Iterator;
+
+/**
+ * In-order iterator over a BSTree that uses Morris threading instead of a stack,
+ * so it needs O(1) extra memory however large the tree is. Before descending
+ * into a left subtree it points the right link of the subtree's largest node
+ * (the predecessor) back at the current node, and follows that thread to climb
+ * back up, removing it as it goes. The tree is locked against other use until
+ * the walk ends or the iterator is closed.
+ * @param <E> the elements of the tree
+ */
+public final class ThreadedInorderIterator<E extends Comparable<? super E>> implements Iterator<E>, AutoCloseable
+{
+	private final BSTree<E> tree;
+	private BSTreeNode<E> current;
+	private boolean open;
+
+	/**
+	 * Starts a threaded walk of a tree, called by BSTree.threadedInorderIterator()
+	 * @param tree tree being walked, already marked as threaded
+	 * @param root root of the tree, null if it is empty
+	 */
+	ThreadedInorderIterator(BSTree<E> tree, BSTreeNode<E> root)
+	{
+		this.tree = tree;
+		this.current = root;
+		this.open = root != null;
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		return current != null;
+	}
+
+	@Override
+	public E next() throws NoSuchElementException
+	{
+		while (current != null)
+		{
+			if (current.getLeft() == null)
+			{
+				return visit();
+			}
+
+			BSTreeNode<E> predecessor = current.getLeft();
+			while (predecessor.getRight() != null && predecessor.getRight() != current)
+			{
+				predecessor = predecessor.getRight();
+			}
+
+			if (predecessor.getRight() == null)
+			{
+				predecessor.setRight(current);
+				current = current.getLeft();
+			}
+			else
+			{
+				predecessor.setRight(null);
+				return visit();
+			}
+		}
+		throw new NoSuchElementException();
+	}
+
+	/**
+	 * returns the current element and moves right, following a thread if there is one
+	 * @return the current element
+	 */
+	private E visit()
+	{
+		E element = current.getElement();
+		current = current.getRight();
+		if (current == null)
+		{
+			end();
+		}
+		return element;
+	}
+
+	/**
+	 * Finishes the walk without returning the remaining elements, which removes
+	 * every thread still in the tree and unlocks it. Calling it again does nothing.
+	 */
+	@Override
+	public void close()
+	{
+		while (current != null)
+		{
+			next();
+		}
+		end();
+	}
+
+	private void end()
+	{
+		if (open)
+		{
+			open = false;
+			tree.threadedWalkEnded();
+		}
+	}
+}
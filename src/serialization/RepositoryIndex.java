@@ -0,0 +1,533 @@
+package serialization;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import domain.FileTable;
+import domain.LineNumbers;
+import domain.Word;
+import implementations.BSTree;
+import implementations.BSTreeNode;
+
+/**
+ * Answers lookups from a repository saved by WordRepository without loading it. The file
+ * is memory-mapped a window at a time, like MappedWordTokenizer reads text: opening maps
+ * only the windows holding the header and the trailer, so it takes the same time for any
+ * size of repository, and every other window is mapped the first time a lookup reads it.
+ * A lookup binary-searches the word positions at the end of the file, reading the text
+ * of about log2(n) words, and decodes only the words it returns. The file table is read
+ * the first time a word is decoded.
+ *
+ * Opened with the repository's journal, the index lays the journal's records over the
+ * file: the words they add are read into a tree when the index is opened, taking time
+ * in proportion to the journal, and every lookup merges them into the words it finds and
+ * drops the occurrences of the files they replaced. The answers are those of the
+ * repository the journal would be compacted into, without rewriting it.
+ *
+ * Lookups trust the file: the checksum is only checked by WordRepository.load, though
+ * positions and lengths that point outside the file are reported as damage. Lookups may
+ * be made from several threads.
+ *
+ * Usage:
+ *   try (RepositoryIndex index = RepositoryIndex.open(path, new RepositoryJournal(path))) {
+ *       Word word = index.find("kitty");
+ *       List<Word> words = index.findPrefix("kit");
+ *   }
+ */
+public class RepositoryIndex implements Closeable {
+
+    /** default number of bytes mapped at a time */
+    public static final int WINDOW_SIZE = 1 << 26;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long length;
+    private final int windowSize;
+    /** the windows mapped so far, null for the others */
+    private final AtomicReferenceArray<ByteBuffer> windows;
+    private final int size;
+    private final long positions;
+    /** the words of the journal's records, and the files whose occurrences they replace */
+    private final BSTree<Word> journaled;
+    private final Set<String> replaced;
+    private FileTable files;
+
+    /**
+     * checks the header and reads the trailer of a repository
+     */
+    private RepositoryIndex(Path path, FileChannel channel, long length, int windowSize, BSTree<Word> journaled,
+            Set<String> replaced) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.length = length;
+        this.windowSize = windowSize;
+        this.journaled = journaled;
+        this.replaced = replaced;
+        this.windows = new AtomicReferenceArray<>((int) ((length + windowSize - 1) / windowSize));
+        Cursor header = new Cursor(0);
+        if (!Arrays.equals(header.bytes(WordRepository.MAGIC.length), WordRepository.MAGIC)) {
+            throw new IOException(path + " is not a word repository");
+        }
+        int version = header.next() & 0xFF;
+        if (version != WordRepository.VERSION) {
+            throw new IOException(path + " has repository version " + version + ", expected "
+                    + WordRepository.VERSION);
+        }
+        long trailer = length - WordRepository.TRAILER_SIZE;
+        positions = getLong(trailer);
+        size = getInt(trailer + 8);
+        if (size < 0 || positions < WordRepository.HEADER_SIZE || positions + 8L * size != trailer) {
+            throw new IOException("Damaged repository: bad trailer");
+        }
+    }
+
+    /**
+     * Checks whether a file is a repository in the current format, which open accepts.
+     * @param path The file to check
+     * @return true if the file has the header of a repository that can be searched
+     * @throws IOException if the file cannot be read
+     * Precondition: path is not null and the file exists
+     * Postcondition: The result is returned
+     */
+    public static boolean canOpen(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(WordRepository.MAGIC.length + 1);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is full or the file ends
+            }
+            if (header.hasRemaining()) {
+                return false;
+            }
+            int version = header.get(WordRepository.MAGIC.length) & 0xFF;
+            return Arrays.equals(Arrays.copyOf(header.array(), WordRepository.MAGIC.length), WordRepository.MAGIC)
+                    && version == WordRepository.VERSION;
+        }
+    }
+
+    /**
+     * Opens a repository for lookups, mapping it WINDOW_SIZE bytes at a time.
+     * @param path The repository file
+     * @return the index over the repository
+     * @throws IOException if the file cannot be mapped, is not a repository, has a version
+     *                     this class cannot read or has a damaged trailer
+     * Precondition: path is not null
+     * Postcondition: The index is returned
+     */
+    public static RepositoryIndex open(Path path) throws IOException {
+        return open(path, WINDOW_SIZE);
+    }
+
+    /**
+     * Opens a repository for lookups, mapping it windowSize bytes at a time.
+     * @param path The repository file
+     * @param windowSize The most bytes mapped at once
+     * @return the index over the repository
+     * @throws IOException if the file cannot be mapped, is not a repository, has a version
+     *                     this class cannot read or has a damaged trailer
+     * Precondition: path is not null, windowSize is positive
+     * Postcondition: The index is returned
+     */
+    public static RepositoryIndex open(Path path, int windowSize) throws IOException {
+        return open(path, windowSize, new BSTree<>(), Collections.emptySet());
+    }
+
+    /**
+     * Opens a repository for lookups with its journal laid over it, mapping it
+     * WINDOW_SIZE bytes at a time. Reads the journal's records, but writes nothing.
+     * @param path The repository file
+     * @param journal The journal of the repository
+     * @return the index over the repository and its journal
+     * @throws IOException if the journal cannot be read, or the file cannot be mapped,
+     *                     is not a repository, has a version this class cannot read or
+     *                     has a damaged trailer
+     * Precondition: path is not null, journal is the journal of path
+     * Postcondition: The index is returned
+     */
+    public static RepositoryIndex open(Path path, RepositoryJournal journal) throws IOException {
+        BSTree<Word> journaled = new BSTree<>();
+        Set<String> replaced = new HashSet<>();
+        journal.readUpdates(journaled, replaced);
+        return open(path, WINDOW_SIZE, journaled, replaced);
+    }
+
+    /**
+     * maps a repository and lays the journal's updates over it
+     */
+    private static RepositoryIndex open(Path path, int windowSize, BSTree<Word> journaled, Set<String> replaced)
+            throws IOException {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long length = channel.size();
+            if (length < WordRepository.HEADER_SIZE + WordRepository.TRAILER_SIZE) {
+                throw new IOException(path + " is not a word repository");
+            }
+            return new RepositoryIndex(path, channel, length, windowSize, journaled, replaced);
+        } catch (UncheckedIOException e) {
+            channel.close();
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of words in the repository file, not counting the journal's.
+     * @return the number of words
+     * Precondition: none
+     * Postcondition: The number of words is returned
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds a word by its text.
+     * @param text The text of the word, as it was indexed
+     * @return the word with its occurrences, or null if the repository does not hold it
+     * @throws IOException if the repository is damaged
+     * Precondition: text is not null
+     * Postcondition: The word is returned
+     */
+    public Word find(String text) throws IOException {
+        try {
+            int index = lowerBound(text);
+            Word stored = index < size && textAt(index).equals(text) ? wordAt(index) : null;
+            if (journaled.isEmpty() && replaced.isEmpty()) {
+                return stored;
+            }
+            BSTreeNode<Word> added = journaled.search(new Word(text));
+            return updated(stored, added == null ? null : added.getElement());
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw damaged(e);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Finds every word that starts with a prefix.
+     * @param prefix The start of the words
+     * @return the words, in alphabetical order
+     * @throws IOException if the repository is damaged
+     * Precondition: prefix is not null
+     * Postcondition: The words are returned
+     */
+    public List<Word> findPrefix(String prefix) throws IOException {
+        List<Word> words = new ArrayList<>();
+        try {
+            for (int index = lowerBound(prefix); index < size && textAt(index).startsWith(prefix); index++) {
+                words.add(wordAt(index));
+            }
+            if (!journaled.isEmpty() || !replaced.isEmpty()) {
+                List<Word> added = new ArrayList<>();
+                for (Word word : journaled.asNavigableSet().tailSet(new Word(prefix), true)) {
+                    if (!word.getWord().startsWith(prefix)) {
+                        break;
+                    }
+                    added.add(word);
+                }
+                words = updated(words, added);
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw damaged(e);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return words;
+    }
+
+    /**
+     * Finds every word from one text up to, but not including, another.
+     * @param from The lowest text to include
+     * @param to The text to stop before
+     * @return the words, in alphabetical order
+     * @throws IOException if the repository is damaged
+     * Precondition: from and to are not null
+     * Postcondition: The words are returned
+     */
+    public List<Word> findRange(String from, String to) throws IOException {
+        List<Word> words = new ArrayList<>();
+        try {
+            for (int index = lowerBound(from); index < size && textAt(index).compareTo(to) < 0; index++) {
+                words.add(wordAt(index));
+            }
+            if ((!journaled.isEmpty() || !replaced.isEmpty()) && from.compareTo(to) < 0) {
+                words = updated(words, new ArrayList<>(
+                        journaled.asNavigableSet().subSet(new Word(from), true, new Word(to), false)));
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw damaged(e);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return words;
+    }
+
+    /**
+     * merges the words the journal adds into the stored words found by a lookup, both in
+     * order, updating each as updated(Word, Word) does
+     */
+    private List<Word> updated(List<Word> stored, List<Word> added) {
+        List<Word> words = new ArrayList<>(stored.size() + added.size());
+        int i = 0;
+        int j = 0;
+        while (i < stored.size() || j < added.size()) {
+            int comp = i == stored.size() ? 1 : j == added.size() ? -1 : stored.get(i).compareTo(added.get(j));
+            Word word = updated(comp <= 0 ? stored.get(i++) : null, comp >= 0 ? added.get(j++) : null);
+            if (word != null) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * the word as compacting the journal would leave it: the stored word, decoded for this
+     * lookup, without the occurrences of the replaced files, followed by the journal's
+     * occurrences; null if no occurrence is left
+     */
+    private Word updated(Word stored, Word added) {
+        if (stored != null) {
+            for (String file : replaced) {
+                stored.removeFile(file);
+            }
+        }
+        if (added == null) {
+            return stored == null || stored.getFileCount() == 0 ? null : stored;
+        }
+        // the journal's word is copied, so the tree is never handed out
+        Word word = stored != null ? stored : new Word(added.getWord(), fileTable());
+        return word.merge(added);
+    }
+
+    /**
+     * position of the first word whose text is not below key, or size if there is none
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (textAt(middle).compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * reads the text of the word at a position in the word order
+     */
+    private String textAt(int index) {
+        return new Cursor(recordAt(index)).string();
+    }
+
+    /**
+     * decodes the word at a position in the word order
+     */
+    private Word wordAt(int index) {
+        FileTable table = fileTable();
+        Cursor cursor = new Cursor(recordAt(index));
+        String text = cursor.string();
+        int[] fileIds = new int[cursor.count()];
+        LineNumbers[] lines = new LineNumbers[fileIds.length];
+        for (int i = 0; i < fileIds.length; i++) {
+            fileIds[i] = cursor.varint();
+            int count = cursor.varint();
+            lines[i] = LineNumbers.fromEncoded(count, cursor.bytes(cursor.count()));
+        }
+        return new Word(text, table, fileIds, lines);
+    }
+
+    /**
+     * reads the file table after the header, once
+     */
+    private synchronized FileTable fileTable() {
+        if (files == null) {
+            FileTable table = new FileTable();
+            Cursor cursor = new Cursor(WordRepository.HEADER_SIZE);
+            int count = cursor.count();
+            for (int id = 0; id < count; id++) {
+                if (table.idOf(cursor.string()) != id) {
+                    throw new IllegalArgumentException("file " + id + " is listed twice");
+                }
+            }
+            files = table;
+        }
+        return files;
+    }
+
+    private long recordAt(int index) {
+        long position = getLong(positions + 8L * index);
+        if (position < WordRepository.HEADER_SIZE || position >= positions) {
+            throw new IllegalArgumentException("word " + index + " is outside the words");
+        }
+        return position;
+    }
+
+    /**
+     * the window starting at a multiple of windowSize, mapped the first time it is needed
+     */
+    private ByteBuffer window(long start) {
+        if (start < 0 || start >= length) {
+            throw new IndexOutOfBoundsException("position " + start + " is outside the file");
+        }
+        int number = (int) (start / windowSize);
+        ByteBuffer window = windows.get(number);
+        if (window == null) {
+            try {
+                window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, length - start));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // a thread that mapped the same window first wins, so every thread reads one mapping
+            if (!windows.compareAndSet(number, null, window)) {
+                window = windows.get(number);
+            }
+        }
+        return window;
+    }
+
+    /**
+     * reads a big-endian long, which may straddle two windows
+     */
+    private long getLong(long position) {
+        int offset = (int) (position % windowSize);
+        ByteBuffer window = window(position - offset);
+        if (offset + 8 <= window.capacity()) {
+            return window.getLong(offset);
+        }
+        return (long) getInt(position) << 32 | getInt(position + 4) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * reads a big-endian int, which may straddle two windows
+     */
+    private int getInt(long position) {
+        int offset = (int) (position % windowSize);
+        ByteBuffer window = window(position - offset);
+        if (offset + 4 <= window.capacity()) {
+            return window.getInt(offset);
+        }
+        Cursor cursor = new Cursor(position);
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = value << 8 | cursor.next() & 0xFF;
+        }
+        return value;
+    }
+
+    /**
+     * a position that reads forward through the file, moving on to the next window when
+     * it reaches the end of one; each lookup uses its own, so lookups can run in parallel
+     */
+    private final class Cursor {
+        private long start;
+        private ByteBuffer window;
+        private int offset;
+
+        Cursor(long position) {
+            offset = (int) (position % windowSize);
+            start = position - offset;
+            window = window(start);
+        }
+
+        byte next() {
+            if (offset == window.capacity()) {
+                start += windowSize;
+                window = window(start);
+                offset = 0;
+            }
+            return window.get(offset++);
+        }
+
+        /**
+         * reads a varint
+         */
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = next();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    if (shift == 28 && b > 0x07) {
+                        break;
+                    }
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("bad number before " + (start + offset));
+        }
+
+        /**
+         * reads a varint count of bytes or items that must fit in the rest of the file
+         */
+        int count() {
+            int count = varint();
+            if (count > length - (start + offset)) {
+                throw new IllegalArgumentException("count " + count + " runs past the end of the file");
+            }
+            return count;
+        }
+
+        /**
+         * copies bytes, from as many windows as they span
+         */
+        byte[] bytes(int count) {
+            byte[] bytes = new byte[count];
+            int copied = 0;
+            while (copied < count) {
+                if (offset == window.capacity()) {
+                    start += windowSize;
+                    window = window(start);
+                    offset = 0;
+                }
+                int part = Math.min(count - copied, window.capacity() - offset);
+                ByteBuffer view = window.duplicate();
+                view.position(offset);
+                view.get(bytes, copied, part);
+                offset += part;
+                copied += part;
+            }
+            return bytes;
+        }
+
+        String string() {
+            return new String(bytes(count()), StandardCharsets.UTF_8);
+        }
+    }
+
+    private IOException damaged(RuntimeException e) {
+        return new IOException("Damaged repository " + path + ": " + e.getMessage(), e);
+    }
+
+    /**
+     * Closes the file. The mapping is released when it is garbage collected.
+     * @throws IOException if the file cannot be closed
+     * Precondition: none
+     * Postcondition: The file is closed and the index can no longer be used
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
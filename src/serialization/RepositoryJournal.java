@@ -0,0 +1,456 @@
+package serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import domain.FileFingerprint;
+import domain.FileTable;
+import domain.Word;
+import implementations.BSTree;
+
+/**
+ * Records the words added to a repository saved by WordRepository in a journal next to
+ * it, so a small update appends only the new occurrences instead of rewriting every
+ * word. The journal is replayed over the loaded repository, and once it grows past half
+ * the size of the repository (or 1 MB) the two are compacted into a new repository.
+ *
+ * The journal is the repository file's name followed by ".journal":
+ *
+ *   "WTRJ", version byte, the length of the repository as a big-endian long and its
+ *   last four bytes, its checksum
+ *   then for each update: the length of the record as a big-endian int, then the
+ *   count and paths of the files whose earlier occurrences the update removes, the
+ *   fingerprints of the files it indexed, the file table, the word count and the words,
+ *   all in the layout of the repository, and a CRC32 of the record
+ *
+ * Each record is written with one write and forced to disk before the update counts as
+ * saved. A record cut short by a crash, or that fails its checksum, ends the journal:
+ * it and anything after it are ignored and overwritten by the next update. Compacting
+ * saves a new repository, which replaces the old one atomically, and then deletes the
+ * journal; a journal left behind by a crash between the two names the old repository
+ * in its header and is ignored. RepositoryIndex reads the records with readUpdates and
+ * lays them over the repository it searches, so a lookup never needs a compaction.
+ *
+ * Usage:
+ *   RepositoryJournal journal = new RepositoryJournal(path);
+ *   Map<String, FileFingerprint> fingerprints = new HashMap<>();
+ *   BSTree<Word> tree = WordRepository.load(path, fingerprints);
+ *   journal.replay(tree, fingerprints);
+ *   ...
+ *   journal.append(added, replaced, indexed);
+ *   if (journal.needsCompaction()) {
+ *       journal.compact(tree, fingerprints);
+ *   }
+ */
+public class RepositoryJournal {
+
+    /** the version of the journal format written by append */
+    public static final int VERSION = 1;
+
+    static final byte[] MAGIC = { 'W', 'T', 'R', 'J' };
+    /** the magic, the version and the length and checksum of the repository */
+    static final int HEADER_SIZE = MAGIC.length + 1 + 8 + 4;
+
+    private static final long MIN_COMPACTION_SIZE = 1 << 20;
+
+    private final Path base;
+    private final Path path;
+    /** the length of the journal up to the end of its last whole record */
+    private long validLength;
+    private boolean ready;
+
+    /**
+     * Creates the journal of a repository. Nothing is read until replay is called.
+     * @param base The repository file
+     * Precondition: base is not null
+     * Postcondition: The journal is created, not yet ready for appends
+     */
+    public RepositoryJournal(Path base) {
+        this.base = base;
+        this.path = base.resolveSibling(base.getFileName() + ".journal");
+    }
+
+    /**
+     * Gets the journal file.
+     * @return the path of the journal
+     * Precondition: none
+     * Postcondition: The path is returned
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Checks whether replay has read the journal of a repository in the current format,
+     * so updates can be appended to it.
+     * @return true if the journal is ready for appends
+     * Precondition: none
+     * Postcondition: The result is returned
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Replays the journal like replay(tree, fingerprints), dropping the fingerprints.
+     * @param tree The words loaded from the repository
+     * @return the number of records replayed
+     * @throws IOException if the repository or the journal cannot be read
+     * Precondition: tree is not null and holds the words of the repository
+     * Postcondition: tree holds the words of the repository and of the journal
+     */
+    public int replay(BSTree<Word> tree) throws IOException {
+        return replay(tree, new HashMap<>());
+    }
+
+    /**
+     * Applies the journal's records to a tree and fingerprints loaded from the repository,
+     * in the order they were appended, and readies the journal for appends. Each record
+     * removes the occurrences of the files it replaces before its words are added. A
+     * journal that does not belong to the repository is ignored. Only repositories that
+     * RepositoryIndex can open have a journal.
+     * @param tree The words loaded from the repository
+     * @param fingerprints The fingerprints loaded from the repository
+     * @return the number of records replayed
+     * @throws IOException if the repository or the journal cannot be read
+     * Precondition: tree and fingerprints are not null and hold what the repository holds
+     * Postcondition: tree and fingerprints hold the updates of the journal too
+     */
+    public int replay(BSTree<Word> tree, Map<String, FileFingerprint> fingerprints) throws IOException {
+        return replay(tree, fingerprints, new HashSet<>());
+    }
+
+    /**
+     * Reads the journal's records without the repository, in the time it takes to read
+     * the journal: the words the records add, with the occurrences that later records
+     * replaced removed, and every file a record replaced, whose occurrences in the
+     * repository are out of date. Also readies the journal for appends, like replay.
+     * @param words An empty tree that receives the words of the records
+     * @param replaced The set that receives the files the records replaced
+     * @return the number of records read
+     * @throws IOException if the repository or the journal cannot be read
+     * Precondition: words is empty, neither argument is null
+     * Postcondition: words and replaced hold the updates of the journal
+     */
+    public int readUpdates(BSTree<Word> words, Set<String> replaced) throws IOException {
+        return replay(words, new HashMap<>(), replaced);
+    }
+
+    /**
+     * applies the records to a tree and fingerprints, and collects the files they replace
+     */
+    private int replay(BSTree<Word> tree, Map<String, FileFingerprint> fingerprints, Set<String> replaced)
+            throws IOException {
+        ready = false;
+        validLength = 0;
+        if (!Files.exists(base) || !RepositoryIndex.canOpen(base)) {
+            return 0;
+        }
+        ready = true;
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        int records = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (readFully(channel, header) && belongs(header.array())) {
+                long position = HEADER_SIZE;
+                long length = channel.size();
+                ByteBuffer size = ByteBuffer.allocate(4);
+                while (true) {
+                    validLength = position;
+                    size.clear();
+                    if (!readFully(channel, size)) {
+                        break;
+                    }
+                    int recordLength = size.getInt(0);
+                    if (recordLength < 4 || recordLength > length - position - 4) {
+                        break;
+                    }
+                    ByteBuffer record = ByteBuffer.allocate(recordLength);
+                    if (!readFully(channel, record)) {
+                        break;
+                    }
+                    Record update = readRecord(record.array());
+                    if (update == null) {
+                        break;
+                    }
+                    removeFiles(tree, update.replaced);
+                    replaced.addAll(update.replaced);
+                    fingerprints.putAll(update.fingerprints);
+                    addAll(tree, update.words);
+                    records++;
+                    position += 4 + recordLength;
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Appends a record of words added to the repository, and forces it to disk.
+     * @param added The words added since the repository and the journal were read, with
+     *              only their new occurrences
+     * @throws IOException if the journal cannot be written
+     * @throws IllegalStateException if replay has not been called for the repository
+     * Precondition: added is not null
+     * Postcondition: The journal ends with a record of the added words
+     */
+    public void append(BSTree<Word> added) throws IOException {
+        append(added, Collections.emptySet(), Collections.emptyMap());
+    }
+
+    /**
+     * Appends a record of an update to the repository, and forces it to disk.
+     * @param added The words added since the repository and the journal were read, with
+     *              only their new occurrences
+     * @param replaced The files whose earlier occurrences the update removed before the
+     *                 words were added
+     * @param fingerprints The fingerprints of the files the update indexed or found unchanged
+     * @throws IOException if the journal cannot be written
+     * @throws IllegalStateException if the journal is not ready for appends
+     * Precondition: no argument is null
+     * Postcondition: The journal ends with a record of the update
+     */
+    public void append(BSTree<Word> added, Collection<String> replaced, Map<String, FileFingerprint> fingerprints)
+            throws IOException {
+        if (!ready) {
+            throw new IllegalStateException("The journal must be replayed before it is appended to");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[4]);
+        WordRepository.Output out = new WordRepository.Output(Channels.newChannel(bytes));
+        out.putVarint(replaced.size());
+        for (String file : replaced) {
+            out.putString(file);
+        }
+        WordRepository.writeFingerprints(out, fingerprints);
+        WordRepository.writeWords(out, added);
+        out.finish();
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        record.putInt(0, record.capacity() - 4);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+            if (validLength == 0) {
+                channel.truncate(0);
+                writeFully(channel, ByteBuffer.wrap(header()), 0);
+                validLength = HEADER_SIZE;
+            } else {
+                // drop a torn record left by an update that did not finish
+                channel.truncate(validLength);
+            }
+            writeFully(channel, record, validLength);
+            channel.force(true);
+        }
+        validLength += record.capacity();
+    }
+
+    /**
+     * Checks whether the journal holds updates that the repository does not, without
+     * replaying it.
+     * @return true if the journal belongs to the repository and has a record
+     * @throws IOException if the repository or the journal cannot be read
+     * Precondition: none
+     * Postcondition: The result is returned
+     */
+    public boolean hasRecords() throws IOException {
+        if (ready) {
+            return validLength > HEADER_SIZE;
+        }
+        if (!Files.exists(path) || !Files.exists(base) || !RepositoryIndex.canOpen(base)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            return channel.size() > HEADER_SIZE && readFully(channel, header) && belongs(header.array());
+        }
+    }
+
+    /**
+     * Checks whether the journal has grown enough to be compacted into the repository:
+     * past half the size of the repository, and past 1 MB.
+     * @return true if the journal should be compacted
+     * @throws IOException if the size of the repository cannot be read
+     * Precondition: replay has been called
+     * Postcondition: The result is returned
+     */
+    public boolean needsCompaction() throws IOException {
+        return validLength > Math.max(MIN_COMPACTION_SIZE, Files.size(base) / 2);
+    }
+
+    /**
+     * Compacts the journal like compact(tree, fingerprints), saving no fingerprints.
+     * @param tree The words of the repository and the journal
+     * @throws IOException if the repository cannot be saved or the journal deleted
+     * Precondition: tree is not null
+     * Postcondition: The repository holds the words of tree, the journal is empty and
+     *                ready for appends
+     */
+    public void compact(BSTree<Word> tree) throws IOException {
+        compact(tree, Collections.emptyMap());
+    }
+
+    /**
+     * Saves a tree and fingerprints as the new repository and deletes the journal, whose
+     * records they must hold. Also saves a repository that has no journal, or one in an
+     * older format.
+     * @param tree The words of the repository and the journal
+     * @param fingerprints The fingerprints of the repository and the journal
+     * @throws IOException if the repository cannot be saved or the journal deleted
+     * Precondition: tree and fingerprints are not null
+     * Postcondition: The repository holds the words of tree and the fingerprints, the
+     *                journal is empty and ready for appends
+     */
+    public void compact(BSTree<Word> tree, Map<String, FileFingerprint> fingerprints) throws IOException {
+        WordRepository.save(tree, fingerprints, base);
+        // a journal left behind from here on no longer matches the repository's header
+        Files.deleteIfExists(path);
+        validLength = 0;
+        ready = true;
+    }
+
+    /**
+     * Adds the words of one tree to another. A word missing from tree is added itself,
+     * so it is shared by both trees; the occurrences of any other word are merged into
+     * the word tree holds. The words are added middle first, so words that fall between
+     * the same two words of tree form a balanced subtree instead of a chain.
+     * @param tree The tree the words are added to
+     * @param added The words to add
+     * Precondition: tree and added are not null
+     * Postcondition: tree holds the occurrences of both trees
+     */
+    public static void addAll(BSTree<Word> tree, BSTree<Word> added) {
+        Word[] words = new Word[added.size()];
+        int count = 0;
+        for (Word word : added) {
+            words[count++] = word;
+        }
+        addMiddleFirst(tree, words, 0, count);
+    }
+
+    /**
+     * Removes the occurrences of files from the words of a tree, and the words left with
+     * no occurrences. Takes O(n) when there are files to remove.
+     * @param tree The tree of words
+     * @param files The paths of the files
+     * Precondition: tree and files are not null
+     * Postcondition: No word of tree occurs in the files
+     */
+    public static void removeFiles(BSTree<Word> tree, Collection<String> files) {
+        if (files.isEmpty()) {
+            return;
+        }
+        tree.removeIf(word -> {
+            for (String file : files) {
+                word.removeFile(file);
+            }
+            return word.getFileCount() == 0;
+        });
+    }
+
+    /**
+     * adds words[from] to words[to - 1], which are in order, middle first
+     */
+    private static void addMiddleFirst(BSTree<Word> tree, Word[] words, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        Word word = words[middle];
+        Word stored = tree.computeIfAbsent(word.getWord(), Word::compareText, text -> word);
+        if (stored != word) {
+            stored.merge(word);
+        }
+        addMiddleFirst(tree, words, from, middle);
+        addMiddleFirst(tree, words, middle + 1, to);
+    }
+
+    /**
+     * the contents of one record
+     */
+    private static final class Record {
+        final List<String> replaced = new ArrayList<>();
+        final Map<String, FileFingerprint> fingerprints = new HashMap<>();
+        BSTree<Word> words;
+    }
+
+    /**
+     * decodes a record, or returns null if it is damaged
+     */
+    private static Record readRecord(byte[] bytes) {
+        try (WordRepository.Input in = new WordRepository.Input(
+                Channels.newChannel(new ByteArrayInputStream(bytes)), bytes.length)) {
+            Record record = new Record();
+            for (int i = in.getCount(); i > 0; i--) {
+                record.replaced.add(in.getString());
+            }
+            WordRepository.readFingerprints(in, record.fingerprints);
+            FileTable files = WordRepository.readFiles(in);
+            Word[] words = WordRepository.readWords(in, files, in.getCount(), null);
+            in.finish();
+            record.words = BSTree.fromSorted(words, false);
+            return record;
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * whether a header is the one a journal of the current repository, in the current
+     * version, starts with
+     */
+    private boolean belongs(byte[] found) throws IOException {
+        return Arrays.equals(found, header());
+    }
+
+    /**
+     * the header naming the current repository by its length and checksum
+     */
+    private byte[] header() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.put(MAGIC).put((byte) VERSION);
+        try (FileChannel channel = FileChannel.open(base, StandardOpenOption.READ)) {
+            long length = channel.size();
+            ByteBuffer checksum = ByteBuffer.allocate(4);
+            if (length < 4 || !readFully(channel.position(length - 4), checksum)) {
+                throw new IOException(base + " is not a word repository");
+            }
+            header.putLong(length).put(checksum.array());
+        }
+        return header.array();
+    }
+
+    /**
+     * reads until the buffer is full; false if the channel ends first
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,538 @@
+package serialization;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import domain.FileFingerprint;
+import domain.FileTable;
+import domain.LineNumbers;
+import domain.Word;
+import implementations.BSTree;
+
+/**
+ * Saves and loads a tree of words in a compact binary format, in place of writing the
+ * tree, its nodes and its words through Java serialization.
+ *
+ * The file holds the words in order, after one table of the files they occur in:
+ *
+ *   "WTRK", version byte, flags byte (1 = balanced tree)
+ *   file count, then for each file: name length, name in UTF-8
+ *   word count, then for each word:
+ *     text length, text in UTF-8, file count, then for each file:
+ *       file id, line count, encoded length, line numbers as LineNumbers encodes them
+ *   fingerprint count, then for each indexed file: name length, name in UTF-8, size
+ *     and modification time as big-endian longs, a byte that is 1 when a content hash
+ *     follows, and the CRC32 of the content as a big-endian int
+ *   the position of each word, as a big-endian long
+ *   the position of the first of those longs, as a big-endian long, and the word
+ *   count, as a big-endian int
+ *   CRC32 of everything before it, as a big-endian int
+ *
+ * Every count, length and id is an unsigned varint. The file is written and read through
+ * a FileChannel with a 64 KB buffer, and the tree is rebuilt with BSTree.fromSorted, so
+ * loading links the nodes in O(n) without rebalancing. A repository is saved to a
+ * temporary file that then replaces the old one, so a failed save leaves it intact.
+ * The positions at the end let RepositoryIndex look words up without loading them.
+ */
+public class WordRepository {
+
+    /** the version of the format written by save */
+    public static final int VERSION = 1;
+
+    static final byte[] MAGIC = { 'W', 'T', 'R', 'K' };
+    /** bytes from the end of a file to the position of its word positions */
+    static final int TRAILER_SIZE = 8 + 4 + 4;
+    /** position of the file table, after the magic, the version and the flags */
+    static final int HEADER_SIZE = MAGIC.length + 2;
+
+    private static final int FLAG_BALANCED = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Checks whether a file starts like a repository written by save.
+     * @param path The file to check
+     * @return true if the file starts with the repository header
+     * @throws IOException if the file cannot be read
+     * Precondition: path is not null and the file exists
+     * Postcondition: The result is returned
+     */
+    public static boolean isRepository(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is full or the file ends
+            }
+            return !header.hasRemaining() && Arrays.equals(header.array(), MAGIC);
+        }
+    }
+
+    /**
+     * Saves a tree of words to a file, replacing it if it exists.
+     * @param tree The words to save
+     * @param path The file to save to
+     * @throws IOException if the file cannot be written
+     * Precondition: tree and path are not null
+     * Postcondition: The file holds the words of the tree, and their line numbers are sealed
+     */
+    public static void save(BSTree<Word> tree, Path path) throws IOException {
+        save(tree, Collections.emptyMap(), path);
+    }
+
+    /**
+     * Saves a tree of words and the fingerprints of the files they were read from to a
+     * file, replacing it if it exists.
+     * @param tree The words to save
+     * @param fingerprints The fingerprint of each indexed file, by path
+     * @param path The file to save to
+     * @throws IOException if the file cannot be written
+     * Precondition: no argument is null
+     * Postcondition: The file holds the words of the tree and the fingerprints, and the
+     *                line numbers of the words are sealed
+     */
+    public static void save(BSTree<Word> tree, Map<String, FileFingerprint> fingerprints, Path path)
+            throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.putBytes(MAGIC);
+            out.putByte(VERSION);
+            out.putByte(tree.isBalanced() ? FLAG_BALANCED : 0);
+            long[] positions = writeWords(out, tree);
+            writeFingerprints(out, fingerprints);
+            long indexPosition = out.position();
+            for (long position : positions) {
+                out.putLong(position);
+            }
+            out.putLong(indexPosition);
+            out.putInt(positions.length);
+            out.finish();
+            // the new file must be on disk before it replaces the old one
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Loads a tree of words saved by save. The words share one file table.
+     * @param path The file to load
+     * @return the tree of words
+     * @throws IOException if the file cannot be read, is not a repository, has a version
+     *                     this class cannot read or is damaged
+     * Precondition: path is not null
+     * Postcondition: The tree holds the saved words, with their line numbers sealed
+     */
+    public static BSTree<Word> load(Path path) throws IOException {
+        return load(path, new HashMap<>());
+    }
+
+    /**
+     * Loads a tree of words saved by save, and the fingerprints saved with it.
+     * @param path The file to load
+     * @param fingerprints receives the fingerprint of each indexed file, by path
+     * @return the tree of words
+     * @throws IOException if the file cannot be read, is not a repository, has a version
+     *                     this class cannot read or is damaged
+     * Precondition: path and fingerprints are not null
+     * Postcondition: The tree holds the saved words, with their line numbers sealed, and
+     *                fingerprints holds the saved fingerprints
+     */
+    public static BSTree<Word> load(Path path, Map<String, FileFingerprint> fingerprints) throws IOException {
+        try (Input in = new Input(FileChannel.open(path, StandardOpenOption.READ))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.getBytes(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException(path + " is not a word repository");
+            }
+            int version = in.getByte();
+            if (version != VERSION) {
+                throw new IOException(path + " has repository version " + version + ", expected " + VERSION);
+            }
+            boolean balanced = (in.getByte() & FLAG_BALANCED) != 0;
+            FileTable files = readFiles(in);
+            long[] positions = new long[in.getCount()];
+            Word[] words = readWords(in, files, positions.length, positions);
+            readFingerprints(in, fingerprints);
+            long indexPosition = in.position();
+            for (long position : positions) {
+                if (in.getLong() != position) {
+                    throw new IOException("Damaged repository: word positions do not match the words");
+                }
+            }
+            if (in.getLong() != indexPosition || in.getInt() != words.length) {
+                throw new IOException("Damaged repository: bad trailer");
+            }
+            in.finish();
+            return BSTree.fromSorted(words, balanced);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Damaged repository: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the file table and the words of a tree, from the file count to the last
+     * word. Words that number their files in different tables are given ids in one table.
+     * Shared with RepositoryJournal, whose records hold the same fields.
+     * @return the position of each word
+     */
+    static long[] writeWords(Output out, BSTree<Word> tree) throws IOException {
+        FileTable files = new FileTable();
+        Map<FileTable, int[]> remaps = new IdentityHashMap<>();
+        for (Word word : tree) {
+            remaps.computeIfAbsent(word.getFileTable(), table -> {
+                int[] remap = new int[table.size()];
+                for (int id = 0; id < remap.length; id++) {
+                    remap[id] = files.idOf(table.nameOf(id));
+                }
+                return remap;
+            });
+        }
+
+        out.putVarint(files.size());
+        for (int id = 0; id < files.size(); id++) {
+            out.putString(files.nameOf(id));
+        }
+        long[] positions = new long[tree.size()];
+        int index = 0;
+        out.putVarint(tree.size());
+        for (Word word : tree) {
+            int[] remap = remaps.get(word.getFileTable());
+            positions[index++] = out.position();
+            out.putString(word.getWord());
+            out.putVarint(word.getFileCount());
+            for (int i = 0; i < word.getFileCount(); i++) {
+                LineNumbers lines = word.getLinesAt(i);
+                ByteBuffer encoded = lines.encoded();
+                out.putVarint(remap[word.getFileIdAt(i)]);
+                out.putVarint(lines.size());
+                out.putVarint(encoded.remaining());
+                out.putBytes(encoded);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Reads the file table written by writeWords into a new table.
+     */
+    static FileTable readFiles(Input in) throws IOException {
+        FileTable files = new FileTable();
+        int fileCount = in.getCount();
+        for (int id = 0; id < fileCount; id++) {
+            if (files.idOf(in.getString()) != id) {
+                throw new IOException("Damaged repository: file " + id + " is listed twice");
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Reads the words written by writeWords, after the file table and the word count.
+     * @param files The file table read by readFiles, which the words share
+     * @param count The number of words
+     * @param positions receives the position of each word, or null
+     * @return the words, in the order they were written
+     * @throws IllegalArgumentException if a word's occurrences are damaged
+     */
+    static Word[] readWords(Input in, FileTable files, int count, long[] positions) throws IOException {
+        Word[] words = new Word[count];
+        for (int w = 0; w < words.length; w++) {
+            if (positions != null) {
+                positions[w] = in.position();
+            }
+            String text = in.getString();
+            int[] fileIds = new int[in.getCount()];
+            LineNumbers[] lines = new LineNumbers[fileIds.length];
+            for (int i = 0; i < fileIds.length; i++) {
+                fileIds[i] = in.getVarint();
+                int lineCount = in.getVarint();
+                byte[] encoded = new byte[in.getCount()];
+                in.getBytes(encoded);
+                lines[i] = LineNumbers.fromEncoded(lineCount, encoded);
+            }
+            words[w] = new Word(text, files, fileIds, lines);
+        }
+        return words;
+    }
+
+    /**
+     * Writes the fingerprints of indexed files, in the order of their paths.
+     * Shared with RepositoryJournal.
+     */
+    static void writeFingerprints(Output out, Map<String, FileFingerprint> fingerprints) throws IOException {
+        out.putVarint(fingerprints.size());
+        for (Map.Entry<String, FileFingerprint> entry : new TreeMap<>(fingerprints).entrySet()) {
+            FileFingerprint fingerprint = entry.getValue();
+            out.putString(entry.getKey());
+            out.putLong(fingerprint.getSize());
+            out.putLong(fingerprint.getLastModified());
+            out.putByte(fingerprint.hasHash() ? 1 : 0);
+            if (fingerprint.hasHash()) {
+                out.putInt(fingerprint.getHash());
+            }
+        }
+    }
+
+    /**
+     * Reads the fingerprints written by writeFingerprints into a map.
+     */
+    static void readFingerprints(Input in, Map<String, FileFingerprint> fingerprints) throws IOException {
+        int count = in.getCount();
+        for (int i = 0; i < count; i++) {
+            String name = in.getString();
+            long size = in.getLong();
+            long lastModified = in.getLong();
+            int hashed = in.getByte();
+            if (hashed > 1) {
+                throw new IOException("Damaged repository: bad fingerprint for " + name);
+            }
+            fingerprints.put(name, hashed == 1 ? new FileFingerprint(size, lastModified, in.getInt())
+                    : new FileFingerprint(size, lastModified));
+        }
+    }
+
+    /**
+     * buffered writes to a channel, keeping a CRC32 of everything written
+     */
+    static final class Output {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+        private long written;
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return written + buffer.position();
+        }
+
+        void putLong(long value) throws IOException {
+            if (buffer.remaining() < 8) {
+                drain();
+            }
+            buffer.putLong(value);
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < 4) {
+                drain();
+            }
+            buffer.putInt(value);
+        }
+
+        void putByte(int b) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) b);
+        }
+
+        void putVarint(int value) throws IOException {
+            if (buffer.remaining() < 5) {
+                drain();
+            }
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void putString(String text) throws IOException {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            putVarint(bytes.length);
+            putBytes(bytes);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            putBytes(ByteBuffer.wrap(bytes));
+        }
+
+        void putBytes(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int count = Math.min(bytes.remaining(), buffer.remaining());
+                ByteBuffer slice = bytes.duplicate();
+                slice.limit(slice.position() + count);
+                buffer.put(slice);
+                bytes.position(bytes.position() + count);
+            }
+        }
+
+        /**
+         * writes the checksum after the data and flushes the buffer
+         */
+        void finish() throws IOException {
+            if (buffer.remaining() < 4) {
+                drain();
+            }
+            crc.update(buffer.array(), 0, buffer.position());
+            buffer.putInt((int) crc.getValue());
+            write();
+        }
+
+        private void drain() throws IOException {
+            crc.update(buffer.array(), 0, buffer.position());
+            write();
+        }
+
+        private void write() throws IOException {
+            written += buffer.position();
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * buffered reads from a channel, keeping a CRC32 of everything before the checksum
+     */
+    static final class Input implements AutoCloseable {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+        /** bytes covered by the checksum: the whole file but its last four bytes */
+        private final long checked;
+        private long loaded;
+
+        Input(FileChannel channel) throws IOException {
+            this(channel, channel.size());
+        }
+
+        /**
+         * reads length bytes, the last four of them the checksum
+         */
+        Input(ReadableByteChannel channel, long length) {
+            this.channel = channel;
+            this.checked = length - 4;
+            buffer.flip();
+        }
+
+        long position() {
+            return loaded - buffer.remaining();
+        }
+
+        int getByte() throws IOException {
+            if (!buffer.hasRemaining()) {
+                fill();
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        int getInt() throws IOException {
+            return (getByte() << 24) | (getByte() << 16) | (getByte() << 8) | getByte();
+        }
+
+        long getLong() throws IOException {
+            return ((long) getInt() << 32) | (getInt() & 0xFFFFFFFFL);
+        }
+
+        int getVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = getByte();
+                value |= (b & 0x7F) << shift;
+                if (b < 0x80) {
+                    if (shift == 28 && b > 0x07) {
+                        throw new IOException("Damaged repository: number out of range");
+                    }
+                    return value;
+                }
+            }
+            throw new IOException("Damaged repository: number too long");
+        }
+
+        /**
+         * reads a count of items that each take at least one byte, so a damaged count
+         * cannot ask for more memory than the file could fill
+         */
+        int getCount() throws IOException {
+            int count = getVarint();
+            if (count > checked) {
+                throw new IOException("Damaged repository: count " + count + " is larger than the file");
+            }
+            return count;
+        }
+
+        String getString() throws IOException {
+            byte[] bytes = new byte[getCount()];
+            getBytes(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void getBytes(byte[] bytes) throws IOException {
+            int position = 0;
+            while (position < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    fill();
+                }
+                int count = Math.min(bytes.length - position, buffer.remaining());
+                buffer.get(bytes, position, count);
+                position += count;
+            }
+        }
+
+        /**
+         * checks that the checksum follows the data and matches it
+         */
+        void finish() throws IOException {
+            int expected = getInt();
+            if (buffer.hasRemaining() || loaded != checked + 4) {
+                throw new IOException("Damaged repository: data after the words");
+            }
+            if (expected != (int) crc.getValue()) {
+                throw new IOException("Damaged repository: checksum mismatch");
+            }
+        }
+
+        private void fill() throws IOException {
+            buffer.clear();
+            int read = 0;
+            while (read == 0) {
+                read = channel.read(buffer);
+            }
+            buffer.flip();
+            if (read < 0) {
+                throw new EOFException("Damaged repository: file ends early");
+            }
+            long covered = Math.max(0, Math.min(read, checked - loaded));
+            crc.update(buffer.array(), 0, (int) covered);
+            loaded += read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -4,6 +4,9 @@
 package utilities;
 
 import java.io.Serializable;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
 
 import implementations.BSTreeNode;
 
@@ -86,6 +89,54 @@ public interface BSTreeADT<E extends Comparable<? super E>> extends	Serializable
 	 */
 	public boolean add( E newEntry ) throws NullPointerException;
 
+	/**
+	 * Finds the element equal to the one passed in or, if the tree holds no such
+	 * element, adds it. The tree is descended only once.
+	 * 
+	 * @param newEntry the element to find or add
+	 * @return the element stored in the tree after the call: the one already
+	 *         there, or newEntry if it was added
+	 * @throws NullPointerException if the element being passed in is null
+	 */
+	public E addOrGet( E newEntry ) throws NullPointerException;
+
+	/**
+	 * Finds the element matching a key or, if the tree holds no such element,
+	 * adds the element the factory creates from the key. The tree is descended
+	 * only once, and the factory is only called when nothing matches, so callers
+	 * can look up by a cheaper key than a full element.
+	 * 
+	 * @param <K> the type of the lookup key
+	 * @param key the key to find
+	 * @param comparator compares the key to a stored element, returning a negative
+	 *           number, zero or a positive number as the key orders before, at or
+	 *           after the element in the natural ordering
+	 * @param factory creates the element for a key that is not found; the new
+	 *           element must order exactly where the key does
+	 * @return the element stored in the tree for the key after the call
+	 * @throws NullPointerException if any argument is null or the factory returns
+	 *            null
+	 */
+	public <K> E computeIfAbsent( K key, ToIntBiFunction<? super K, ? super E> comparator,
+			Function<? super K, ? extends E> factory ) throws NullPointerException;
+
+	/**
+	 * Adds the element if the tree holds no equal element, otherwise replaces the
+	 * stored element with the result of applying the remapping function to the
+	 * stored element and the one passed in. The tree is descended only once.
+	 * 
+	 * @param entry the element to add or merge
+	 * @param remapping combines the stored element (first argument) with entry
+	 *           (second argument); its result must compare equal to both
+	 * @return the element stored in the tree after the call
+	 * @throws NullPointerException if an argument is null or the remapping function
+	 *            returns null
+	 * @throws IllegalArgumentException if the remapped element does not compare
+	 *            equal to the stored one
+	 */
+	public E merge( E entry, BiFunction<? super E, ? super E, ? extends E> remapping )
+			throws NullPointerException, IllegalArgumentException;
+
 	/**
 	 * Removes the smallest element in the tree according to the natural ordering
 	 * established by the Comparable implementation.
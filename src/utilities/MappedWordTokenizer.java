@@ -0,0 +1,209 @@
+package utilities;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * MappedWordTokenizer
+ *
+ * Splits a range of a file into the same words and lines as WordTokenizer reading it
+ * through a FileReader, sharing its WordScanner state, but works on the bytes of a
+ * memory-mapped window instead of decoded chars. Ranges larger than one window are
+ * mapped a window at a time, so files of any size can be read.
+ *
+ * Only US-ASCII, ISO-8859-1 and UTF-8 text is handled this way, in locales where
+ * lowercasing does not depend on context; supports() says when it can be used. In those
+ * charsets every byte below 0x80 is the ASCII character it encodes, and the only
+ * multi-byte sequences that lowercase to letters are the UTF-8 encodings of U+0130
+ * (C4 B0) and U+212A (E2 84 AA); every other byte ends a word.
+ *
+ * Usage:
+ *   MappedWordTokenizer tokens = new MappedWordTokenizer(channel, 0, channel.size(), charset);
+ *   while (tokens.next()) {
+ *       ... tokens.lineNumber(), tokens.toString() ...
+ *   }
+ */
+public class MappedWordTokenizer extends WordScanner {
+
+    /** default number of bytes mapped at a time */
+    public static final int WINDOW_SIZE = 1 << 26;
+
+    // progress through a UTF-8 sequence that may lowercase to a letter
+    private static final int PLAIN = 0;
+    private static final int AFTER_C4 = 1;
+    private static final int AFTER_E2 = 2;
+    private static final int AFTER_E2_84 = 3;
+
+    private final FileChannel channel;
+    private final long end;
+    private final int windowSize;
+    private final boolean utf8;
+
+    private MappedByteBuffer window;
+    private long windowEnd;
+
+    // bytes are copied out of the window a block at a time, which is faster to scan
+    // than reading the mapping a byte at a time
+    private final byte[] block = new byte[8192];
+    private int position;
+    private int limit;
+    private int sequence = PLAIN;
+
+    /**
+     * Checks whether text in a charset can be split from its bytes with the results
+     * String.toLowerCase gives in a locale.
+     * @param charset The charset of the text
+     * @param locale The locale of the lowercasing
+     * @return true if the charset and locale are supported
+     * Precondition: charset and locale are not null
+     * Postcondition: The result is returned
+     */
+    public static boolean supports(Charset charset, Locale locale) {
+        String language = locale.getLanguage();
+        if (language.equals("tr") || language.equals("az") || language.equals("lt")) {
+            return false;
+        }
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Creates a tokenizer for a range of a file, mapped WINDOW_SIZE bytes at a time.
+     * @param channel The open file
+     * @param start The first byte of the range
+     * @param end The byte after the range
+     * @param charset The charset of the text
+     * Precondition: supports(charset, Locale.getDefault()), 0 <= start <= end <= channel size
+     * Postcondition: The tokenizer is positioned before the first word
+     */
+    public MappedWordTokenizer(FileChannel channel, long start, long end, Charset charset) {
+        this(channel, start, end, charset, WINDOW_SIZE);
+    }
+
+    /**
+     * Creates a tokenizer for a range of a file, mapped windowSize bytes at a time.
+     * @param channel The open file
+     * @param start The first byte of the range
+     * @param end The byte after the range
+     * @param charset The charset of the text
+     * @param windowSize The most bytes mapped at once
+     * Precondition: supports(charset, Locale.getDefault()), 0 <= start <= end <= channel size,
+     *               windowSize is positive
+     * Postcondition: The tokenizer is positioned before the first word
+     */
+    public MappedWordTokenizer(FileChannel channel, long start, long end, Charset charset, int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        this.channel = channel;
+        this.end = end;
+        this.windowSize = windowSize;
+        this.utf8 = charset.equals(StandardCharsets.UTF_8);
+        this.windowEnd = start;
+    }
+
+    /**
+     * Moves to the next word.
+     * @return true if there is a word, false at the end of the range
+     * @throws IOException if the file cannot be mapped
+     * Precondition: none
+     * Postcondition: The tokenizer holds the next word and its line number
+     */
+    public boolean next() throws IOException {
+        clear();
+        while (true) {
+            if (position == limit && !fill()) {
+                // a sequence cut short by the end of the range is not a letter
+                sequence = PLAIN;
+                return length() > 0;
+            }
+            int b = block[position] & 0xFF;
+            if (sequence != PLAIN) {
+                int letter = continueSequence(b);
+                if (letter < 0) {
+                    // not one of the sequences, so it was a separator; look at b again
+                    sequence = PLAIN;
+                    if (length() > 0) {
+                        return true;
+                    }
+                    continue;
+                }
+                position++;
+                if (letter == 'i') {
+                    appendScanned('i');
+                    return true;
+                }
+                if (letter == 'k') {
+                    appendScanned('k');
+                }
+                continue;
+            }
+            position++;
+            if (b < 128) {
+                if (feedAscii(b)) {
+                    position = appendLetters(block, position, limit);
+                    continue;
+                }
+            } else {
+                feedOther();
+                if (utf8 && (b == 0xC4 || b == 0xE2)) {
+                    sequence = b == 0xC4 ? AFTER_C4 : AFTER_E2;
+                    continue;
+                }
+            }
+            if (length() > 0) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * feeds the next byte of a sequence
+     * @return 'i' or 'k' when the sequence is complete, 0 when it goes on, -1 when b is not part of it
+     */
+    private int continueSequence(int b) {
+        switch (sequence) {
+            case AFTER_C4:
+                if (b == 0xB0) {
+                    sequence = PLAIN;
+                    return 'i';
+                }
+                return -1;
+            case AFTER_E2:
+                if (b == 0x84) {
+                    sequence = AFTER_E2_84;
+                    return 0;
+                }
+                return -1;
+            default:
+                if (b == 0xAA) {
+                    sequence = PLAIN;
+                    return 'k';
+                }
+                return -1;
+        }
+    }
+
+    /**
+     * copies the next block out of the window, mapping the next window when it is used up
+     * @return false at the end of the range
+     */
+    private boolean fill() throws IOException {
+        if (window == null || !window.hasRemaining()) {
+            if (windowEnd >= end) {
+                return false;
+            }
+            int size = (int) Math.min(windowSize, end - windowEnd);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowEnd, size);
+            windowEnd += size;
+        }
+        limit = Math.min(block.length, window.remaining());
+        window.get(block, 0, limit);
+        position = 0;
+        return true;
+    }
+}
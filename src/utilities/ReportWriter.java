@@ -0,0 +1,187 @@
+package utilities;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.PrimitiveIterator;
+
+import domain.LineNumbers;
+import domain.Word;
+
+/**
+ * ReportWriter
+ *
+ * Writes the WordTracker report, producing the same text println did for each line:
+ *
+ *   word
+ *     file -> lines: [1, 2]
+ *
+ * The text is formatted straight into one large char buffer. Words, file names and line
+ * numbers are copied in without concatenating Strings or formatting the line numbers
+ * into a String first, and the buffer is passed on to the underlying writer only when
+ * it is full or flushed. Lines end with the platform line separator, like println.
+ *
+ * Usage:
+ *   ReportWriter report = new ReportWriter(out);
+ *   report.writeLine("Words in alphabetical order:");
+ *   for (Word word : tree) {
+ *       report.writeWord(word);
+ *   }
+ *   report.flush();
+ */
+public class ReportWriter implements Closeable, Flushable {
+
+    /** the number of chars held before they are written out */
+    public static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String FILE_PREFIX = "  ";
+    private static final String LINES_PREFIX = " -> lines: [";
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+
+    /**
+     * Creates a report writer that encodes the text in the default charset, as a
+     * PrintStream would.
+     * @param out The stream the report is written to
+     * Precondition: out is not null
+     * Postcondition: A report writer with an empty buffer is created
+     */
+    public ReportWriter(OutputStream out) {
+        this(new OutputStreamWriter(out));
+    }
+
+    /**
+     * Creates a report writer on top of a Writer.
+     * @param out The writer the report is written to
+     * Precondition: out is not null
+     * Postcondition: A report writer with an empty buffer is created
+     */
+    public ReportWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a line of text followed by a line separator.
+     * @param text The text of the line
+     * @throws IOException if the buffer cannot be written out
+     * Precondition: text is not null
+     * Postcondition: The line follows everything written before it
+     */
+    public void writeLine(String text) throws IOException {
+        append(text);
+        append(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes a word on a line of its own, followed by a line for each file it occurs in
+     * that lists the word's line numbers in that file.
+     * @param word The word to write
+     * @throws IOException if the buffer cannot be written out
+     * Precondition: word is not null
+     * Postcondition: The word's lines follow everything written before them
+     */
+    public void writeWord(Word word) throws IOException {
+        writeLine(word.getWord());
+        for (int i = 0; i < word.getFileCount(); i++) {
+            append(FILE_PREFIX);
+            append(word.getFileAt(i));
+            append(LINES_PREFIX);
+            LineNumbers lines = word.getLinesAt(i);
+            PrimitiveIterator.OfInt it = lines.iterator();
+            while (it.hasNext()) {
+                append(it.nextInt());
+                if (it.hasNext()) {
+                    append(',');
+                    append(' ');
+                }
+            }
+            append(']');
+            append(LINE_SEPARATOR);
+        }
+    }
+
+    private void append(char c) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = c;
+    }
+
+    private void append(String text) throws IOException {
+        int start = 0;
+        int length = text.length();
+        while (start < length) {
+            if (position == buffer.length) {
+                drain();
+            }
+            int count = Math.min(length - start, buffer.length - position);
+            text.getChars(start, start + count, buffer, position);
+            position += count;
+            start += count;
+        }
+    }
+
+    /**
+     * appends the decimal digits of a number, as Integer.toString would give them
+     */
+    private void append(int value) throws IOException {
+        if (buffer.length - position < 11) {
+            drain();
+        }
+        long remaining = value;
+        if (remaining < 0) {
+            buffer[position++] = '-';
+            remaining = -remaining;
+        }
+        int digits = 1;
+        for (long scale = 10; scale <= remaining; scale *= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        position += digits;
+    }
+
+    /**
+     * passes the buffered chars to the underlying writer
+     */
+    private void drain() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    /**
+     * Writes out the buffered text and flushes the underlying writer.
+     * @throws IOException if the text cannot be written
+     * Precondition: none
+     * Postcondition: Everything written so far has reached the underlying writer
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Writes out the buffered text and closes the underlying writer.
+     * @throws IOException if the text cannot be written or the writer cannot be closed
+     * Precondition: none
+     * Postcondition: The report writer and the underlying writer are closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            out.close();
+        }
+    }
+}
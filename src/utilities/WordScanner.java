@@ -0,0 +1,264 @@
+package utilities;
+
+import java.util.Arrays;
+
+/**
+ * WordScanner
+ *
+ * The word and line state WordTokenizer and MappedWordTokenizer extend, so the two
+ * split text the same way: which characters are letters and how they lowercase, where
+ * lines end ("\n", "\r" or "\r\n", as for readLine), and the buffer holding the current
+ * word, which the tokenizer hands out as a CharSequence. The tokenizers feed it one
+ * character at a time from their own buffers, chars for WordTokenizer and bytes for
+ * MappedWordTokenizer, and handle the characters outside ASCII themselves.
+ */
+abstract class WordScanner implements CharSequence {
+
+    /** lowercase letter for each ASCII character, 0 for separators */
+    private static final char[] ASCII_FOLD = new char[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            ASCII_FOLD[c] = c;
+            ASCII_FOLD[c - 'a' + 'A'] = c;
+        }
+    }
+
+    private char[] token = new char[32];
+    private int length;
+    private int tokenLine;
+
+    private int linesEnded;
+    private boolean afterCarriageReturn;
+    private boolean lineStarted;
+
+    /**
+     * Gets the lowercase ASCII letter a character folds to.
+     * @param c The character
+     * @return the lowercase letter, 0 if c is not an ASCII letter
+     * Precondition: none
+     * Postcondition: The letter is returned
+     */
+    static char fold(int c) {
+        return c >= 0 && c < 128 ? ASCII_FOLD[c] : 0;
+    }
+
+    /**
+     * Empties the current word, before looking for the next one.
+     * Precondition: none
+     * Postcondition: length() is 0
+     */
+    final void clear() {
+        length = 0;
+    }
+
+    /**
+     * Feeds a character below 128, appending it to the word if it is a letter and
+     * ending the line if it is a line end.
+     * @param c The character
+     * @return true if c was a letter, so the rest of a run of letters can follow
+     * Precondition: 0 <= c < 128
+     * Postcondition: The state reflects c
+     */
+    final boolean feedAscii(int c) {
+        char folded = ASCII_FOLD[c];
+        if (folded != 0) {
+            appendScanned(folded);
+            afterCarriageReturn = false;
+            lineStarted = true;
+            return true;
+        }
+        if (c == '\n' || c == '\r') {
+            endLine(c);
+        } else {
+            feedOther();
+        }
+        return false;
+    }
+
+    /**
+     * Feeds a character that is neither a line end nor an ASCII letter; the caller
+     * appends any letter it lowercases to.
+     * Precondition: none
+     * Postcondition: The current line has started
+     */
+    final void feedOther() {
+        afterCarriageReturn = false;
+        lineStarted = true;
+    }
+
+    /**
+     * Ends the current line at a '\r' or '\n', treating "\r\n" as one line end.
+     * @param c The line end
+     * @return false if c was the '\n' of a "\r\n", which ends no new line
+     * Precondition: c is '\r' or '\n'
+     * Postcondition: The line is ended
+     */
+    final boolean endLine(int c) {
+        boolean ended = c == '\r' || !afterCarriageReturn;
+        if (ended) {
+            linesEnded++;
+        }
+        afterCarriageReturn = c == '\r';
+        lineStarted = false;
+        return ended;
+    }
+
+    /**
+     * Ends a last line that has no line end, at the end of the text.
+     * @return false if there was no such line
+     * Precondition: none
+     * Postcondition: Every line is ended
+     */
+    final boolean endText() {
+        if (!lineStarted) {
+            return false;
+        }
+        linesEnded++;
+        lineStarted = false;
+        return true;
+    }
+
+    /**
+     * Appends a letter found by the state machine, which starts a word on the current line.
+     * @param c The lowercase letter
+     * Precondition: none
+     * Postcondition: c ends the current word
+     */
+    final void appendScanned(char c) {
+        append(c, linesEnded + 1);
+    }
+
+    /**
+     * Appends a letter to the current word.
+     * @param c The lowercase letter
+     * @param line The line the word is on if c starts it
+     * Precondition: none
+     * Postcondition: c ends the current word
+     */
+    final void append(char c, int line) {
+        if (length == 0) {
+            tokenLine = line;
+        }
+        if (length == token.length) {
+            token = Arrays.copyOf(token, length * 2);
+        }
+        token[length++] = c;
+    }
+
+    /**
+     * Copies the rest of a run of ASCII letters in a buffer into the word.
+     * @param buffer The chars being scanned
+     * @param position The first char after the letter just fed
+     * @param limit The end of the chars in the buffer
+     * @return the position of the first char that is not a letter, or limit
+     * Precondition: the current word is not empty
+     * Postcondition: The letters are appended
+     */
+    final int appendLetters(char[] buffer, int position, int limit) {
+        char[] chars = token;
+        int count = length;
+        int i = position;
+        while (i < limit) {
+            char c = buffer[i];
+            char folded = c < 128 ? ASCII_FOLD[c] : 0;
+            if (folded == 0) {
+                break;
+            }
+            if (count == chars.length) {
+                chars = token = Arrays.copyOf(chars, count * 2);
+            }
+            chars[count++] = folded;
+            i++;
+        }
+        length = count;
+        return i;
+    }
+
+    /**
+     * Copies the rest of a run of ASCII letters in a buffer into the word.
+     * @param buffer The bytes being scanned
+     * @param position The first byte after the letter just fed
+     * @param limit The end of the bytes in the buffer
+     * @return the position of the first byte that is not a letter, or limit
+     * Precondition: the current word is not empty
+     * Postcondition: The letters are appended
+     */
+    final int appendLetters(byte[] buffer, int position, int limit) {
+        char[] chars = token;
+        int count = length;
+        int i = position;
+        while (i < limit) {
+            int b = buffer[i];
+            char folded = b < 0 ? 0 : ASCII_FOLD[b];
+            if (folded == 0) {
+                break;
+            }
+            if (count == chars.length) {
+                chars = token = Arrays.copyOf(chars, count * 2);
+            }
+            chars[count++] = folded;
+            i++;
+        }
+        length = count;
+        return i;
+    }
+
+    /**
+     * Gets the number of line ends seen so far.
+     * @return the lines ended
+     * Precondition: none
+     * Postcondition: The count is returned
+     */
+    final int linesEnded() {
+        return linesEnded;
+    }
+
+    /**
+     * Gets the line the current word is on, counting from 1.
+     * @return the line number of the current word
+     * Precondition: next() returned true
+     * Postcondition: The line number is returned
+     */
+    public final int lineNumber() {
+        return tokenLine;
+    }
+
+    /**
+     * Gets the number of lines read so far, counted as readLine would count them.
+     * Once next() has returned false this is the number of lines in the text.
+     * @return the number of lines read
+     * Precondition: none
+     * Postcondition: The number of lines is returned
+     */
+    public final int lineCount() {
+        return lineStarted ? linesEnded + 1 : linesEnded;
+    }
+
+    @Override
+    public final int length() {
+        return length;
+    }
+
+    @Override
+    public final char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return token[index];
+    }
+
+    @Override
+    public final CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    /**
+     * Copies the current word into a new String.
+     * @return the current word
+     */
+    @Override
+    public final String toString() {
+        return new String(token, 0, length);
+    }
+}
@@ -0,0 +1,172 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * WordTokenizer
+ *
+ * Splits text into words exactly like line.toLowerCase().split("[^a-zA-Z]+") applied to
+ * every line returned by BufferedReader.readLine(), without creating a String per line or
+ * per token. The text is scanned once; letters are lowercased as they are copied into a
+ * buffer that is reused for every token, and the tokenizer itself is the CharSequence
+ * holding the current token, so it can be handed straight to a lookup such as
+ * BSTree.computeIfAbsent(tokens, Word::compareText, ...).
+ *
+ * Lines end at "\n", "\r" or "\r\n", as for readLine. The only characters outside ASCII
+ * that lowercase to an ASCII letter are U+0130 (to "i" followed by a combining dot, which
+ * ends the word) and U+212A (to "k"). Turkish, Azerbaijani and Lithuanian have lowercasing
+ * rules that depend on the neighbouring characters; in those locales each line is still
+ * lowercased with String.toLowerCase before it is split.
+ *
+ * Usage:
+ *   WordTokenizer tokens = new WordTokenizer(reader);
+ *   while (tokens.next()) {
+ *       ... tokens.lineNumber(), tokens.toString() ...
+ *   }
+ */
+public class WordTokenizer extends WordScanner {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+
+    /** set for locales whose lowercasing depends on context, see class comment */
+    private final Locale lineLocale;
+    private char[] line = new char[256];
+    private int lineLength;
+    private String foldedLine = "";
+    private int foldedPosition;
+
+    /**
+     * Creates a tokenizer that lowercases like String.toLowerCase() in the default locale.
+     * @param in The text to split; it is read in blocks, so it needs no buffering
+     * Precondition: in is not null
+     * Postcondition: The tokenizer is positioned before the first word
+     */
+    public WordTokenizer(Reader in) {
+        this(in, Locale.getDefault());
+    }
+
+    /**
+     * Creates a tokenizer that lowercases like String.toLowerCase(locale).
+     * @param in The text to split; it is read in blocks, so it needs no buffering
+     * @param locale The locale whose lowercasing rules are followed
+     * Precondition: in and locale are not null
+     * Postcondition: The tokenizer is positioned before the first word
+     */
+    public WordTokenizer(Reader in, Locale locale) {
+        this.in = in;
+        String language = locale.getLanguage();
+        boolean contextual = language.equals("tr") || language.equals("az") || language.equals("lt");
+        this.lineLocale = contextual ? locale : null;
+    }
+
+    /**
+     * Moves to the next word.
+     * @return true if there is a word, false at the end of the text
+     * @throws IOException if the text cannot be read
+     * Precondition: none
+     * Postcondition: The tokenizer holds the next word and its line number
+     */
+    public boolean next() throws IOException {
+        clear();
+        return lineLocale == null ? scan() : scanLines();
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        position = 0;
+        limit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    /**
+     * the state machine used when lowercasing does not depend on context
+     */
+    private boolean scan() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return length() > 0;
+            }
+            char c = buffer[position++];
+            if (c < 128) {
+                if (feedAscii(c)) {
+                    position = appendLetters(buffer, position, limit);
+                    continue;
+                }
+            } else {
+                feedOther();
+                if (c == '\u212A') {
+                    appendScanned('k');
+                    continue;
+                }
+                if (c == '\u0130') {
+                    appendScanned('i');
+                }
+            }
+            if (length() > 0) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * the slower path for contextual locales: each line is read whole and lowercased by
+     * String.toLowerCase, then split at the characters that are not ASCII letters
+     */
+    private boolean scanLines() throws IOException {
+        while (true) {
+            while (foldedPosition < foldedLine.length()) {
+                char folded = fold(foldedLine.charAt(foldedPosition++));
+                if (folded != 0) {
+                    // the line has been read, so it is the last one ended
+                    append(folded, linesEnded());
+                } else if (length() > 0) {
+                    return true;
+                }
+            }
+            if (length() > 0) {
+                return true;
+            }
+            if (!readLine()) {
+                return false;
+            }
+            foldedLine = new String(line, 0, lineLength).toLowerCase(lineLocale);
+            foldedPosition = 0;
+        }
+    }
+
+    /**
+     * reads the next line into the line buffer, without its line end
+     * @return false at the end of the text
+     */
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        while (true) {
+            if (position == limit && !fill()) {
+                return endText();
+            }
+            char c = buffer[position++];
+            if (c == '\n' || c == '\r') {
+                if (endLine(c)) {
+                    return true;
+                }
+                continue;
+            }
+            feedOther();
+            if (lineLength == line.length) {
+                line = Arrays.copyOf(line, lineLength * 2);
+            }
+            line[lineLength++] = c;
+        }
+    }
+}
@@ -1,9 +1,26 @@
 package utilities;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import domain.FileFingerprint;
+import domain.FileTable;
 import domain.Word;
 import implementations.BSTree;
+import serialization.RepositoryIndex;
+import serialization.RepositoryJournal;
+import serialization.WordRepository;
 
 /**
  * WordTracker
@@ -11,8 +28,15 @@ import implementations.BSTree;
  * This program reads one or more text files and stores all unique words
  * into a Binary Search Tree (BST) along with their occurrence details
  * (filename and line numbers). It supports loading from and saving to 
- * a serialized repository, and generates output reports sorted either by
- * alphabetical order, total frequency, or number of files.
+ * a binary repository, repository.bin, and generates output reports sorted either by
+ * alphabetical order, total frequency, or number of files. The words
+ * added by each run are appended to a journal beside the repository, which
+ * is folded into the repository once it grows large or before it is searched.
+ * The repository keeps the size and modification time of every file it has
+ * indexed: a file given again unchanged is skipped without being read, and
+ * the old occurrences of a changed file are replaced instead of kept. A
+ * repository.ser written with Java serialization by earlier releases is
+ * imported when there is no repository.bin yet.
  * 
  * Usage:
  *   java -jar WordTracker.jar <file1> [<file2> ...] <option> [-f<outputFile>]
@@ -22,6 +46,19 @@ import implementations.BSTree;
  *   -pl : Print words alphabetically with files and line numbers.
  *   -po : Print words alphabetically with files, line numbers, and frequency.
  *   -f<outputFile> : (Optional) Save output to the specified file instead of printing to console.
+ *   -j<N> : (Optional) Index up to N files at the same time; -j alone uses one job per core.
+ *           The output is identical to indexing the files one after another.
+ *   -c<MB> : (Optional) Split files larger than MB megabytes into line-aligned chunks that
+ *            are indexed in parallel, one job per core unless -j is given.
+ *   -m : (Optional) Read files through memory mappings and split words from their bytes,
+ *        for US-ASCII, ISO-8859-1 and UTF-8 text; other charsets are read as usual.
+ *   -h : (Optional) Also record a CRC32 of each file indexed, so a file whose modification
+ *        time changed but whose content did not is skipped too.
+ *   -top<N> : (Optional) Print only the first N words of the report, which are picked
+ *             without sorting every word.
+ *   -q<word> : (Optional, repeatable) Print the files and lines of a word, or of every word
+ *              starting with a prefix when the word ends with '*'. Without files to index
+ *              or a -p option the repository is searched on disk instead of being loaded.
  * 
  * Dependencies:
  * - domain.Word
@@ -34,14 +71,33 @@ import implementations.BSTree;
 
 public class WordTracker {
 
-    private static final String REPO_FILENAME = "repository.ser";
+    private static final String REPO_FILENAME = "repository.bin";
+    /** the repository of earlier releases, written with Java serialization */
+    private static final String LEGACY_REPO_FILENAME = "repository.ser";
+    private static final int MAX_CHUNK_MB = 1024;
 
-    public static void main(String[] args) {
-        BSTree<Word> tree = loadRepository();
+    /** The -pf order: most occurrences first, then alphabetical. */
+    public static final Comparator<Word> BY_FREQUENCY =
+            (a, b) -> a.getTotalFrequency() != b.getTotalFrequency()
+                    ? Integer.compare(b.getTotalFrequency(), a.getTotalFrequency())
+                    : a.compareTo(b);
+
+    /** The -pl order: most files first, then alphabetical. */
+    public static final Comparator<Word> BY_FILES =
+            (a, b) -> a.getFileCount() != b.getFileCount()
+                    ? Integer.compare(b.getFileCount(), a.getFileCount())
+                    : a.compareTo(b);
 
+    public static void main(String[] args) {
         List<String> filesToProcess = new ArrayList<>();
+        List<String> queries = new ArrayList<>();
         boolean sortAlpha = false, sortFreq = false, sortFiles = false;
         String outputFilename = null;
+        int jobs = 0;
+        long chunkSize = 0;
+        boolean mapped = false;
+        boolean hash = false;
+        int top = 0;
 
         // Parse command-line args
         for (String arg : args) {
@@ -50,122 +106,819 @@ public class WordTracker {
                 else if (arg.equals("-pf")) sortFreq = true;
                 else if (arg.equals("-pl")) sortFiles = true;
                 else if (arg.startsWith("-f")) outputFilename = arg.substring(2);
+                else if (arg.startsWith("-j")) jobs = parseJobs(arg.substring(2));
+                else if (arg.startsWith("-c")) chunkSize = parseChunkSize(arg.substring(2));
+                else if (arg.equals("-m")) mapped = true;
+                else if (arg.equals("-h")) hash = true;
+                else if (arg.startsWith("-top")) top = parseTop(arg.substring(4));
+                else if (arg.startsWith("-q")) queries.add(arg.substring(2));
             } else {
                 filesToProcess.add(arg);
             }
         }
 
+        boolean report = sortAlpha || sortFreq || sortFiles || queries.isEmpty();
+        if (filesToProcess.isEmpty() && !report) {
+            printQueries(queries, outputFilename, false);
+            return;
+        }
+
+        RepositoryJournal journal = new RepositoryJournal(new File(REPO_FILENAME).toPath());
+        Map<String, FileFingerprint> fingerprints = new HashMap<>();
+        BSTree<Word> tree = loadRepository(journal, fingerprints);
+        BSTree<Word> added = new BSTree<>(tree.isBalanced());
+        Map<String, FileFingerprint> indexed = new HashMap<>();
+        Set<String> replaced = new LinkedHashSet<>();
+
         if (!filesToProcess.isEmpty()) {
+            List<File> files = new ArrayList<>();
             for (String filename : filesToProcess) {
                 File file = new File(filename);
                 if (file.exists()) {
-                    processFile(file, tree);
+                    files.add(file);
                 } else {
                     System.out.println("File not found: " + filename);
                 }
             }
+            files = changedFiles(files, tree, fingerprints, hash, indexed, replaced);
+            if (jobs == 0) {
+                jobs = chunkSize > 0 ? Runtime.getRuntime().availableProcessors() : 1;
+            }
+            // index into a tree of their own, so only the new occurrences are journaled;
+            // nothing of a run that could not read a file is recorded, so the next run
+            // reads the file again and its old occurrences are kept until then
+            try {
+                added = processFiles(files, added, jobs, chunkSize, mapped);
+            } catch (IOException e) {
+                System.err.println("Error reading file " + e.getMessage() + ", the repository was not updated.");
+                return;
+            }
+            RepositoryJournal.removeFiles(tree, replaced);
+            fingerprints.putAll(indexed);
+            if (tree.isEmpty()) {
+                tree = added;
+            } else {
+                RepositoryJournal.addAll(tree, added);
+            }
+            // store the lines of the words compactly until they are next added to; only
+            // the words this run added to are visited, so it costs O(k log n) for k words
+            for (Word word : added) {
+                tree.search(word).getElement().seal();
+            }
+        }
+
+        saveRepository(tree, fingerprints, added, replaced, indexed, journal);
+        if (report) {
+            printOutput(tree, sortAlpha, sortFreq, sortFiles, top, outputFilename);
+        }
+        if (!queries.isEmpty()) {
+            printQueries(queries, outputFilename, report);
+        }
+    }
+
+    private static int parseJobs(String count) {
+        if (count.isEmpty()) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            int jobs = Integer.parseInt(count);
+            if (jobs > 0) {
+                return jobs;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
         }
+        System.out.println("Invalid job count: " + count + ", indexing one file at a time.");
+        return 1;
+    }
 
-        saveRepository(tree);
-        printOutput(tree, sortAlpha, sortFreq, sortFiles, outputFilename);
+    private static long parseChunkSize(String megabytes) {
+        try {
+            int size = Integer.parseInt(megabytes);
+            if (size > 0 && size <= MAX_CHUNK_MB) {
+                return size * 1024L * 1024L;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.out.println("Invalid chunk size: " + megabytes + ", files will not be split.");
+        return 0;
     }
 
-    private static BSTree<Word> loadRepository() {
+    private static int parseTop(String count) {
+        try {
+            int top = Integer.parseInt(count);
+            if (top > 0) {
+                return top;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        System.out.println("Invalid word count: " + count + ", printing every word.");
+        return 0;
+    }
+
+    /**
+     * loads the repository and replays its journal, or imports the repository of an
+     * earlier release when there is none; the journal is then not ready, so the
+     * imported words are saved as a new repository
+     */
+    private static BSTree<Word> loadRepository(RepositoryJournal journal, Map<String, FileFingerprint> fingerprints) {
         File file = new File(REPO_FILENAME);
-        if (file.exists()) {
-            try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
-                BSTree<Word> tree = (BSTree<Word>) in.readObject();
+        File legacy = new File(LEGACY_REPO_FILENAME);
+        try {
+            if (file.exists()) {
+                BSTree<Word> tree = WordRepository.load(file.toPath(), fingerprints);
+                journal.replay(tree, fingerprints);
                 System.out.println("Repository loaded.");
                 return tree;
-            } catch (IOException | ClassNotFoundException e) {
-                System.err.println("Error loading repository: " + e.getMessage());
             }
+            if (legacy.exists()) {
+                BSTree<Word> tree = loadSerialized(legacy);
+                System.out.println("Repository imported from " + LEGACY_REPO_FILENAME + ".");
+                return tree;
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Error loading repository: " + e.getMessage());
         }
         return new BSTree<>();
     }
 
-    private static void saveRepository(BSTree<Word> tree) {
-        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(REPO_FILENAME))) {
-            out.writeObject(tree);
+    /**
+     * reads a repository written with Java serialization, before WordRepository; it is
+     * written back in the binary format when the repository is next saved. Words from
+     * before the file table was shared each read into a table of their own, so they are
+     * moved onto one afterwards
+     */
+    @SuppressWarnings("unchecked")
+    private static BSTree<Word> loadSerialized(File file) throws IOException, ClassNotFoundException {
+        BSTree<Word> tree;
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            tree = (BSTree<Word>) in.readObject();
+        }
+        FileTable table = fileTable(tree);
+        for (Word word : tree) {
+            word.shareFileTable(table);
+        }
+        return tree;
+    }
+
+    /**
+     * appends the update (the added words, the files whose old occurrences were removed
+     * and the fingerprints of the files indexed) to the journal when it was replayed,
+     * compacting it once it is large, and otherwise saves the whole tree; nothing is
+     * written when the repository and its journal already hold everything
+     */
+    private static void saveRepository(BSTree<Word> tree, Map<String, FileFingerprint> fingerprints,
+            BSTree<Word> added, Set<String> replaced, Map<String, FileFingerprint> indexed,
+            RepositoryJournal journal) {
+        try {
+            if (journal.isReady() && added.isEmpty() && indexed.isEmpty()) {
+                return;
+            }
+            if (journal.isReady()) {
+                journal.append(added, replaced, indexed);
+                if (journal.needsCompaction()) {
+                    journal.compact(tree, fingerprints);
+                }
+            } else {
+                journal.compact(tree, fingerprints);
+            }
             System.out.println("Repository saved.");
         } catch (IOException e) {
             System.err.println("Error saving repository: " + e.getMessage());
         }
     }
 
-    private static void processFile(File file, BSTree<Word> tree) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            int lineNumber = 1;
+    /**
+     * picks the files that have to be indexed. A file whose size and modification time
+     * match its fingerprint is skipped without being read; with hash, so is one of the
+     * same size whose content still has the recorded CRC32. The new fingerprint of every
+     * file picked, or found unchanged by its hash, is put in indexed, and a file that was
+     * indexed before is put in replaced, so its old occurrences can be removed
+     */
+    private static List<File> changedFiles(List<File> files, BSTree<Word> tree,
+            Map<String, FileFingerprint> fingerprints, boolean hash, Map<String, FileFingerprint> indexed,
+            Set<String> replaced) {
+        List<File> changed = new ArrayList<>();
+        Set<String> indexedBefore = null;
+        for (File file : files) {
+            String name = file.getPath();
+            if (indexed.containsKey(name)) {
+                // listed twice
+                continue;
+            }
+            long size = file.length();
+            long modified = file.lastModified();
+            FileFingerprint old = fingerprints.get(name);
+            if (old != null && old.matches(size, modified)) {
+                System.out.println("File unchanged: " + name);
+                continue;
+            }
+            FileFingerprint current;
+            try {
+                current = hash ? new FileFingerprint(size, modified, contentHash(file))
+                        : new FileFingerprint(size, modified);
+            } catch (IOException e) {
+                System.err.println("Error reading file " + file.getName() + ": " + e.getMessage());
+                continue;
+            }
+            indexed.put(name, current);
+            if (old != null && old.hasHash() && current.hasHash() && old.getSize() == size
+                    && old.getHash() == current.getHash()) {
+                System.out.println("File unchanged: " + name);
+                continue;
+            }
+            changed.add(file);
+            if (old == null && indexedBefore == null) {
+                // files indexed before fingerprints were kept are only known by their words
+                indexedBefore = fileNames(tree);
+            }
+            if (old != null || indexedBefore.contains(name)) {
+                replaced.add(name);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * the names in the file tables of the words of a tree
+     */
+    private static Set<String> fileNames(BSTree<Word> tree) {
+        Set<String> names = new HashSet<>();
+        Map<FileTable, Boolean> tables = new IdentityHashMap<>();
+        for (Word word : tree) {
+            FileTable table = word.getFileTable();
+            if (tables.put(table, Boolean.TRUE) == null) {
+                for (int id = 0; id < table.size(); id++) {
+                    names.add(table.nameOf(id));
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * the CRC32 of the content of a file
+     */
+    private static int contentHash(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            while (channel.read(buffer) >= 0) {
+                crc.update(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+        }
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Indexes every word of a file into the tree, recording the file path and line number.
+     * Each word is found or added with a single descent of the tree, and a new Word is
+     * only created the first time its text is seen.
+     * @param file The file to read
+     * @param tree The tree the words are added to
+     * @throws IOException if the file cannot be read, naming the file; the tree may then
+     *                     hold some of its words
+     * Precondition: file and tree are not null
+     * Postcondition: Every word in the file has an occurrence recorded in the tree
+     */
+    public static void processFile(File file, BSTree<Word> tree) throws IOException {
+        processFile(file, tree, fileTable(tree));
+    }
+
+    private static void processFile(File file, BSTree<Word> tree, FileTable files) throws IOException {
+        try (Reader reader = new FileReader(file)) {
+            processText(reader, file.getPath(), tree, files);
+        } catch (IOException e) {
+            throw readError(file, e);
+        }
+    }
+
+    /**
+     * Indexes every word of a file like processFile, but reads the file through memory
+     * mappings and splits words from its bytes with MappedWordTokenizer, which avoids
+     * decoding the text. Falls back to processFile when the default charset or locale is
+     * not supported by MappedWordTokenizer.
+     * @param file The file to read
+     * @param tree The tree the words are added to
+     * @throws IOException if the file cannot be read, naming the file; the tree may then
+     *                     hold some of its words
+     * Precondition: file and tree are not null
+     * Postcondition: Every word in the file has an occurrence recorded in the tree
+     */
+    public static void processMappedFile(File file, BSTree<Word> tree) throws IOException {
+        processMappedFile(file, tree, fileTable(tree));
+    }
+
+    private static void processMappedFile(File file, BSTree<Word> tree, FileTable files) throws IOException {
+        if (!canMap()) {
+            processFile(file, tree, files);
+            return;
+        }
+        try {
+            processMapped(file, 0, file.length(), tree, files);
+        } catch (IOException e) {
+            throw readError(file, e);
+        }
+    }
+
+    /**
+     * an IOException whose message starts with the name of the file that could not be read
+     */
+    private static IOException readError(File file, IOException e) {
+        return new IOException(file.getName() + ": " + e.getMessage(), e);
+    }
+
+    /**
+     * Gets the file table shared by the words of a tree, or a new one for an empty tree.
+     * @param tree The tree of words
+     * @return the table new words of the tree should number their files in
+     * Precondition: tree is not null
+     * Postcondition: The table is returned
+     */
+    public static FileTable fileTable(BSTree<Word> tree) {
+        return tree.isEmpty() ? new FileTable() : tree.getRoot().getElement().getFileTable();
+    }
+
+    private static boolean canMap() {
+        return MappedWordTokenizer.supports(Charset.defaultCharset(), Locale.getDefault());
+    }
+
+    /**
+     * Indexes every word in a byte range of a file, numbering its lines from 1.
+     * @return the number of lines read
+     */
+    private static int processMapped(File file, long start, long end, BSTree<Word> tree, FileTable files)
+            throws IOException {
+        int fileId = files.idOf(file.getPath());
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            MappedWordTokenizer tokens = new MappedWordTokenizer(channel, start, Math.min(end, channel.size()),
+                    Charset.defaultCharset());
+            while (tokens.next()) {
+                tree.computeIfAbsent(tokens, Word::compareText, text -> new Word(text.toString(), files))
+                        .addOccurrence(fileId, tokens.lineNumber());
+            }
+            return tokens.lineCount();
+        }
+    }
+
+    /**
+     * Indexes every word read from a reader, numbering its lines from 1. The tokenizer
+     * is searched for directly, so a String is only made for words not yet in the tree,
+     * and the path is looked up in the file table once.
+     * @return the number of lines read
+     */
+    private static int processText(Reader reader, String path, BSTree<Word> tree, FileTable files)
+            throws IOException {
+        int fileId = files.idOf(path);
+        WordTokenizer tokens = new WordTokenizer(reader);
+        while (tokens.next()) {
+            tree.computeIfAbsent(tokens, Word::compareText, text -> new Word(text.toString(), files))
+                    .addOccurrence(fileId, tokens.lineNumber());
+        }
+        return tokens.lineCount();
+    }
+
+    /**
+     * Indexes several files into a tree, up to jobs files at a time. Each file is indexed
+     * into a tree of its own on a worker thread, then the trees are combined pairwise in
+     * file order with BSTree.union and Word::merge, so every word lists its files and lines
+     * in the same order as when the files are processed one after another.
+     * @param files The files to read, in order
+     * @param tree The tree the words are added to
+     * @param jobs The number of files indexed at the same time
+     * @return the tree holding the words of tree and of every file; tree itself when jobs is 1
+     * @throws IOException if a file or a chunk of one cannot be read, naming the file; no
+     *                     further file is indexed and the words already read are dropped
+     *                     or, when jobs is 1, left in tree
+     * Precondition: files and tree are not null, jobs is positive
+     * Postcondition: Every word in the files has an occurrence recorded in the returned tree,
+     *                the Words of tree may have been given new occurrences
+     */
+    public static BSTree<Word> processFiles(List<File> files, BSTree<Word> tree, int jobs) throws IOException {
+        return processFiles(files, tree, jobs, 0);
+    }
 
-            while ((line = reader.readLine()) != null) {
-                String[] words = line.toLowerCase().split("[^a-zA-Z]+");
-                for (String wordText : words) {
-                    if (wordText.isEmpty()) continue;
+    /**
+     * Indexes several files into a tree like processFiles(files, tree, jobs), and also splits
+     * every file larger than chunkSize bytes into chunks that end just after a '\n', so the
+     * parts of one big file are indexed at the same time. Each chunk numbers its lines from 1;
+     * once the line counts of the chunks before it are known its lines are shifted by their
+     * sum, so the occurrences come out exactly as in a sequential run.
+     * @param files The files to read, in order
+     * @param tree The tree the words are added to
+     * @param jobs The number of files or chunks indexed at the same time
+     * @param chunkSize The size in bytes above which a file is split, 0 to never split
+     * @return the tree holding the words of tree and of every file; tree itself when jobs is 1
+     * @throws IOException if a file or a chunk of one cannot be read, naming the file; no
+     *                     further file is indexed and the words already read are dropped
+     *                     or, when jobs is 1, left in tree
+     * Precondition: files and tree are not null, jobs is positive, chunkSize is not negative
+     * Postcondition: Every word in the files has an occurrence recorded in the returned tree,
+     *                the Words of tree may have been given new occurrences
+     */
+    public static BSTree<Word> processFiles(List<File> files, BSTree<Word> tree, int jobs, long chunkSize)
+            throws IOException {
+        return processFiles(files, tree, jobs, chunkSize, false);
+    }
 
-                    Word word = new Word(wordText);
-                    Word existing = tree.search(word) != null ? tree.search(word).getElement() : null;
+    /**
+     * Indexes several files into a tree like processFiles(files, tree, jobs, chunkSize), reading
+     * them through memory mappings like processMappedFile when mapped is true.
+     * @param files The files to read, in order
+     * @param tree The tree the words are added to
+     * @param jobs The number of files or chunks indexed at the same time
+     * @param chunkSize The size in bytes above which a file is split, 0 to never split
+     * @param mapped true to read the files through memory mappings
+     * @return the tree holding the words of tree and of every file; tree itself when jobs is 1
+     * @throws IOException if a file or a chunk of one cannot be read, naming the file; no
+     *                     further file is indexed and the words already read are dropped
+     *                     or, when jobs is 1, left in tree
+     * Precondition: files and tree are not null, jobs is positive, chunkSize is not negative
+     * Postcondition: Every word in the files has an occurrence recorded in the returned tree,
+     *                the Words of tree may have been given new occurrences
+     */
+    public static BSTree<Word> processFiles(List<File> files, BSTree<Word> tree, int jobs, long chunkSize,
+            boolean mapped) throws IOException {
+        boolean map = mapped && canMap();
+        FileTable table = fileTable(tree);
+        List<Chunk> chunks = new ArrayList<>();
+        for (File file : files) {
+            try {
+                splitFile(file, chunkSize, chunks);
+            } catch (IOException e) {
+                throw readError(file, e);
+            }
+        }
+        if (jobs <= 1 || chunks.size() <= 1) {
+            for (File file : files) {
+                if (map) {
+                    processMappedFile(file, tree, table);
+                } else {
+                    processFile(file, tree, table);
+                }
+            }
+            return tree;
+        }
 
-                    if (existing == null) {
-                        word.addOccurrence(file.getPath(), lineNumber);
-                        tree.add(word);
-                    } else {
-                        existing.addOccurrence(file.getPath(), lineNumber);
-                    }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(jobs, chunks.size()));
+        try {
+            List<Future<Chunk>> indexing = new ArrayList<>();
+            for (Chunk chunk : chunks) {
+                indexing.add(pool.submit(() -> chunk.index(tree.isBalanced(), map, table)));
+            }
+
+            // number the lines of later chunks of a file after the ones before them
+            List<Future<BSTree<Word>>> pending = new ArrayList<>();
+            int linesBefore = 0;
+            for (Future<Chunk> future : indexing) {
+                Chunk chunk = future.get();
+                int offset = chunk.start == 0 ? 0 : linesBefore;
+                linesBefore = offset + chunk.lines;
+                pending.add(pool.submit(() -> chunk.shiftLines(offset)));
+            }
+
+            // combine neighbours in rounds, so each occurrence is copied O(log chunks) times;
+            // the pool runs tasks in submission order, so a task only waits on running tasks
+            while (pending.size() > 1) {
+                List<Future<BSTree<Word>>> next = new ArrayList<>();
+                for (int i = 0; i + 1 < pending.size(); i += 2) {
+                    Future<BSTree<Word>> first = pending.get(i);
+                    Future<BSTree<Word>> second = pending.get(i + 1);
+                    next.add(pool.submit(() -> BSTree.union(first.get(), second.get(), Word::merge)));
                 }
-                lineNumber++;
+                if (pending.size() % 2 == 1) {
+                    next.add(pending.get(pending.size() - 1));
+                }
+                pending = next;
+            }
+            BSTree<Word> indexed = pending.get(0).get();
+            return tree.isEmpty() ? indexed : BSTree.union(tree, indexed, Word::merge);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while indexing files", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                // the lines of a chunk that was not read are unknown, so the chunks after
+                // it cannot be numbered and the whole call fails
+                throw (IOException) e.getCause();
             }
+            throw new IllegalStateException("Error indexing files: " + e.getCause(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 
-        } catch (IOException e) {
-            System.err.println("Error reading file " + file.getName() + ": " + e.getMessage());
+    /**
+     * Adds the chunks of a file to a list: the whole file when it is not larger than
+     * chunkSize, otherwise pieces of about chunkSize bytes that each end after a '\n'.
+     */
+    private static void splitFile(File file, long chunkSize, List<Chunk> chunks) throws IOException {
+        long length = file.length();
+        if (chunkSize <= 0 || length <= chunkSize) {
+            chunks.add(new Chunk(file, 0, -1));
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            long start = 0;
+            while (start < length) {
+                long end = start + chunkSize >= length ? length : lineStartAfter(channel, start + chunkSize - 1, buffer);
+                chunks.add(new Chunk(file, start, end));
+                start = end;
+            }
         }
     }
 
-    private static void printOutput(BSTree<Word> tree, boolean sortAlpha, boolean sortFreq, boolean sortFiles, String outputFile) {
-        List<Word> words = new ArrayList<>();
-        utilities.Iterator<Word> iterator = tree.inorderIterator();
+    /**
+     * Finds where the line holding a byte position ends: just past the first '\n' at
+     * or after the position, or the end of the file if there is none.
+     */
+    private static long lineStartAfter(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (true) {
+            buffer.clear();
+            if (channel.read(buffer, position) < 0) {
+                return position;
+            }
+            for (int i = 0; i < buffer.position(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += buffer.position();
+        }
+    }
+
+    /**
+     * A file or a line-aligned byte range of one, indexed into a tree of its own.
+     */
+    private static final class Chunk {
+        final File file;
+        final long start;
+        final long end;
+        BSTree<Word> tree;
+        int lines;
 
-        while (iterator.hasNext()) {
-            words.add(iterator.next());
+        /**
+         * @param end end of the range, or -1 for the whole file
+         */
+        Chunk(File file, long start, long end) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
         }
 
-        if (sortFreq) {
-            words.sort((a, b) -> Integer.compare(b.getTotalFrequency(), a.getTotalFrequency()));
-        } else if (sortFiles) {
-            words.sort((a, b) -> Integer.compare(b.getFiles().size(), a.getFiles().size()));
-        } else {
-            Collections.sort(words); // alphabetical
+        Chunk index(boolean balanced, boolean mapped, FileTable files) throws IOException {
+            tree = new BSTree<>(balanced);
+            if (mapped) {
+                try {
+                    lines = processMapped(file, start, end < 0 ? Long.MAX_VALUE : end, tree, files);
+                } catch (IOException e) {
+                    throw readError(file, e);
+                }
+                return this;
+            }
+            if (end < 0) {
+                processFile(file, tree, files);
+                return this;
+            }
+            // a chunk is cut after a line feed, which never falls inside a multi-byte
+            // character in the ASCII compatible charsets FileReader uses by default; the
+            // range is streamed, since a file with few line feeds can make it any length
+            try (FileChannel channel = FileChannel.open(file.toPath())) {
+                Reader reader = new InputStreamReader(new RangeInputStream(channel, start, end),
+                        Charset.defaultCharset());
+                lines = processText(reader, file.getPath(), tree, files);
+            } catch (IOException e) {
+                throw readError(file, e);
+            }
+            return this;
+        }
+
+        BSTree<Word> shiftLines(int offset) {
+            if (offset != 0) {
+                String path = file.getPath();
+                for (Word word : tree) {
+                    word.offsetLines(path, offset);
+                }
+            }
+            return tree;
         }
+    }
+
+    /**
+     * Reads a byte range of a file channel, without moving the channel's position.
+     */
+    private static final class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private final long end;
+        private long position;
 
-        PrintStream out = System.out;
+        RangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(bytes, offset, (int) Math.min(length, end - position)), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Picks the first words of a tree in the given order without sorting all of them.
+     * The words are streamed in alphabetical order through a heap that holds at most
+     * count of them, so this takes O(n log count) time and O(count) extra memory.
+     * @param tree The words to rank
+     * @param count The number of words wanted
+     * @param order The order of the report, such as BY_FREQUENCY or BY_FILES
+     * @return at most count words, in order; empty if count is not positive
+     * Precondition: tree and order are not null, and order ranks no two words equal
+     * Postcondition: The list holds the words a full sort would put first
+     */
+    public static List<Word> topWords(BSTree<Word> tree, int count, Comparator<? super Word> order) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        // the head of the heap is the last of the words kept so far
+        PriorityQueue<Word> heap = new PriorityQueue<>(Math.min(count, Math.max(tree.size(), 1)) + 1,
+                (a, b) -> order.compare(b, a));
+        Iterator<Word> it = tree.inorderIterator();
+        while (it.hasNext()) {
+            Word word = it.next();
+            if (heap.size() < count) {
+                heap.add(word);
+            } else if (order.compare(word, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(word);
+            }
+        }
+        List<Word> words = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            words.add(heap.poll());
+        }
+        Collections.reverse(words);
+        return words;
+    }
+
+    private static void printOutput(BSTree<Word> tree, boolean sortAlpha, boolean sortFreq, boolean sortFiles,
+            int top, String outputFile) {
+        if (outputFile == null) {
+            try {
+                writeReport(tree, sortAlpha, sortFreq, sortFiles, top, System.out);
+            } catch (IOException e) {
+                System.err.println("Error writing output: " + e.getMessage());
+            }
+            return;
+        }
+        OutputStream file;
+        try {
+            file = new FileOutputStream(outputFile);
+        } catch (FileNotFoundException e) {
+            System.err.println("Error opening output file: " + e.getMessage());
+            return;
+        }
+        try (OutputStream out = file) {
+            writeReport(tree, sortAlpha, sortFreq, sortFiles, top, out);
+        } catch (IOException e) {
+            System.err.println("Error writing output file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * answers queries from the saved repository through a RepositoryIndex, which reads
+     * only the words found and lays the journal over them, so the repository is not
+     * rewritten; the repository of an earlier release is imported first, once
+     */
+    private static void printQueries(List<String> queries, String outputFile, boolean append) {
+        Path path = new File(REPO_FILENAME).toPath();
+        if (!Files.exists(path) && !new File(LEGACY_REPO_FILENAME).exists()) {
+            System.out.println("No repository to search.");
+            return;
+        }
+        RepositoryJournal journal = new RepositoryJournal(path);
+        if (!Files.exists(path)) {
+            Map<String, FileFingerprint> fingerprints = new HashMap<>();
+            saveRepository(loadRepository(journal, fingerprints), fingerprints, new BSTree<>(),
+                    Collections.emptySet(), Collections.emptyMap(), journal);
+        }
+        OutputStream file = null;
         if (outputFile != null) {
             try {
-                out = new PrintStream(new FileOutputStream(outputFile));
+                file = new FileOutputStream(outputFile, append);
             } catch (FileNotFoundException e) {
                 System.err.println("Error opening output file: " + e.getMessage());
                 return;
             }
         }
+        try (RepositoryIndex index = RepositoryIndex.open(path, journal)) {
+            writeQueries(index, queries, file != null ? file : System.out);
+        } catch (IOException e) {
+            System.err.println("Error searching repository: " + e.getMessage());
+        } finally {
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    System.err.println("Error writing output file: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the words matching each query, in the format of the report. A query ending
+     * with '*' matches every word that starts with the rest of it; other queries match
+     * one word. Queries are lowercased the way words are when they are indexed.
+     * @param index The repository to search
+     * @param queries The words or prefixes to look up
+     * @param out The stream the results are written to, which is flushed but not closed
+     * @throws IOException if the repository is damaged or the results cannot be written
+     * Precondition: index, queries and out are not null
+     * Postcondition: The words matching each query have been written to out
+     */
+    public static void writeQueries(RepositoryIndex index, List<String> queries, OutputStream out) throws IOException {
+        ReportWriter report = new ReportWriter(out);
+        for (String query : queries) {
+            String text = query.toLowerCase();
+            List<Word> words;
+            if (text.endsWith("*")) {
+                words = index.findPrefix(text.substring(0, text.length() - 1));
+            } else {
+                Word word = index.find(text);
+                words = word == null ? Collections.<Word>emptyList() : Collections.singletonList(word);
+            }
+            if (words.isEmpty()) {
+                report.writeLine(query + ": not found");
+            }
+            for (Word word : words) {
+                report.writeWord(word);
+            }
+        }
+        report.flush();
+    }
+
+    /**
+     * Writes the report of a tree to a stream. The alphabetical report is written while
+     * the tree is walked in order, so its first words are written before the rest are
+     * visited and no list of the words is built; the other orders sort the words first.
+     * @param tree The words to report
+     * @param sortAlpha true for the alphabetical report (-po)
+     * @param sortFreq true for the report by total frequency (-pf)
+     * @param sortFiles true for the report by number of files (-pl)
+     * @param top The number of words to write, or 0 for every word
+     * @param out The stream the report is written to, which is flushed but not closed
+     * @throws IOException if the report cannot be written
+     * Precondition: tree and out are not null
+     * Postcondition: The report has been written to out
+     */
+    public static void writeReport(BSTree<Word> tree, boolean sortAlpha, boolean sortFreq, boolean sortFiles,
+            int top, OutputStream out) throws IOException {
+        ReportWriter report = new ReportWriter(out);
 
         //message print to user
         if (sortAlpha) {
-            out.println("Words in alphabetical order:");
+            report.writeLine("Words in alphabetical order:");
         } else if (sortFreq) {
-            out.println("Words sorted by total frequency:");
+            report.writeLine("Words sorted by total frequency:");
         } else if (sortFiles) {
-            out.println("Words sorted by number of files:");
+            report.writeLine("Words sorted by number of files:");
         }
 
-        //print words and file with line info
-        for (Word word : words) {
-            out.println(word.getWord());
-            for (Map.Entry<String, List<Integer>> entry : word.getFileOccurrences().entrySet()) {
-                out.println("  " + entry.getKey() + " -> lines: " + entry.getValue());
+        //print words and file with line info; the sort keys are counts the words keep,
+        //so comparing them costs nothing per file
+        if (sortFreq || sortFiles) {
+            Comparator<Word> order = sortFreq ? BY_FREQUENCY : BY_FILES;
+            List<Word> words = top > 0 ? topWords(tree, top, order)
+                    : tree.parallelStream().sorted(order).collect(Collectors.toList());
+            for (Word word : words) {
+                report.writeWord(word);
+            }
+        } else {
+            Iterator<Word> words = tree.inorderIterator(); // already alphabetical
+            for (int count = 0; words.hasNext() && (top <= 0 || count < top); count++) {
+                report.writeWord(words.next());
             }
         }
-
-        if (outputFile != null) {
-            out.close();
-        }
+        report.flush();
     }
 }
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import domain.Word;
+import implementations.ConcurrentBSTree;
+
+/**
+ * ConcurrentBSTreeBenchmark
+ *
+ * Measures upsert throughput of ConcurrentBSTree against the number of threads.
+ * Every thread looks up or adds words drawn from a shared random vocabulary, the
+ * way parallel ingestion would, and records an occurrence on the word it gets.
+ *
+ * Usage:
+ *   java benchmarks.ConcurrentBSTreeBenchmark [opsPerThread] [vocabulary]
+ */
+public class ConcurrentBSTreeBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int opsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int vocabularySize = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        String[] vocabulary = vocabulary(vocabularySize);
+        int maxThreads = Math.max(8, Runtime.getRuntime().availableProcessors());
+        System.out.printf("%d cores, %,d upserts per thread over %,d words%n",
+                Runtime.getRuntime().availableProcessors(), opsPerThread, vocabularySize);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                double opsPerSecond = run(threads, opsPerThread, vocabulary);
+                System.out.printf("round %d, %2d threads: %,12.0f upserts/s%n", round, threads, opsPerSecond);
+            }
+        }
+    }
+
+    static double run(int threads, int opsPerThread, String[] vocabulary) throws Exception {
+        ConcurrentBSTree<Word> tree = new ConcurrentBSTree<>();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long seed = t;
+                tasks.add(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < opsPerThread; i++) {
+                        Word word = tree.computeIfAbsent(vocabulary[random.nextInt(vocabulary.length)],
+                                Word::compareText, Word::new);
+                        synchronized (word) {
+                            word.addOccurrence("bench", i);
+                        }
+                    }
+                    return null;
+                });
+            }
+            long start = System.nanoTime();
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            return (double) threads * opsPerThread * 1e9 / elapsed;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static String[] vocabulary(int size) {
+        Random random = new Random(42);
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            char[] text = new char[3 + random.nextInt(8)];
+            for (int j = 0; j < text.length; j++) {
+                text[j] = (char) ('a' + random.nextInt(26));
+            }
+            words[i] = new String(text);
+        }
+        return words;
+    }
+}
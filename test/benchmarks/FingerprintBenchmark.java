@@ -0,0 +1,88 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FingerprintBenchmark
+ *
+ * Runs WordTracker over a corpus of copies of res/test3.txt, each a file of its own,
+ * the way a nightly job reprocesses a mostly unchanged corpus: once to build the
+ * repository, then again with no file changed, with a few files changed, and with
+ * every file touched but unchanged (with -h, which checks their content). Each run is
+ * a separate process in a temporary directory, so it pays for loading and saving the
+ * repository as a real run does. The first run is what every rerun cost before the
+ * repository kept fingerprints.
+ *
+ * Usage:
+ *   java benchmarks.FingerprintBenchmark [files] [changed]
+ */
+public class FingerprintBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int changed = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        File directory = Files.createTempDirectory("fingerprint").toFile();
+        List<String> files = new ArrayList<>();
+        try {
+            byte[] source = Files.readAllBytes(new File("res/test3.txt").toPath());
+            for (int i = 0; i < count; i++) {
+                String name = "file" + i + ".txt";
+                Files.write(new File(directory, name).toPath(), source);
+                files.add(name);
+            }
+            System.out.printf("%d files of %,d bytes%n", count, source.length);
+
+            System.out.printf("  first run, every file indexed     %,8d ms%n", run(directory, files, "-h"));
+            System.out.printf("  rerun, no file changed            %,8d ms%n", run(directory, files, "-h"));
+            for (int i = 0; i < changed; i++) {
+                Files.write(new File(directory, files.get(i)).toPath(), "changed\n".getBytes("US-ASCII"),
+                        StandardOpenOption.APPEND);
+            }
+            System.out.printf("  rerun, %3d files changed          %,8d ms%n", changed, run(directory, files, "-h"));
+            long now = System.currentTimeMillis();
+            for (String name : files) {
+                new File(directory, name).setLastModified(now + 2000);
+            }
+            System.out.printf("  rerun, every file touched, -h     %,8d ms%n", run(directory, files, "-h"));
+        } finally {
+            for (File file : directory.listFiles()) {
+                // the corpus, the repository and its journal, the report and the output
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    /**
+     * runs WordTracker in the directory and returns its wall time
+     */
+    static long run(File directory, List<String> files, String option) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        command.add("-cp");
+        StringBuilder classPath = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classPath.append(classPath.length() > 0 ? File.pathSeparator : "").append(new File(entry).getAbsolutePath());
+        }
+        command.add(classPath.toString());
+        command.add("utilities.WordTracker");
+        command.addAll(files);
+        command.add(option);
+        command.add("-pf");
+        command.add("-freport.txt");
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).directory(directory)
+                .redirectOutput(new File(directory, "output.txt"))
+                .redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        if (process.waitFor() != 0) {
+            throw new IllegalStateException("WordTracker failed");
+        }
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
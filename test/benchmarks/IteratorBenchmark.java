@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+
+import implementations.BSTree;
+import utilities.Iterator;
+
+/**
+ * IteratorBenchmark
+ *
+ * Walks a balanced tree with each of the BSTree iterators and reports the time
+ * and the bytes allocated per element, measured with the HotSpot per-thread
+ * allocation counter.
+ *
+ * Usage:
+ *   java benchmarks.IteratorBenchmark [elements]
+ */
+public class IteratorBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Integer[] sorted = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = i;
+        }
+        BSTree<Integer> tree = BSTree.fromSorted(sorted, true);
+        System.out.printf("tree: %,d elements, height %d%n", n, tree.getHeight());
+
+        for (int round = 0; round < ROUNDS; round++) {
+            report("inorder", tree.size(), () -> tree.inorderIterator());
+            report("preorder", tree.size(), () -> tree.preorderIterator());
+            report("postorder", tree.size(), () -> tree.postorderIterator());
+        }
+    }
+
+    interface IteratorFactory {
+        Iterator<Integer> create();
+    }
+
+    static void report(String name, int n, IteratorFactory factory) {
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        Iterator<Integer> it = factory.create();
+        long sum = 0;
+        while (it.hasNext()) {
+            sum += it.next();
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = allocatedBytes() - bytesBefore;
+        System.out.printf("%-10s %6.2f ns/element  %8.4f bytes/element  (%d bytes total, checksum %d)%n",
+                name, (double) elapsed / n, (double) bytes / n, bytes, sum);
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or -1 if the JVM cannot tell.
+     */
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
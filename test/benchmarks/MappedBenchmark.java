@@ -0,0 +1,133 @@
+package benchmarks;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+import domain.Word;
+import implementations.BSTree;
+import utilities.MappedWordTokenizer;
+import utilities.WordTokenizer;
+import utilities.WordTracker;
+
+/**
+ * MappedBenchmark
+ *
+ * Generates corpora of the given sizes by repeating res/test3.txt, then compares
+ * reading them through a FileReader with WordTokenizer against memory-mapping them
+ * with MappedWordTokenizer. Corpora above 2 GB exercise the windowed remapping.
+ * Tokenizing is timed on every corpus; indexing with processFile and
+ * processMappedFile is timed on corpora up to the index limit, since the index of
+ * a large corpus does not fit in a default heap.
+ *
+ * Usage:
+ *   java benchmarks.MappedBenchmark [sizeMB ...] [-index<MB>]
+ */
+public class MappedBenchmark {
+
+    private static final String SOURCE = "res/test3.txt";
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        long indexLimit = 256L << 20;
+        java.util.List<Long> sizes = new java.util.ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("-index")) {
+                indexLimit = Long.parseLong(arg.substring(6)) << 20;
+            } else {
+                sizes.add(Long.parseLong(arg) << 20);
+            }
+        }
+        if (sizes.isEmpty()) {
+            sizes.add(1024L << 20);
+            sizes.add(4096L << 20);
+            sizes.add(10240L << 20);
+        }
+        System.out.println("charset " + Charset.defaultCharset() + ", window "
+                + (MappedWordTokenizer.WINDOW_SIZE >> 20) + " MB");
+
+        for (long size : sizes) {
+            File corpus = corpus(size);
+            try {
+                System.out.printf("corpus: %,d MB%n", corpus.length() >> 20);
+                for (int round = 0; round < ROUNDS; round++) {
+                    report("tokenize reader", corpus, () -> readerTokens(corpus));
+                    report("tokenize mapped", corpus, () -> mappedTokens(corpus));
+                    if (size <= indexLimit) {
+                        report("index reader", corpus, () -> index(corpus, false));
+                        report("index mapped", corpus, () -> index(corpus, true));
+                    }
+                }
+            } finally {
+                corpus.delete();
+            }
+        }
+    }
+
+    /**
+     * Writes res/test3.txt repeatedly into a temporary file of about the given size.
+     */
+    static File corpus(long size) throws IOException {
+        byte[] source = Files.readAllBytes(new File(SOURCE).toPath());
+        byte[] block = new byte[(1 << 20) / source.length * source.length];
+        for (int i = 0; i < block.length; i += source.length) {
+            System.arraycopy(source, 0, block, i, source.length);
+        }
+        File corpus = File.createTempFile("mapped", ".txt");
+        try (OutputStream out = new FileOutputStream(corpus)) {
+            for (long written = 0; written < size; written += block.length) {
+                out.write(block);
+            }
+        }
+        return corpus;
+    }
+
+    interface Count {
+        long run() throws IOException;
+    }
+
+    static void report(String name, File corpus, Count task) throws IOException {
+        long start = System.nanoTime();
+        long tokens = task.run();
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-16s %,8.1f MB/s  %,12.0f tokens/s%n",
+                name, corpus.length() / 1048576.0 * 1e9 / elapsed, tokens * 1e9 / elapsed);
+    }
+
+    static long readerTokens(File file) throws IOException {
+        long tokens = 0;
+        try (Reader reader = new FileReader(file)) {
+            WordTokenizer tokenizer = new WordTokenizer(reader);
+            while (tokenizer.next()) {
+                tokens++;
+            }
+        }
+        return tokens;
+    }
+
+    static long mappedTokens(File file) throws IOException {
+        long tokens = 0;
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            MappedWordTokenizer tokenizer = new MappedWordTokenizer(channel, 0, channel.size(), Charset.defaultCharset());
+            while (tokenizer.next()) {
+                tokens++;
+            }
+        }
+        return tokens;
+    }
+
+    static long index(File file, boolean mapped) throws IOException {
+        BSTree<Word> tree = new BSTree<>();
+        if (mapped) {
+            WordTracker.processMappedFile(file, tree);
+        } else {
+            WordTracker.processFile(file, tree);
+        }
+        long tokens = 0;
+        for (Word word : tree) {
+            tokens += word.getTotalFrequency();
+        }
+        return tokens;
+    }
+}
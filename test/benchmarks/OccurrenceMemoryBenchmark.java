@@ -0,0 +1,91 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import domain.LineNumbers;
+import domain.Word;
+import implementations.BSTree;
+import utilities.WordTracker;
+
+/**
+ * OccurrenceMemoryBenchmark
+ *
+ * Indexes copies of res/test3.txt, each as a file of its own, and reports the heap
+ * taken by the occurrences of every word: as the HashMap from path to boxed
+ * ArrayList that Word used to hold, and as file ids with growable int[] or sealed
+ * delta-varint LineNumbers.
+ * Heap use is measured after full collections, so run it with a heap big enough
+ * for the index and the boxed copy together.
+ *
+ * Usage:
+ *   java benchmarks.OccurrenceMemoryBenchmark [copies]
+ */
+public class OccurrenceMemoryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int copies = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        List<File> corpus = new ArrayList<>();
+        for (int i = 0; i < copies; i++) {
+            File copy = File.createTempFile("occurrences", ".txt");
+            Files.copy(new File("res/test3.txt").toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            corpus.add(copy);
+        }
+        try {
+            long empty = usedHeap();
+            BSTree<Word> tree = WordTracker.processFiles(corpus, new BSTree<>(), 1);
+            long occurrences = 0;
+            for (Word word : tree) {
+                occurrences += word.getTotalFrequency();
+            }
+            System.out.printf("corpus: %d files, %,d words, %,d occurrences%n", copies, tree.size(), occurrences);
+
+            long open = usedHeap() - empty;
+            for (Word word : tree) {
+                word.seal();
+            }
+            long sealed = usedHeap() - empty;
+
+            // the old representation, filled the way addOccurrence used to fill it
+            List<Map<String, List<Integer>>> boxed = new ArrayList<>(tree.size());
+            for (Word word : tree) {
+                Map<String, List<Integer>> files = new HashMap<>();
+                for (Map.Entry<String, LineNumbers> entry : word.getFileLines().entrySet()) {
+                    List<Integer> lines = new ArrayList<>();
+                    entry.getValue().forEach(lines::add);
+                    files.put(entry.getKey(), lines);
+                }
+                boxed.add(files);
+            }
+            long legacy = usedHeap() - empty - sealed;
+
+            report("boxed lists", legacy, occurrences);
+            report("int[] (open)", open, occurrences);
+            report("varint (sealed)", sealed, occurrences);
+            System.out.println("(int[] and sealed include the tree and the Words; boxed is the lists alone, "
+                    + boxed.size() + " maps)");
+        } finally {
+            for (File copy : corpus) {
+                copy.delete();
+            }
+        }
+    }
+
+    static void report(String name, long bytes, long occurrences) {
+        System.out.printf("%-16s %,14d bytes  %7.2f bytes/occurrence%n", name, bytes, (double) bytes / occurrences);
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
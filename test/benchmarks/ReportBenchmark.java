@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import domain.LineNumbers;
+import domain.Word;
+import implementations.BSTree;
+import utilities.WordTracker;
+
+/**
+ * ReportBenchmark
+ *
+ * Times the -pf and -pl report sorts on a generated repository of words spread
+ * over several files. Compares sort keys recomputed on every comparison, the way
+ * getTotalFrequency summed the files and getFiles listed them, with the counts
+ * Word keeps as occurrences are added, and the full sort with picking the first
+ * words for -top through WordTracker.topWords.
+ *
+ * Usage:
+ *   java benchmarks.ReportBenchmark [words] [files] [top]
+ */
+public class ReportBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int fileCount = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int top = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        Word[] words = new Word[n];
+        java.util.Random random = new java.util.Random(18);
+        for (int i = 0; i < n; i++) {
+            words[i] = new Word(String.format("w%08d", i));
+            int occurrences = 1 + random.nextInt(40);
+            for (int j = 0; j < occurrences; j++) {
+                words[i].addOccurrence("file" + random.nextInt(fileCount), j + 1);
+            }
+            words[i].seal();
+        }
+        BSTree<Word> tree = BSTree.fromSorted(words, true);
+        System.out.printf("repository: %,d words, %d files, %d cores%n",
+                n, fileCount, Runtime.getRuntime().availableProcessors());
+
+        Comparator<Word> summedFrequency = (a, b) -> Integer.compare(sum(b), sum(a));
+        Comparator<Word> listedFiles = (a, b) -> Integer.compare(b.getFiles().size(), a.getFiles().size());
+        Comparator<Word> keptFrequency = (a, b) -> Integer.compare(b.getTotalFrequency(), a.getTotalFrequency());
+        Comparator<Word> keptFiles = (a, b) -> Integer.compare(b.getFileCount(), a.getFileCount());
+
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.printf("round %d: -pf summed %,6d ms  kept %,6d ms   -pl listed %,6d ms  kept %,6d ms%n", round,
+                    time(tree, summedFrequency), time(tree, keptFrequency),
+                    time(tree, listedFiles), time(tree, keptFiles));
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            List<Word> sorted = tree.parallelStream().sorted(WordTracker.BY_FREQUENCY).collect(Collectors.toList());
+            long full = (System.nanoTime() - start) / 1_000_000;
+            start = System.nanoTime();
+            List<Word> first = WordTracker.topWords(tree, top, WordTracker.BY_FREQUENCY);
+            long picked = (System.nanoTime() - start) / 1_000_000;
+            if (!first.equals(sorted.subList(0, Math.min(top, sorted.size())))) {
+                throw new IllegalStateException("Top words differ from the sorted report");
+            }
+            System.out.printf("round %d: -pf full sort %,6d ms   -top%d %,6d ms%n", round, full, top, picked);
+        }
+    }
+
+    /**
+     * the total frequency as it used to be computed, by adding up every file's lines
+     */
+    static int sum(Word word) {
+        int total = 0;
+        for (LineNumbers lines : word.getFileLines().values()) {
+            total += lines.size();
+        }
+        return total;
+    }
+
+    /**
+     * sorts the tree the way printOutput does and returns the time taken in ms
+     */
+    static long time(BSTree<Word> tree, Comparator<Word> order) {
+        long start = System.nanoTime();
+        List<Word> sorted = tree.parallelStream().sorted(order).collect(Collectors.toList());
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        if (sorted.size() != tree.size()) {
+            throw new IllegalStateException("Lost words while sorting");
+        }
+        return elapsed;
+    }
+}
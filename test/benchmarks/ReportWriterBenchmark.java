@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import domain.LineNumbers;
+import domain.Word;
+import implementations.BSTree;
+import utilities.WordTracker;
+
+/**
+ * ReportWriterBenchmark
+ *
+ * Writes the alphabetical report of a generated repository to a temporary file, the
+ * way printOutput used to (copying the words into a list, sorting it and printing
+ * each line with println into an unbuffered PrintStream) and through
+ * WordTracker.writeReport, which streams the tree into a ReportWriter. Reports the
+ * time until the first byte reaches the file and the output throughput.
+ *
+ * Usage:
+ *   java benchmarks.ReportWriterBenchmark [words] [files per word]
+ */
+public class ReportWriterBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int filesPerWord = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Word[] words = new Word[n];
+        for (int i = 0; i < n; i++) {
+            words[i] = new Word(String.format("w%08d", i));
+            for (int j = 0; j < filesPerWord; j++) {
+                for (int line = 1; line <= 1 + (i + j) % 5; line++) {
+                    words[i].addOccurrence("file" + j + ".txt", line * 10 + j);
+                }
+            }
+            words[i].seal();
+        }
+        BSTree<Word> tree = BSTree.fromSorted(words, true);
+        System.out.printf("report: %,d words, %,d lines%n", n, (long) n * (filesPerWord + 1) + 1);
+
+        File report = File.createTempFile("report", ".txt");
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                measure("println", report, out -> legacyReport(tree, out));
+                measure("streamed", report, out -> WordTracker.writeReport(tree, true, false, false, 0, out));
+            }
+        } finally {
+            report.delete();
+        }
+    }
+
+    interface Report {
+        void write(OutputStream out) throws IOException;
+    }
+
+    static void measure(String name, File file, Report report) throws IOException {
+        file.delete();
+        long[] firstByte = { -1 };
+        long start;
+        try (OutputStream out = new FileOutputStream(file) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (firstByte[0] < 0) {
+                    firstByte[0] = System.nanoTime();
+                }
+                super.write(b, off, len);
+            }
+        }) {
+            start = System.nanoTime();
+            report.write(out);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-9s first byte %,8.1f ms   total %,8.1f ms   %,7.1f MB/s%n", name,
+                (firstByte[0] - start) / 1e6, elapsed / 1e6, file.length() / 1048576.0 * 1e9 / elapsed);
+    }
+
+    /**
+     * the alphabetical report as printOutput used to write it
+     */
+    @SuppressWarnings("resource")
+    static void legacyReport(BSTree<Word> tree, OutputStream stream) {
+        List<Word> words = new ArrayList<>();
+        for (Word word : tree) {
+            words.add(word);
+        }
+        Collections.sort(words);
+        PrintStream out = new PrintStream(stream);
+        out.println("Words in alphabetical order:");
+        for (Word word : words) {
+            out.println(word.getWord());
+            for (Map.Entry<String, LineNumbers> entry : word.getFileLines().entrySet()) {
+                out.println("  " + entry.getKey() + " -> lines: " + entry.getValue());
+            }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,105 @@
+package benchmarks;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import domain.Word;
+import implementations.BSTree;
+import serialization.WordRepository;
+import utilities.WordTracker;
+
+/**
+ * RepositoryBenchmark
+ *
+ * Saves and loads two repositories, once with Java serialization the way
+ * saveRepository and loadRepository used to, and once with WordRepository, and
+ * reports the times and file sizes. The first repository indexes copies of
+ * res/test3.txt, each as a file of its own; the second holds a large generated
+ * vocabulary with a few occurrences per word.
+ *
+ * Usage:
+ *   java benchmarks.RepositoryBenchmark [copies] [words]
+ */
+public class RepositoryBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int copies = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+
+        List<File> corpus = new ArrayList<>();
+        for (int i = 0; i < copies; i++) {
+            File copy = File.createTempFile("repository", ".txt");
+            Files.copy(new File("res/test3.txt").toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            corpus.add(copy);
+        }
+        BSTree<Word> indexed;
+        try {
+            indexed = WordTracker.processFiles(corpus, new BSTree<>(), 1);
+        } finally {
+            for (File copy : corpus) {
+                copy.delete();
+            }
+        }
+        for (Word word : indexed) {
+            word.seal();
+        }
+
+        Word[] words = new Word[n];
+        java.util.Random random = new java.util.Random(21);
+        for (int i = 0; i < n; i++) {
+            words[i] = new Word(String.format("w%08d", i));
+            for (int j = 1 + random.nextInt(6); j > 0; j--) {
+                words[i].addOccurrence("file" + random.nextInt(50) + ".txt", 1 + random.nextInt(5000));
+            }
+            words[i].seal();
+        }
+        BSTree<Word> vocabulary = BSTree.fromSorted(words, false);
+
+        compare(String.format("%d files, %,d words", copies, indexed.size()), indexed);
+        compare(String.format("%,d words", n), vocabulary);
+    }
+
+    static void compare(String name, BSTree<Word> tree) throws Exception {
+        File serialized = File.createTempFile("repository", ".ser");
+        File binary = File.createTempFile("repository", ".wtr");
+        try {
+            System.out.println(name);
+            for (int round = 0; round < ROUNDS; round++) {
+                long serialSave = time(() -> {
+                    try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(serialized))) {
+                        out.writeObject(tree);
+                    }
+                });
+                long serialLoad = time(() -> {
+                    try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(serialized))) {
+                        in.readObject();
+                    }
+                });
+                long binarySave = time(() -> WordRepository.save(tree, binary.toPath()));
+                long binaryLoad = time(() -> WordRepository.load(binary.toPath()));
+                System.out.printf("  serialization  save %,7d ms  load %,7d ms  %,12d bytes%n",
+                        serialSave, serialLoad, serialized.length());
+                System.out.printf("  binary         save %,7d ms  load %,7d ms  %,12d bytes%n",
+                        binarySave, binaryLoad, binary.length());
+            }
+        } finally {
+            serialized.delete();
+            binary.delete();
+        }
+    }
+
+    interface Task {
+        void run() throws Exception;
+    }
+
+    static long time(Task task) throws Exception {
+        long start = System.nanoTime();
+        task.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,109 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import domain.Word;
+import implementations.BSTree;
+import serialization.RepositoryIndex;
+import serialization.WordRepository;
+
+/**
+ * RepositoryIndexBenchmark
+ *
+ * Saves generated repositories of several sizes and compares answering a lookup by
+ * loading the whole repository with answering it through RepositoryIndex. Reports the
+ * time to open the index, the latency of the first lookups in a freshly opened
+ * mapping (cold: the pages of the file have not been touched through it yet, though
+ * the operating system may still cache them) and the mean latency of random lookups
+ * once the index is in use (warm), as well as prefix scans.
+ *
+ * Usage:
+ *   java benchmarks.RepositoryIndexBenchmark [words ...]
+ */
+public class RepositoryIndexBenchmark {
+
+    private static final int COLD_LOOKUPS = 5;
+    private static final int WARM_LOOKUPS = 100_000;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length > 0 ? new int[args.length] : new int[] { 50_000, 500_000, 2_000_000 };
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        for (int n : sizes) {
+            File file = File.createTempFile("index", ".wtr");
+            try {
+                WordRepository.save(generate(n), file.toPath());
+                System.out.printf("%,d words, %,d bytes%n", n, file.length());
+                measure(file, n);
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    static BSTree<Word> generate(int n) {
+        Word[] words = new Word[n];
+        Random random = new Random(23);
+        for (int i = 0; i < n; i++) {
+            words[i] = new Word(String.format("w%08d", i));
+            for (int j = 1 + random.nextInt(6); j > 0; j--) {
+                words[i].addOccurrence("file" + random.nextInt(50) + ".txt", 1 + random.nextInt(5000));
+            }
+        }
+        return BSTree.fromSorted(words, false);
+    }
+
+    static void measure(File file, int n) throws IOException {
+        Random random = new Random(n);
+
+        long start = System.nanoTime();
+        BSTree<Word> tree = WordRepository.load(file.toPath());
+        long load = System.nanoTime() - start;
+        if (tree.size() != n) {
+            throw new IllegalStateException("Lost words while loading");
+        }
+        tree = null;
+
+        start = System.nanoTime();
+        try (RepositoryIndex index = RepositoryIndex.open(file.toPath())) {
+            long open = System.nanoTime() - start;
+            System.out.printf("  full load %,10.1f ms   index open %,8.3f ms%n", load / 1e6, open / 1e6);
+
+            StringBuilder cold = new StringBuilder();
+            for (int i = 0; i < COLD_LOOKUPS; i++) {
+                String text = String.format("w%08d", random.nextInt(n));
+                start = System.nanoTime();
+                Word word = index.find(text);
+                cold.append(String.format(" %,8.1f", (System.nanoTime() - start) / 1e3));
+                check(word, text);
+            }
+            System.out.println("  cold lookups (us):" + cold);
+
+            for (int round = 0; round < 2; round++) {
+                start = System.nanoTime();
+                for (int i = 0; i < WARM_LOOKUPS; i++) {
+                    String text = String.format("w%08d", random.nextInt(n));
+                    check(index.find(text), text);
+                }
+                long warm = System.nanoTime() - start;
+                start = System.nanoTime();
+                int found = 0;
+                for (int i = 0; i < 1000; i++) {
+                    found += index.findPrefix(String.format("w%06d", random.nextInt(Math.max(n / 100, 1)))).size();
+                }
+                long prefix = System.nanoTime() - start;
+                System.out.printf("  warm lookup %,8.2f us   prefix scan of %d words %,8.2f us%n",
+                        warm / 1e3 / WARM_LOOKUPS, found / 1000, prefix / 1e3 / 1000);
+            }
+        }
+    }
+
+    static void check(Word word, String text) {
+        if (word == null || !word.getWord().equals(text)) {
+            throw new IllegalStateException("Failed to find " + text);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import domain.Word;
+import implementations.BSTree;
+import serialization.RepositoryJournal;
+import serialization.WordRepository;
+
+/**
+ * RepositoryJournalBenchmark
+ *
+ * Saves a generated repository, then adds small updates to it, each the occurrences of
+ * one new file, and compares saving every update by rewriting the repository with
+ * appending it to a RepositoryJournal. Also reports the time to load the repository
+ * and replay the journal once the updates are in it, against loading the rewritten
+ * repository.
+ *
+ * Usage:
+ *   java benchmarks.RepositoryJournalBenchmark [words] [updates] [words per update]
+ */
+public class RepositoryJournalBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 2_000;
+
+        File rewritten = File.createTempFile("rewritten", ".wtr");
+        File journaled = File.createTempFile("journaled", ".wtr");
+        RepositoryJournal journal = new RepositoryJournal(journaled.toPath());
+        try {
+            BSTree<Word> full = RepositoryIndexBenchmark.generate(n);
+            WordRepository.save(full, rewritten.toPath());
+            WordRepository.save(full, journaled.toPath());
+            BSTree<Word> base = WordRepository.load(journaled.toPath());
+            journal.replay(base);
+            System.out.printf("%,d words, %,d bytes, %d updates of %,d words%n", n, rewritten.length(), updates, size);
+
+            Random random = new Random(24);
+            long rewrite = 0;
+            long append = 0;
+            for (int u = 0; u < updates; u++) {
+                BSTree<Word> added = new BSTree<>();
+                for (int i = 0; i < size; i++) {
+                    added.computeIfAbsent(String.format("w%08d", random.nextInt(2 * n)), Word::compareText, Word::new)
+                            .addOccurrence("update" + u + ".txt", 1 + i);
+                }
+
+                long start = System.nanoTime();
+                RepositoryJournal.addAll(full, added);
+                WordRepository.save(full, rewritten.toPath());
+                rewrite += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                RepositoryJournal.addAll(base, added);
+                journal.append(added);
+                append += System.nanoTime() - start;
+            }
+            System.out.printf("  rewrite  %,10.2f ms per update%n", rewrite / 1e6 / updates);
+            System.out.printf("  journal  %,10.2f ms per update, %,d bytes of journal%n", append / 1e6 / updates,
+                    Files.size(journal.getPath()));
+
+            // time the loads without the trees of the updates in the heap
+            full = null;
+            base = null;
+            System.gc();
+            long start = System.nanoTime();
+            int words = WordRepository.load(rewritten.toPath()).size();
+            long loadRewritten = System.nanoTime() - start;
+            System.gc();
+            start = System.nanoTime();
+            BSTree<Word> replayed = WordRepository.load(journaled.toPath());
+            new RepositoryJournal(journaled.toPath()).replay(replayed);
+            long loadJournaled = System.nanoTime() - start;
+            if (replayed.size() != words) {
+                throw new IllegalStateException("The journal lost words");
+            }
+            System.out.printf("  load rewritten %,10.1f ms   load and replay %,10.1f ms%n",
+                    loadRewritten / 1e6, loadJournaled / 1e6);
+        } finally {
+            rewritten.delete();
+            journaled.delete();
+            Files.deleteIfExists(journal.getPath());
+        }
+    }
+}
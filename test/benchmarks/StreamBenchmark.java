@@ -0,0 +1,50 @@
+package benchmarks;
+
+import domain.Word;
+import implementations.BSTree;
+
+/**
+ * StreamBenchmark
+ *
+ * Compares sequential and parallel stream reductions over a balanced tree of
+ * generated words, summing total frequency and finding the most frequent word.
+ *
+ * Usage:
+ *   java benchmarks.StreamBenchmark [words]
+ */
+public class StreamBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Word[] words = new Word[n];
+        for (int i = 0; i < n; i++) {
+            words[i] = new Word(String.format("w%08d", i));
+            for (int j = 0; j <= i % 7; j++) {
+                words[i].addOccurrence("file" + (j % 3), j + 1);
+            }
+        }
+        BSTree<Word> tree = BSTree.fromSorted(words, true);
+        System.out.printf("tree: %,d words, height %d, %d cores%n",
+                n, tree.getHeight(), Runtime.getRuntime().availableProcessors());
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            long sequential = tree.stream().mapToLong(Word::getTotalFrequency).sum();
+            long sequentialTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long parallel = tree.parallelStream().mapToLong(Word::getTotalFrequency).sum();
+            long parallelTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Word top = tree.parallelStream()
+                    .max((a, b) -> Integer.compare(a.getTotalFrequency(), b.getTotalFrequency())).get();
+            long topTime = System.nanoTime() - start;
+
+            System.out.printf("round %d: sum sequential %6.1f ms  parallel %6.1f ms (%d = %d)  parallel max %6.1f ms (%s)%n",
+                    round, sequentialTime / 1e6, parallelTime / 1e6, sequential, parallel, topTime / 1e6, top.getWord());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package benchmarks;
+
+import java.io.*;
+
+import domain.Word;
+import implementations.BSTree;
+import utilities.WordTokenizer;
+import utilities.WordTracker;
+
+/**
+ * TokenizerBenchmark
+ *
+ * Compares splitting res/test3.txt, repeated to a useful size, with
+ * line.toLowerCase().split("[^a-zA-Z]+") and with WordTokenizer. Reports tokens
+ * per second and bytes allocated per token for tokenizing alone and for indexing
+ * the whole file. Before timing it checks that both produce the same index.
+ *
+ * Usage:
+ *   java benchmarks.TokenizerBenchmark [copies]
+ */
+public class TokenizerBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int copies = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        File corpus = WordTrackerBenchmark.scaledCorpus(copies);
+        try {
+            long tokens = WordTrackerBenchmark.countTokens(corpus);
+            System.out.printf("corpus: %d copies, %d bytes, %d tokens%n", copies, corpus.length(), tokens);
+            checkSameIndex(corpus);
+
+            for (int round = 0; round < ROUNDS; round++) {
+                report("split", tokens, () -> splitTokens(corpus));
+                report("tokenizer", tokens, () -> tokenizerTokens(corpus));
+                report("index split", tokens, () -> WordTrackerBenchmark.legacyProcessFile(corpus, new BSTree<>()));
+                report("index tokenizer", tokens, () -> WordTracker.processFile(corpus, new BSTree<>()));
+            }
+        } finally {
+            corpus.delete();
+        }
+    }
+
+    static void report(String name, long tokens, WordTrackerBenchmark.Task task) throws IOException {
+        long bytesBefore = IteratorBenchmark.allocatedBytes();
+        long elapsed = WordTrackerBenchmark.time(task);
+        long bytes = IteratorBenchmark.allocatedBytes() - bytesBefore;
+        System.out.printf("%-16s %,12.0f tokens/s  %8.2f bytes/token%n",
+                name, tokens * 1e9 / elapsed, (double) bytes / tokens);
+    }
+
+    static long splitTokens(File file) {
+        long checksum = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                for (String wordText : line.toLowerCase().split("[^a-zA-Z]+")) {
+                    checksum += wordText.length();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return checksum;
+    }
+
+    static long tokenizerTokens(File file) {
+        long checksum = 0;
+        try (Reader reader = new FileReader(file)) {
+            WordTokenizer tokens = new WordTokenizer(reader);
+            while (tokens.next()) {
+                checksum += tokens.length();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return checksum;
+    }
+
+    static void checkSameIndex(File file) throws IOException {
+        BSTree<Word> expected = new BSTree<>();
+        BSTree<Word> actual = new BSTree<>();
+        WordTrackerBenchmark.legacyProcessFile(file, expected);
+        WordTracker.processFile(file, actual);
+        java.util.Iterator<Word> left = expected.iterator();
+        java.util.Iterator<Word> right = actual.iterator();
+        while (left.hasNext() && right.hasNext()) {
+            if (!left.next().toString().equals(right.next().toString())) {
+                throw new IllegalStateException("Tokenizer indexed differently from split");
+            }
+        }
+        if (left.hasNext() || right.hasNext()) {
+            throw new IllegalStateException("Tokenizer found a different number of words");
+        }
+    }
+}
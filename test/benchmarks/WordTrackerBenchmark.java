@@ -0,0 +1,113 @@
+package benchmarks;
+
+import java.io.*;
+import java.nio.file.Files;
+
+import domain.Word;
+import implementations.BSTree;
+import utilities.WordTracker;
+
+/**
+ * WordTrackerBenchmark
+ *
+ * Measures indexing throughput of WordTracker on res/test3.txt repeated
+ * until the corpus reaches a useful size. Compares the original
+ * search-search-add loop with the single descent upsert used by processFile,
+ * and processFile with the file split into one chunk per core.
+ *
+ * Usage:
+ *   java benchmarks.WordTrackerBenchmark [copies]
+ */
+public class WordTrackerBenchmark {
+
+    private static final String SOURCE = "res/test3.txt";
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int copies = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        File corpus = scaledCorpus(copies);
+        try {
+            long tokens = countTokens(corpus);
+            System.out.printf("corpus: %d copies of %s, %d bytes, %d tokens%n",
+                    copies, SOURCE, corpus.length(), tokens);
+
+            int cores = Runtime.getRuntime().availableProcessors();
+            long chunkSize = corpus.length() / cores + 1;
+            java.util.List<File> files = java.util.Collections.singletonList(corpus);
+
+            for (int round = 0; round < ROUNDS; round++) {
+                long legacy = time(() -> legacyProcessFile(corpus, new BSTree<>()));
+                long upsert = time(() -> WordTracker.processFile(corpus, new BSTree<>()));
+                long chunked = time(() -> WordTracker.processFiles(files, new BSTree<>(), cores, chunkSize));
+                System.out.printf("round %d: search+add %,.0f tokens/s   upsert %,.0f tokens/s   %d chunks %,.0f tokens/s%n",
+                        round, tokens * 1e9 / legacy, tokens * 1e9 / upsert, cores, tokens * 1e9 / chunked);
+            }
+        } finally {
+            corpus.delete();
+        }
+    }
+
+    /**
+     * Writes the source file the given number of times into a temporary file.
+     */
+    static File scaledCorpus(int copies) throws IOException {
+        byte[] source = Files.readAllBytes(new File(SOURCE).toPath());
+        File corpus = File.createTempFile("wordtracker", ".txt");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(corpus))) {
+            for (int i = 0; i < copies; i++) {
+                out.write(source);
+            }
+        }
+        return corpus;
+    }
+
+    interface Task {
+        void run() throws IOException;
+    }
+
+    static long time(Task task) throws IOException {
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+
+    static long countTokens(File file) throws IOException {
+        long tokens = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                for (String wordText : line.toLowerCase().split("[^a-zA-Z]+")) {
+                    if (!wordText.isEmpty()) tokens++;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * The indexing loop as it was before the upsert API: two searches and an add per token.
+     */
+    static void legacyProcessFile(File file, BSTree<Word> tree) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                for (String wordText : line.toLowerCase().split("[^a-zA-Z]+")) {
+                    if (wordText.isEmpty()) continue;
+
+                    Word word = new Word(wordText);
+                    Word existing = tree.search(word) != null ? tree.search(word).getElement() : null;
+                    if (existing == null) {
+                        word.addOccurrence(file.getPath(), lineNumber);
+                        tree.add(word);
+                    } else {
+                        existing.addOccurrence(file.getPath(), lineNumber);
+                    }
+                }
+                lineNumber++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import utilities.Iterator;
 
 import implementations.BSTree;
 import implementations.BSTreeNode;
+import implementations.ThreadedInorderIterator;
 
 /**
  * @author kitty, maryam
@@ -607,4 +608,718 @@ public class BSTreeTest
 	{
 		assertNull( "Failed to return maximum value.", tree.removeMax() );
 	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#BSTree(boolean)} to keep the
+	 * height within the AVL bound when elements are added in ascending order.
+	 */
+	@Test
+	public void testBalanced_SortedInserts()
+	{
+		BSTree<Integer> balancedTree = new BSTree<Integer>( true );
+		for( int i = 0; i < 10000; i++ )
+		{
+			assertTrue( balancedTree.add( i ) );
+		}
+
+		assertEquals( "Failed to update size correctly.", 10000, balancedTree.size() );
+		assertTrue( "Height exceeds the AVL bound.", balancedTree.getHeight() <= avlHeightBound( 10000 ) );
+		assertInOrder( balancedTree, 0, 10000 );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#BSTree(boolean)} to keep the
+	 * height within the AVL bound when elements are added in descending order.
+	 */
+	@Test
+	public void testBalanced_ReverseSortedInserts()
+	{
+		BSTree<Integer> balancedTree = new BSTree<Integer>( true );
+		for( int i = 9999; i >= 0; i-- )
+		{
+			assertTrue( balancedTree.add( i ) );
+		}
+		assertFalse( "Failed to reject a duplicate.", balancedTree.add( 500 ) );
+
+		assertEquals( "Failed to update size correctly.", 10000, balancedTree.size() );
+		assertTrue( "Height exceeds the AVL bound.", balancedTree.getHeight() <= avlHeightBound( 10000 ) );
+		assertInOrder( balancedTree, 0, 10000 );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#removeMin()} and
+	 * {@link implementations.BSTree#removeMax()} to keep a balanced tree within
+	 * the AVL bound while it shrinks.
+	 */
+	@Test
+	public void testBalanced_RemoveMinMax()
+	{
+		BSTree<Integer> balancedTree = new BSTree<Integer>( true );
+		for( int i = 0; i < 4096; i++ )
+		{
+			balancedTree.add( i );
+		}
+
+		for( int i = 0; i < 1000; i++ )
+		{
+			assertEquals( "Failed to remove the minimum value.", i, (int) balancedTree.removeMin().getElement() );
+			assertEquals( "Failed to remove the maximum value.", 4095 - i, (int) balancedTree.removeMax().getElement() );
+			assertTrue( "Height exceeds the AVL bound.",
+					balancedTree.getHeight() <= avlHeightBound( balancedTree.size() ) );
+		}
+
+		assertEquals( "Failed to update size.", 2096, balancedTree.size() );
+		assertInOrder( balancedTree, 1000, 3096 );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#add(java.lang.Comparable)},
+	 * {@link implementations.BSTree#search(java.lang.Comparable)} and the remove
+	 * methods on a degenerate tree deep enough to overflow a recursive walk.
+	 */
+	@Test
+	public void testDegenerateTree_NoStackOverflow()
+	{
+		int n = 30000;
+		for( int i = 0; i < n; i++ )
+		{
+			tree.add( i );
+		}
+
+		assertEquals( "Failed to return correct height.", n, tree.getHeight() );
+		assertEquals( "Failed to return the correct element.", n - 1, (int) tree.search( n - 1 ).getElement() );
+		assertEquals( "Failed to remove the maximum value.", n - 1, (int) tree.removeMax().getElement() );
+		assertEquals( "Failed to remove the minimum value.", 0, (int) tree.removeMin().getElement() );
+		assertEquals( "Failed to update height.", n - 2, tree.getHeight() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#rank(java.lang.Comparable)}
+	 * to count the elements smaller than present and absent values.
+	 */
+	@Test
+	public void testRank()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( five );
+
+		assertEquals( "Failed to rank the minimum.", 0, tree.rank( one ) );
+		assertEquals( "Failed to rank the root.", 2, tree.rank( four ) );
+		assertEquals( "Failed to rank an absent value.", 2, tree.rank( three ) );
+		assertEquals( "Failed to rank past the maximum.", 5, tree.rank( seven ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#select(int)} to return the
+	 * element at each position and reject positions outside the tree.
+	 */
+	@Test
+	public void testSelect()
+	{
+		BSTree<Integer> balancedTree = new BSTree<Integer>( true );
+		for( int i = 0; i < 1000; i++ )
+		{
+			tree.add( i );
+			balancedTree.add( 999 - i );
+		}
+
+		for( int i = 0; i < 1000; i++ )
+		{
+			assertEquals( "Failed to select from an unbalanced tree.", i, (int) tree.select( i ) );
+			assertEquals( "Failed to select from a balanced tree.", i, (int) balancedTree.select( i ) );
+		}
+
+		try
+		{
+			tree.select( 1000 );
+			fail( "Failed to throw IndexOutOfBoundsException." );
+		}
+		catch( IndexOutOfBoundsException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#countRange(java.lang.Comparable, java.lang.Comparable)}
+	 * to keep counts correct through removals and clear.
+	 */
+	@Test
+	public void testCountRange()
+	{
+		BSTree<Integer> balancedTree = new BSTree<Integer>( true );
+		for( int i = 0; i < 100; i++ )
+		{
+			balancedTree.add( i );
+		}
+
+		assertEquals( "Failed to count the range.", 10, balancedTree.countRange( 40, 50 ) );
+		assertEquals( "Failed to count an empty range.", 0, balancedTree.countRange( 40, 40 ) );
+
+		for( int i = 0; i < 45; i++ )
+		{
+			balancedTree.removeMin();
+		}
+		balancedTree.removeMax();
+		assertEquals( "Failed to count after removals.", 5, balancedTree.countRange( 40, 50 ) );
+		assertEquals( "Failed to count after removals.", 54, balancedTree.countRange( 0, 1000 ) );
+		assertEquals( "Failed to select after removals.", 45, (int) balancedTree.select( 0 ) );
+
+		balancedTree.clear();
+		assertEquals( "Failed to count after clear.", 0, balancedTree.countRange( 0, 1000 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#addOrGet(java.lang.Comparable)}
+	 * to add a missing element and return the stored one for an equal element.
+	 */
+	@Test
+	public void testAddOrGet()
+	{
+		Integer first = new Integer( 1000 );
+		Integer second = new Integer( 1000 );
+
+		assertSame( "Failed to return the added element.", first, tree.addOrGet( first ) );
+		assertSame( "Failed to return the stored element.", first, tree.addOrGet( second ) );
+		assertEquals( "Failed to update size correctly.", 1, tree.size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#computeIfAbsent(Object, java.util.function.ToIntBiFunction, java.util.function.Function)}
+	 * to look up by a key of another type and only call the factory when the key is missing.
+	 */
+	@Test
+	public void testComputeIfAbsent()
+	{
+		tree.add( four );
+		tree.add( two );
+
+		int[] calls = new int[1];
+		java.util.function.ToIntBiFunction<String, Integer> byText = ( key, element ) -> Integer.compare( Integer.parseInt( key ), element );
+		java.util.function.Function<String, Integer> factory = key -> {
+			calls[0]++;
+			return Integer.valueOf( key );
+		};
+
+		assertEquals( "Failed to find the stored element.", two, tree.computeIfAbsent( "22", byText, factory ) );
+		assertEquals( "Factory called for a stored key.", 0, calls[0] );
+		assertEquals( "Failed to add the created element.", six, tree.computeIfAbsent( "66", byText, factory ) );
+		assertEquals( "Factory not called for a missing key.", 1, calls[0] );
+		assertTrue( "Failed to add the created element.", tree.contains( six ) );
+		assertEquals( "Failed to update size correctly.", 3, tree.size() );
+
+		try
+		{
+			tree.computeIfAbsent( "55", byText, key -> {
+				throw new IllegalStateException( "factory failed" );
+			} );
+			fail( "Failed to pass on the factory's exception." );
+		}
+		catch( IllegalStateException e )
+		{
+			assertEquals( "Failed to pass on the factory's exception.", "factory failed", e.getMessage() );
+		}
+		assertEquals( "Added an element for a failed factory.", 3, tree.size() );
+		assertEquals( "Failed to add after a failed factory.", five, tree.computeIfAbsent( "55", byText, factory ) );
+		utilities.Iterator<Integer> it = tree.inorderIterator();
+		for( Integer expected : new Integer[] { two, four, five, six } )
+		{
+			assertEquals( "Failed to keep the order.", expected, it.next() );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#merge(java.lang.Comparable, java.util.function.BiFunction)}
+	 * to add missing elements, remap stored ones and reject remapped elements that move.
+	 */
+	@Test
+	public void testMerge()
+	{
+		Integer stored = new Integer( 1000 );
+		Integer replacement = new Integer( 1000 );
+
+		assertSame( "Failed to add the element.", stored, tree.merge( stored, ( a, b ) -> a ) );
+		assertSame( "Failed to remap the element.", replacement, tree.merge( stored, ( a, b ) -> replacement ) );
+		assertSame( "Failed to store the remapped element.", replacement, tree.search( stored ).getElement() );
+
+		try
+		{
+			tree.merge( stored, ( a, b ) -> a + 1 );
+			fail( "Failed to throw IllegalArgumentException." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#fromSorted(Comparable[], boolean)}
+	 * to build a perfectly balanced tree from a sorted array.
+	 */
+	@Test
+	public void testFromSorted_Array()
+	{
+		Integer[] sorted = new Integer[1023];
+		for( int i = 0; i < sorted.length; i++ )
+		{
+			sorted[i] = i;
+		}
+
+		BSTree<Integer> built = BSTree.fromSorted( sorted, false );
+
+		assertEquals( "Failed to update size correctly.", 1023, built.size() );
+		assertEquals( "Failed to build a perfectly balanced tree.", 10, built.getHeight() );
+		assertEquals( "Failed to record subtree sizes.", 512, built.rank( 512 ) );
+		assertInOrder( built, 0, 1023 );
+		assertTrue( "Failed to add after building.", built.add( 5000 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#fromSorted(Iterator, boolean)}
+	 * to rebuild a degenerate tree from its in-order iterator.
+	 */
+	@Test
+	public void testFromSorted_Iterator()
+	{
+		for( int i = 0; i < 1000; i++ )
+		{
+			tree.add( i );
+		}
+
+		BSTree<Integer> built = BSTree.fromSorted( tree.inorderIterator(), true );
+
+		assertTrue( "Failed to keep the balanced option.", built.isBalanced() );
+		assertEquals( "Failed to build a perfectly balanced tree.", 10, built.getHeight() );
+		assertInOrder( built, 0, 1000 );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#fromSorted(Comparable[], boolean)}
+	 * to reject out-of-order and duplicate elements.
+	 */
+	@Test
+	public void testFromSorted_RejectsBadInput()
+	{
+		try
+		{
+			BSTree.fromSorted( new Integer[] { one, three, two }, false );
+			fail( "Failed to throw IllegalArgumentException for out of order input." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( e.getMessage().contains( "out of order" ) );
+		}
+
+		try
+		{
+			BSTree.fromSorted( new Integer[] { one, two, two }, false );
+			fail( "Failed to throw IllegalArgumentException for a duplicate." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( e.getMessage().contains( "Duplicate" ) );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#fromSorted(Iterator, boolean, java.util.function.BiFunction)}
+	 * to fold runs of equal elements together with the combiner.
+	 */
+	@Test
+	public void testFromSorted_Combiner()
+	{
+		Integer[] input = { one, two, two, two, three };
+		Iterator<Integer> it = new Iterator<Integer>()
+		{
+			int i = 0;
+
+			@Override
+			public boolean hasNext()
+			{
+				return i < input.length;
+			}
+
+			@Override
+			public Integer next()
+			{
+				return input[i++];
+			}
+		};
+		int[] combined = new int[1];
+
+		BSTree<Integer> built = BSTree.fromSorted( it, false, ( a, b ) -> {
+			combined[0]++;
+			return a;
+		} );
+
+		assertEquals( "Failed to fold duplicates.", 3, built.size() );
+		assertEquals( "Failed to call the combiner per duplicate.", 2, combined[0] );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#union(BSTree, BSTree, java.util.function.BiFunction)}
+	 * to merge two overlapping trees into a balanced tree, combining shared elements.
+	 */
+	@Test
+	public void testUnion()
+	{
+		BSTree<Integer> other = new BSTree<Integer>();
+		for( int i = 0; i < 600; i++ )
+		{
+			tree.add( i );
+			other.add( i + 400 );
+		}
+		int[] combined = new int[1];
+
+		BSTree<Integer> union = BSTree.union( tree, other, ( a, b ) -> {
+			combined[0]++;
+			return a;
+		} );
+
+		assertEquals( "Failed to update size correctly.", 1000, union.size() );
+		assertEquals( "Failed to combine shared elements.", 200, combined[0] );
+		assertEquals( "Failed to build a perfectly balanced tree.", 10, union.getHeight() );
+		assertInOrder( union, 0, 1000 );
+		assertEquals( "Failed to leave the first tree unchanged.", 600, tree.size() );
+		assertInOrder( tree, 0, 600 );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#union(BSTree, BSTree, java.util.function.BiFunction)}
+	 * to handle empty trees.
+	 */
+	@Test
+	public void testUnion_Empty()
+	{
+		tree.add( two );
+		tree.add( one );
+
+		BSTree<Integer> union = BSTree.union( new BSTree<Integer>(), tree, ( a, b ) -> a );
+
+		assertEquals( "Failed to update size correctly.", 2, union.size() );
+		assertTrue( "Failed to union two empty trees.", BSTree.union( new BSTree<Integer>(), new BSTree<Integer>(), ( a, b ) -> a ).isEmpty() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#removeIf(java.util.function.Predicate)}
+	 * to remove the accepted elements and relink the rest into a balanced tree.
+	 */
+	@Test
+	public void testRemoveIf()
+	{
+		for( int i = 0; i < 1000; i++ )
+		{
+			tree.add( i );
+		}
+
+		assertEquals( "Failed to count the removed elements.", 500, tree.removeIf( i -> i % 2 == 1 ) );
+
+		assertEquals( "Failed to update size correctly.", 500, tree.size() );
+		assertEquals( "Failed to build a perfectly balanced tree.", 9, tree.getHeight() );
+		assertInOrder( tree, 0, 1000, 2 );
+		assertEquals( "Removed an element the filter rejected.", 0, tree.removeIf( i -> i % 2 == 1 ) );
+		assertEquals( "Failed to count the removed elements.", 500, tree.removeIf( i -> true ) );
+		assertTrue( "Failed to empty the tree.", tree.isEmpty() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#floor(java.lang.Comparable)},
+	 * {@link implementations.BSTree#ceiling(java.lang.Comparable)},
+	 * {@link implementations.BSTree#lower(java.lang.Comparable)} and
+	 * {@link implementations.BSTree#higher(java.lang.Comparable)}.
+	 */
+	@Test
+	public void testFloorCeilingLowerHigher()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+
+		assertEquals( "Failed to return floor.", two, tree.floor( three ) );
+		assertEquals( "Failed to return floor of a stored value.", four, tree.floor( four ) );
+		assertNull( "Failed to return null floor.", tree.floor( one ) );
+		assertEquals( "Failed to return ceiling.", four, tree.ceiling( three ) );
+		assertNull( "Failed to return null ceiling.", tree.ceiling( seven ) );
+		assertEquals( "Failed to return lower.", two, tree.lower( four ) );
+		assertNull( "Failed to return null lower.", tree.lower( two ) );
+		assertEquals( "Failed to return higher.", six, tree.higher( four ) );
+		assertNull( "Failed to return null higher.", tree.higher( six ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#rangeIterator(java.lang.Comparable, java.lang.Comparable)}
+	 * and {@link implementations.BSTree#descendingRangeIterator(java.lang.Comparable, java.lang.Comparable)}
+	 * to return only the half-open range, in both directions.
+	 */
+	@Test
+	public void testRangeIterators()
+	{
+		for( int i = 0; i < 100; i += 2 )
+		{
+			tree.add( ( i * 37 ) % 100 );
+		}
+
+		assertInOrder( BSTree.fromSorted( tree.rangeIterator( 20, 31 ), false ), 20, 31, 2 );
+
+		Iterator<Integer> it = tree.descendingRangeIterator( 20, 30 );
+		for( int i = 28; i >= 20; i -= 2 )
+		{
+			assertEquals( "Descending range iterator is out of order.", i, (int) it.next() );
+		}
+		assertFalse( "Descending range iterator has extra elements.", it.hasNext() );
+
+		it = tree.descendingIterator();
+		for( int i = 98; i >= 0; i -= 2 )
+		{
+			assertEquals( "Descending iterator is out of order.", i, (int) it.next() );
+		}
+		assertFalse( "Descending iterator has extra elements.", it.hasNext() );
+		assertFalse( "Empty range has elements.", tree.rangeIterator( 40, 40 ).hasNext() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#asNavigableSet()} to read the
+	 * tree through bounded and descending views.
+	 */
+	@Test
+	public void testAsNavigableSet()
+	{
+		for( int i = 0; i < 50; i++ )
+		{
+			tree.add( i * 2 );
+		}
+		java.util.NavigableSet<Integer> set = tree.asNavigableSet();
+
+		assertEquals( "Failed to return size.", 50, set.size() );
+		assertEquals( "Failed to return first.", 0, (int) set.first() );
+		assertEquals( "Failed to return last.", 98, (int) set.last() );
+
+		java.util.NavigableSet<Integer> sub = set.subSet( 10, true, 20, false );
+		assertEquals( "Failed to count sub set.", 5, sub.size() );
+		assertEquals( "Failed to copy sub set.", java.util.Arrays.asList( 10, 12, 14, 16, 18 ), new java.util.ArrayList<Integer>( sub ) );
+		assertEquals( "Failed to bound higher.", null, sub.higher( 18 ) );
+		assertEquals( "Failed to bound ceiling.", 10, (int) sub.ceiling( 3 ) );
+		assertFalse( "Failed to bound contains.", sub.contains( 20 ) );
+
+		java.util.NavigableSet<Integer> desc = sub.descendingSet();
+		assertEquals( "Failed to reverse sub set.", java.util.Arrays.asList( 18, 16, 14, 12, 10 ), new java.util.ArrayList<Integer>( desc ) );
+		assertEquals( "Failed to reverse higher.", 14, (int) desc.higher( 16 ) );
+		assertEquals( "Failed to narrow descending view.", java.util.Arrays.asList( 16, 14 ), new java.util.ArrayList<Integer>( desc.subSet( 16, true, 13, true ) ) );
+		assertEquals( "Failed to take head of descending view.", java.util.Arrays.asList( 18 ), new java.util.ArrayList<Integer>( desc.headSet( 16 ) ) );
+
+		assertTrue( "Failed to add through view.", sub.add( 11 ) );
+		assertTrue( "Failed to add to tree.", tree.contains( 11 ) );
+		assertEquals( "Failed to poll first.", 0, (int) set.pollFirst() );
+		assertEquals( "Failed to poll descending first.", 98, (int) set.descendingSet().pollFirst() );
+		assertEquals( "Failed to update size.", 49, set.size() );
+
+		try
+		{
+			sub.add( 30 );
+			fail( "Failed to throw IllegalArgumentException." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#threadedInorderIterator()} to
+	 * return elements in order and leave every link as it found it.
+	 */
+	@Test
+	public void testThreadedInorderIterator()
+	{
+		Integer[] values = { four, two, six, one, five, three, seven };
+		for( Integer value : values )
+		{
+			tree.add( value );
+		}
+
+		ThreadedInorderIterator<Integer> it = tree.threadedInorderIterator();
+		Integer[] shouldBe = { one, two, three, four, five, six, seven };
+		for( Integer expected : shouldBe )
+		{
+			assertEquals( "Threaded iterator is out of order.", expected, it.next() );
+		}
+		assertFalse( "Threaded iterator has extra elements.", it.hasNext() );
+
+		Integer[] preorder = { four, two, one, three, six, five, seven };
+		Iterator<Integer> pre = tree.preorderIterator();
+		for( Integer expected : preorder )
+		{
+			assertEquals( "Failed to restore the tree shape.", expected, pre.next() );
+		}
+		assertTrue( "Failed to unlock the tree.", tree.add( 88 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#threadedInorderIterator()} to
+	 * lock the tree while open and restore it when abandoned and closed.
+	 */
+	@Test
+	public void testThreadedInorderIterator_Close()
+	{
+		for( int i = 0; i < 1000; i++ )
+		{
+			tree.add( ( i * 389 ) % 1000 );
+		}
+		int height = tree.getHeight();
+
+		try( ThreadedInorderIterator<Integer> it = tree.threadedInorderIterator() )
+		{
+			assertEquals( "Threaded iterator is out of order.", 0, (int) it.next() );
+			assertEquals( "Threaded iterator is out of order.", 1, (int) it.next() );
+			try
+			{
+				tree.add( 5000 );
+				fail( "Failed to throw ConcurrentModificationException." );
+			}
+			catch( java.util.ConcurrentModificationException e )
+			{
+				assertTrue( true );
+			}
+		}
+
+		assertEquals( "Failed to restore the tree height.", height, tree.getHeight() );
+		assertInOrder( tree, 0, 1000 );
+		assertEquals( "Failed to unlock the tree.", 999, (int) tree.search( 999 ).getElement() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#spliterator()} to report exact
+	 * sizes and split into halves that cover the tree in order.
+	 */
+	@Test
+	public void testSpliterator()
+	{
+		for( int i = 0; i < 5000; i++ )
+		{
+			tree.add( ( i * 1237 ) % 5000 );
+		}
+
+		java.util.Spliterator<Integer> second = tree.spliterator();
+		assertTrue( "Failed to report SIZED.", second.hasCharacteristics( java.util.Spliterator.SUBSIZED ) );
+		assertEquals( "Failed to report size.", 5000, second.getExactSizeIfKnown() );
+
+		java.util.Spliterator<Integer> first = second.trySplit();
+		assertEquals( "Failed to split in half.", 2500, first.getExactSizeIfKnown() );
+		assertEquals( "Failed to split in half.", 2500, second.getExactSizeIfKnown() );
+
+		java.util.List<Integer> seen = new java.util.ArrayList<Integer>();
+		first.forEachRemaining( seen::add );
+		second.forEachRemaining( seen::add );
+		for( int i = 0; i < 5000; i++ )
+		{
+			assertEquals( "Spliterator is out of order.", i, (int) seen.get( i ) );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#parallelStream()} and the
+	 * for-each loop to visit every element once.
+	 */
+	@Test
+	public void testStreams()
+	{
+		for( int i = 1; i <= 100000; i++ )
+		{
+			tree.add( i );
+		}
+		BSTree<Integer> balancedTree = BSTree.fromSorted( tree.inorderIterator(), true );
+
+		assertEquals( "Failed to sum sequentially.", 5000050000L, balancedTree.stream().mapToLong( i -> i ).sum() );
+		assertEquals( "Failed to sum in parallel.", 5000050000L, balancedTree.parallelStream().mapToLong( i -> i ).sum() );
+		assertEquals( "Failed to keep order in parallel.", 1, (int) balancedTree.parallelStream().findFirst().get() );
+
+		long sum = 0;
+		for( int i : balancedTree )
+		{
+			sum += i;
+		}
+		assertEquals( "Failed to iterate with for-each.", 5000050000L, sum );
+	}
+
+	/**
+	 * Test method for serialization of {@link implementations.BSTree}, which writes
+	 * the elements in order without recursing and must cope with a degenerate tree.
+	 * 
+	 * @throws Exception if serialization fails
+	 */
+	@Test
+	public void testSerialization() throws Exception
+	{
+		int n = 20000;
+		for( int i = 0; i < n; i++ )
+		{
+			tree.add( i );
+		}
+		assertEquals( "Tree should be a chain.", n, tree.getHeight() );
+
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		try( java.io.ObjectOutputStream out = new java.io.ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( tree );
+		}
+		try( java.io.ObjectInputStream in = new java.io.ObjectInputStream(
+				new java.io.ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			@SuppressWarnings( "unchecked" )
+			BSTree<Integer> copy = (BSTree<Integer>) in.readObject();
+			assertEquals( "Failed to keep the size.", n, copy.size() );
+			assertFalse( "Failed to keep the balanced option.", copy.isBalanced() );
+			assertTrue( "Failed to rebuild a balanced shape.", copy.getHeight() <= 15 );
+			assertInOrder( copy, 0, n );
+			assertTrue( "Failed to add after reading.", copy.add( n ) );
+			assertEquals( "Failed to update the size.", n + 1, copy.size() );
+		}
+	}
+
+	/**
+	 * Largest height an AVL tree with n nodes can have.
+	 * 
+	 * @param n number of nodes
+	 * @return the height bound
+	 */
+	private static int avlHeightBound( int n )
+	{
+		return (int) Math.floor( 1.4405 * Math.log( n + 2 ) / Math.log( 2 ) - 0.3277 );
+	}
+
+	/**
+	 * Checks that the in-order iterator yields exactly the integers in [from, to).
+	 * 
+	 * @param t tree to check
+	 * @param from first expected element
+	 * @param to one past the last expected element
+	 */
+	private static void assertInOrder( BSTree<Integer> t, int from, int to )
+	{
+		assertInOrder( t, from, to, 1 );
+	}
+
+	/**
+	 * Checks that the in-order iterator yields exactly the integers from, from +
+	 * step, ... below to.
+	 * 
+	 * @param t tree to check
+	 * @param from first expected element
+	 * @param to bound past the last expected element
+	 * @param step difference between consecutive elements
+	 */
+	private static void assertInOrder( BSTree<Integer> t, int from, int to, int step )
+	{
+		Iterator<Integer> it = t.inorderIterator();
+		for( int i = from; i < to; i += step )
+		{
+			assertTrue( "Iterator ended early.", it.hasNext() );
+			assertEquals( "In-order iterator is out of order.", i, (int) it.next() );
+		}
+		assertFalse( "Iterator has extra elements.", it.hasNext() );
+	}
 }
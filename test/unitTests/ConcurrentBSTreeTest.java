@@ -0,0 +1,382 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import implementations.BSTreeNode;
+import implementations.ConcurrentBSTree;
+import utilities.Iterator;
+
+/**
+ * Class Description: Tests for ConcurrentBSTree, single threaded behaviour
+ * against the BSTreeADT contract and multi-threaded stress tests.
+ */
+public class ConcurrentBSTreeTest
+{
+	private static final int THREADS = 8;
+
+	private ConcurrentBSTree<Integer> tree;
+	private ExecutorService pool;
+
+	/**
+	 * Creates an empty tree and a thread pool before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		tree = new ConcurrentBSTree<Integer>();
+		pool = Executors.newFixedThreadPool( THREADS );
+	}
+
+	/**
+	 * Shuts the pool down after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		pool.shutdownNow();
+		tree = null;
+		pool = null;
+	}
+
+	/**
+	 * Test method for the single threaded BSTreeADT contract: add, search,
+	 * removals and the three traversals.
+	 */
+	@Test
+	public void testSingleThreaded()
+	{
+		int[] values = { 44, 22, 66, 11, 55, 33, 77 };
+		for( int value : values )
+		{
+			assertTrue( "Failed to add element.", tree.add( value ) );
+		}
+		assertFalse( "Failed to reject a duplicate.", tree.add( 44 ) );
+
+		assertEquals( "Failed to update size correctly.", 7, tree.size() );
+		assertEquals( "Failed to return correct height.", 3, tree.getHeight() );
+		assertEquals( "Failed to return the root element.", 44, (int) tree.getRoot().getElement() );
+		assertTrue( "Failed to return true.", tree.contains( 33 ) );
+		assertNull( "Failed to return null.", tree.search( 88 ) );
+
+		assertIterates( tree.inorderIterator(), 11, 22, 33, 44, 55, 66, 77 );
+		assertIterates( tree.preorderIterator(), 44, 22, 11, 33, 66, 55, 77 );
+		assertIterates( tree.postorderIterator(), 11, 33, 22, 55, 77, 66, 44 );
+
+		assertEquals( "Failed to remove the minimum value.", 11, (int) tree.removeMin().getElement() );
+		assertEquals( "Failed to remove the maximum value.", 77, (int) tree.removeMax().getElement() );
+		assertFalse( "Failed to remove the element.", tree.contains( 11 ) );
+		assertTrue( "Failed to add below a removed node.", tree.add( 10 ) );
+		assertIterates( tree.inorderIterator(), 10, 22, 33, 44, 55, 66 );
+
+		tree.clear();
+		assertNull( "Failed to return null.", tree.removeMin() );
+		assertTrue( "Failed to clear.", tree.isEmpty() );
+	}
+
+	/**
+	 * Test method for the nodes handed out by getRoot and search, used through the
+	 * BSTreeNode contract.
+	 */
+	@Test
+	public void testNodes()
+	{
+		int[] values = { 44, 22, 66, 11, 55, 33, 77 };
+		for( int value : values )
+		{
+			tree.add( value );
+		}
+		BSTreeNode<Integer> root = tree.getRoot();
+		assertEquals( "Failed to return the subtree height.", 3, root.getHeight() );
+		assertEquals( "Failed to return the subtree size.", 7, root.getSize() );
+		assertEquals( "Failed to return the left subtree size.", 3, root.getLeft().getSize() );
+		assertEquals( "Failed to return the leaf height.", 1, tree.search( 77 ).getHeight() );
+
+		BSTreeNode<Integer> node = tree.search( 66 );
+		node.setElement( 66 );
+		assertEquals( "Failed to replace the element.", 66, (int) node.getElement() );
+		try
+		{
+			node.setElement( 67 );
+			fail( "Stored an element that does not equal the node's." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			// expected
+		}
+
+		BSTreeNode<Integer> right = node.getRight();
+		node.setRight( null );
+		assertIterates( tree.inorderIterator(), 11, 22, 33, 44, 55, 66 );
+		node.setRight( right );
+		assertIterates( tree.inorderIterator(), 11, 22, 33, 44, 55, 66, 77 );
+
+		BSTreeNode<Integer> removed = tree.search( 11 );
+		tree.removeMin();
+		try
+		{
+			removed.setLeft( null );
+			fail( "Linked under a removed node." );
+		}
+		catch( IllegalStateException e )
+		{
+			// expected
+		}
+	}
+
+	/**
+	 * Stress test: threads add overlapping ranges at the same time; every value
+	 * must be stored exactly once and each add must report whether it won.
+	 *
+	 * @throws Exception if a worker fails
+	 */
+	@Test
+	public void testConcurrentAdd() throws Exception
+	{
+		int perThread = 20000;
+		AtomicInteger added = new AtomicInteger();
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for( int t = 0; t < THREADS; t++ )
+		{
+			int offset = t * perThread / 2;
+			tasks.add( () -> {
+				for( int i = 0; i < perThread; i++ )
+				{
+					int value = ( ( offset + i ) * 7919 ) % 1000003;
+					if( tree.add( value ) )
+					{
+						added.incrementAndGet();
+					}
+				}
+				return null;
+			} );
+		}
+		runAll( tasks );
+
+		int distinct = ( THREADS + 1 ) * perThread / 2;
+		assertEquals( "Failed to count successful adds.", distinct, added.get() );
+		assertEquals( "Failed to update size correctly.", distinct, tree.size() );
+		assertSortedAndCounted( distinct );
+	}
+
+	/**
+	 * Stress test: threads upsert the same keys; all of them must see the same
+	 * stored instance and every merge must be applied exactly once.
+	 *
+	 * @throws Exception if a worker fails
+	 */
+	@Test
+	public void testConcurrentUpsertAndMerge() throws Exception
+	{
+		int keys = 2000;
+		ConcurrentBSTree<Counter> counters = new ConcurrentBSTree<Counter>();
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for( int t = 0; t < THREADS; t++ )
+		{
+			tasks.add( () -> {
+				for( int round = 0; round < 10; round++ )
+				{
+					for( int k = 0; k < keys; k++ )
+					{
+						counters.merge( new Counter( k ), ( stored, added ) -> stored.increment() );
+						Counter resident = counters.computeIfAbsent( k, ( key, c ) -> Integer.compare( key, c.key ), Counter::new );
+						assertSame( "Failed to return the stored instance.", resident, counters.search( new Counter( k ) ).getElement() );
+					}
+				}
+				return null;
+			} );
+		}
+		runAll( tasks );
+
+		assertEquals( "Failed to update size correctly.", keys, counters.size() );
+		for( Counter counter : counters )
+		{
+			assertEquals( "Merge not applied exactly once per call.", THREADS * 10 - 1, counter.count.get() );
+		}
+	}
+
+	/**
+	 * Stress test: removals of the minimum run while other threads add; every
+	 * added value ends up either removed exactly once or still in the tree.
+	 *
+	 * @throws Exception if a worker fails
+	 */
+	@Test
+	public void testConcurrentAddAndRemove() throws Exception
+	{
+		int perThread = 20000;
+		int adders = THREADS - 2;
+		List<Integer> removed = java.util.Collections.synchronizedList( new ArrayList<Integer>() );
+		AtomicInteger addersDone = new AtomicInteger();
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for( int t = 0; t < adders; t++ )
+		{
+			int thread = t;
+			tasks.add( () -> {
+				for( int i = 0; i < perThread; i++ )
+				{
+					tree.add( ( ( i * adders + thread ) * 7919 ) % 1000003 );
+				}
+				addersDone.incrementAndGet();
+				return null;
+			} );
+		}
+		for( int t = 0; t < 2; t++ )
+		{
+			boolean min = t == 0;
+			tasks.add( () -> {
+				while( addersDone.get() < adders || removed.size() < 1000 )
+				{
+					BSTreeNode<Integer> node = min ? tree.removeMin() : tree.removeMax();
+					if( node != null )
+					{
+						removed.add( node.getElement() );
+					}
+				}
+				return null;
+			} );
+		}
+		runAll( tasks );
+
+		int total = adders * perThread;
+		java.util.Set<Integer> all = new java.util.HashSet<Integer>( removed );
+		assertEquals( "Removed an element twice.", removed.size(), all.size() );
+		for( int value : tree )
+		{
+			assertTrue( "Element both removed and present.", all.add( value ) );
+		}
+		assertEquals( "Lost an element.", total, all.size() );
+		assertEquals( "Failed to update size correctly.", total - removed.size(), tree.size() );
+	}
+
+	/**
+	 * Test method for serialization to round trip the elements.
+	 *
+	 * @throws Exception if serialization fails
+	 */
+	@Test
+	public void testSerialization() throws Exception
+	{
+		for( int i = 0; i < 1000; i++ )
+		{
+			tree.add( i );
+		}
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		try( java.io.ObjectOutputStream out = new java.io.ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( tree );
+		}
+		try( java.io.ObjectInputStream in = new java.io.ObjectInputStream( new java.io.ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			@SuppressWarnings("unchecked")
+			ConcurrentBSTree<Integer> copy = (ConcurrentBSTree<Integer>) in.readObject();
+			tree = copy;
+		}
+		assertSortedAndCounted( 1000 );
+		assertEquals( "Failed to rebuild a balanced tree.", 10, tree.getHeight() );
+	}
+
+	/**
+	 * Test method for deserialization of a stream whose element count is damaged, which
+	 * must be rejected without allocating for the count.
+	 *
+	 * @throws Exception if the empty tree cannot be serialized
+	 */
+	@Test
+	public void testDamagedCount() throws Exception
+	{
+		java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+		try( java.io.ObjectOutputStream out = new java.io.ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( new ConcurrentBSTree<Integer>() );
+		}
+		byte[] stream = bytes.toByteArray();
+		// the count is the last int of the block data, before the end of block marker
+		int count = stream.length - 5;
+		assertEquals( "Failed to find the count.", 0, java.nio.ByteBuffer.wrap( stream, count, 4 ).getInt() );
+		for( int damaged : new int[] { -1, Integer.MAX_VALUE } )
+		{
+			java.nio.ByteBuffer.wrap( stream, count, 4 ).putInt( damaged );
+			try( java.io.ObjectInputStream in = new java.io.ObjectInputStream( new java.io.ByteArrayInputStream( stream ) ) )
+			{
+				in.readObject();
+				fail( "Read a tree with a count of " + damaged + "." );
+			}
+			catch( java.io.IOException e )
+			{
+				assertTrue( "Failed to reject the negative count.", damaged > 0 || e instanceof java.io.InvalidObjectException );
+			}
+		}
+	}
+
+	private void runAll( List<Callable<Void>> tasks ) throws Exception
+	{
+		for( Future<Void> future : pool.invokeAll( tasks ) )
+		{
+			future.get();
+		}
+	}
+
+	private void assertSortedAndCounted( int expected )
+	{
+		int count = 0;
+		Integer previous = null;
+		for( int value : tree )
+		{
+			assertTrue( "In-order iterator is out of order.", previous == null || previous < value );
+			previous = value;
+			count++;
+		}
+		assertEquals( "Iterator missed elements.", expected, count );
+	}
+
+	private static void assertIterates( Iterator<Integer> it, int... expected )
+	{
+		for( int value : expected )
+		{
+			assertEquals( "Iterator is out of order.", value, (int) it.next() );
+		}
+		assertFalse( "Iterator has extra elements.", it.hasNext() );
+	}
+
+	/**
+	 * Element with a key and a mutable counter, for counting merges.
+	 */
+	private static final class Counter implements Comparable<Counter>
+	{
+		final int key;
+		final AtomicInteger count = new AtomicInteger();
+
+		Counter( int key )
+		{
+			this.key = key;
+		}
+
+		Counter increment()
+		{
+			count.incrementAndGet();
+			return this;
+		}
+
+		@Override
+		public int compareTo( Counter other )
+		{
+			return Integer.compare( key, other.key );
+		}
+	}
+}
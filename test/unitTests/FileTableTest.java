@@ -0,0 +1,92 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import domain.FileTable;
+
+/**
+ * Class Description: Tests for FileTable, the numbering of the files of a repository.
+ */
+public class FileTableTest
+{
+	private FileTable table;
+
+	/**
+	 * Creates a table of three files before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		table = new FileTable();
+		table.idOf( "a.txt" );
+		table.idOf( "dir/b.txt" );
+		table.idOf( "c.txt" );
+	}
+
+	/**
+	 * Test method for {@link domain.FileTable#idOf(String)},
+	 * {@link domain.FileTable#find(String)} and {@link domain.FileTable#nameOf(int)}.
+	 */
+	@Test
+	public void testNumbering()
+	{
+		assertEquals( "Failed to count the files.", 3, table.size() );
+		assertEquals( "Failed to number the files in order.", 1, table.idOf( "dir/b.txt" ) );
+		assertEquals( "Failed to give a new file the next id.", 3, table.idOf( "d.txt" ) );
+		assertEquals( "Failed to keep the id.", 3, table.idOf( "d.txt" ) );
+		assertEquals( "Failed to find the file.", 2, table.find( "c.txt" ) );
+		assertEquals( "Found a missing file.", -1, table.find( "e.txt" ) );
+		assertEquals( "Added a file that was only looked up.", 4, table.size() );
+		assertEquals( "Failed to return the path.", "dir/b.txt", table.nameOf( 1 ) );
+		try
+		{
+			table.nameOf( 4 );
+			fail( "Returned the path of a missing id." );
+		}
+		catch( IndexOutOfBoundsException e )
+		{
+			// expected
+		}
+	}
+
+	/**
+	 * Test method for serialization, which must keep every id.
+	 *
+	 * @throws Exception if the table cannot be serialized
+	 */
+	@Test
+	public void testSerialization() throws Exception
+	{
+		FileTable copy = roundTrip( table );
+		assertEquals( "Failed to keep the files.", 3, copy.size() );
+		for( int id = 0; id < table.size(); id++ )
+		{
+			assertEquals( "Failed to keep the ids.", id, copy.find( table.nameOf( id ) ) );
+		}
+		assertEquals( "Failed to number files after the read ones.", 3, copy.idOf( "d.txt" ) );
+	}
+
+	private static FileTable roundTrip( FileTable table ) throws IOException, ClassNotFoundException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( table );
+		}
+		try( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			return (FileTable) in.readObject();
+		}
+	}
+}
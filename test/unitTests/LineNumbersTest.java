@@ -0,0 +1,115 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import domain.LineNumbers;
+
+/**
+ * Class Description: Tests for LineNumbers, the int[] and delta-varint storage
+ * of a word's line numbers in one file.
+ */
+public class LineNumbersTest
+{
+	/**
+	 * Test method for {@link domain.LineNumbers#add(int)} and {@link domain.LineNumbers#seal()},
+	 * including lines that repeat, go back and need every varint length.
+	 */
+	@Test
+	public void testAddAndSeal()
+	{
+		int[] values = { 1, 1, 2, 130, 20000, 5, Integer.MAX_VALUE, Integer.MIN_VALUE, 0, -3 };
+		LineNumbers lines = new LineNumbers();
+		for( int value : values )
+		{
+			lines.add( value );
+		}
+		assertArrayEquals( "Failed to store the lines.", values, lines.toArray() );
+		assertFalse( "Failed to start unsealed.", lines.isSealed() );
+
+		lines.seal();
+		assertTrue( "Failed to seal.", lines.isSealed() );
+		assertEquals( "Failed to keep the size.", values.length, lines.size() );
+		assertArrayEquals( "Failed to decode the lines.", values, lines.toArray() );
+
+		lines.add( 7 );
+		assertFalse( "Failed to unseal on add.", lines.isSealed() );
+		assertEquals( "Failed to add after sealing.", 7, lines.toArray()[values.length] );
+	}
+
+	/**
+	 * Test method for {@link domain.LineNumbers#iterator()} and {@link domain.LineNumbers#toString()}
+	 * on sealed and unsealed lists.
+	 */
+	@Test
+	public void testReadWithoutBoxing()
+	{
+		LineNumbers lines = new LineNumbers( 3, 7, 7 );
+		for( int round = 0; round < 2; round++ )
+		{
+			PrimitiveIterator.OfInt it = lines.iterator();
+			assertEquals( "Failed to iterate.", 3, it.nextInt() );
+			assertEquals( "Failed to iterate.", 7, it.nextInt() );
+			assertEquals( "Failed to iterate.", 7, it.nextInt() );
+			assertFalse( "Iterator has extra lines.", it.hasNext() );
+			assertEquals( "Failed to format like a List.", "[3, 7, 7]", lines.toString() );
+			lines.seal();
+		}
+		assertEquals( "Failed to format an empty list.", "[]", new LineNumbers().toString() );
+	}
+
+	/**
+	 * Test method for {@link domain.LineNumbers#addAll(LineNumbers)} and
+	 * {@link domain.LineNumbers#offset(int)}.
+	 */
+	@Test
+	public void testAddAllAndOffset()
+	{
+		LineNumbers first = new LineNumbers( 1, 2 );
+		LineNumbers second = new LineNumbers( 1, 5, 9 );
+		second.offset( 10 );
+		second.seal();
+		first.seal();
+		first.addAll( second );
+		assertArrayEquals( "Failed to append the lines.", new int[] { 1, 2, 11, 15, 19 }, first.toArray() );
+		assertArrayEquals( "Failed to leave the other list alone.", new int[] { 11, 15, 19 }, second.toArray() );
+	}
+
+	/**
+	 * Test method for serialization, which writes the sealed form.
+	 *
+	 * @throws Exception if serialization fails
+	 */
+	@Test
+	public void testSerialization() throws Exception
+	{
+		Random random = new Random( 3 );
+		LineNumbers lines = new LineNumbers();
+		int line = 0;
+		for( int i = 0; i < 10000; i++ )
+		{
+			line += random.nextInt( 40 );
+			lines.add( line );
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( lines );
+		}
+		assertTrue( "Failed to write one byte per small gap.", bytes.size() < 10000 + 200 );
+		try( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			LineNumbers copy = (LineNumbers) in.readObject();
+			assertTrue( "Failed to read the sealed form.", copy.isSealed() );
+			assertArrayEquals( "Failed to round trip.", lines.toArray(), copy.toArray() );
+		}
+	}
+}
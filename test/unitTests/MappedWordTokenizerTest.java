@@ -0,0 +1,156 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.MappedWordTokenizer;
+import utilities.WordTokenizer;
+
+/**
+ * Class Description: Tests that MappedWordTokenizer splits the bytes of a file
+ * into the same words and lines as WordTokenizer reading the decoded text.
+ */
+public class MappedWordTokenizerTest
+{
+	private File file;
+
+	/**
+	 * Creates a temporary file before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		file = File.createTempFile( "mapped", ".txt" );
+	}
+
+	/**
+	 * Deletes the temporary file after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		file.delete();
+		file = null;
+	}
+
+	/**
+	 * Test method for {@link utilities.MappedWordTokenizer#supports(Charset, Locale)}.
+	 */
+	@Test
+	public void testSupports()
+	{
+		assertTrue( "Failed to support UTF-8.", MappedWordTokenizer.supports( StandardCharsets.UTF_8, Locale.ENGLISH ) );
+		assertTrue( "Failed to support ISO-8859-1.", MappedWordTokenizer.supports( StandardCharsets.ISO_8859_1, Locale.ROOT ) );
+		assertFalse( "Failed to reject UTF-16.", MappedWordTokenizer.supports( StandardCharsets.UTF_16, Locale.ROOT ) );
+		assertFalse( "Failed to reject Turkish.", MappedWordTokenizer.supports( StandardCharsets.UTF_8, Locale.forLanguageTag( "tr" ) ) );
+	}
+
+	/**
+	 * Test method for {@link utilities.MappedWordTokenizer#next()} on UTF-8 text with
+	 * the characters that lowercase to letters, split across windows of every size.
+	 *
+	 * @throws IOException if the file cannot be used
+	 */
+	@Test
+	public void testWindows() throws IOException
+	{
+		byte[] text = "Kelvin \u212Aelvin, \u0130stanbul\r\nna\u00EFve\rEND\n\nx".getBytes( StandardCharsets.UTF_8 );
+		for( int window = 1; window <= text.length; window++ )
+		{
+			assertSameWords( text, StandardCharsets.UTF_8, window );
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.MappedWordTokenizer#next()} on random bytes,
+	 * including malformed and cut off UTF-8 sequences, in each supported charset.
+	 *
+	 * @throws IOException if the file cannot be used
+	 */
+	@Test
+	public void testRandomBytes() throws IOException
+	{
+		byte[] alphabet = { 'a', 'Z', ' ', '\r', '\n', (byte) 0xC4, (byte) 0xB0, (byte) 0xE2, (byte) 0x84, (byte) 0xAA,
+				(byte) 0xC3, (byte) 0xA9, (byte) 0xF0, (byte) 0x9F };
+		Random random = new Random( 11 );
+		Charset[] charsets = { StandardCharsets.UTF_8, StandardCharsets.US_ASCII, StandardCharsets.ISO_8859_1 };
+		for( int round = 0; round < 300; round++ )
+		{
+			byte[] text = new byte[random.nextInt( 200 )];
+			for( int i = 0; i < text.length; i++ )
+			{
+				text[i] = alphabet[random.nextInt( alphabet.length )];
+			}
+			for( Charset charset : charsets )
+			{
+				assertSameWords( text, charset, 1 + random.nextInt( 16 ) );
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.MappedWordTokenizer#MappedWordTokenizer(FileChannel, long, long, Charset)}
+	 * on a range in the middle of a file.
+	 *
+	 * @throws IOException if the file cannot be used
+	 */
+	@Test
+	public void testRange() throws IOException
+	{
+		Files.write( file.toPath(), "skip me\nfirst line\nsecond\nskip".getBytes( StandardCharsets.US_ASCII ) );
+		try( FileChannel channel = FileChannel.open( file.toPath() ) )
+		{
+			MappedWordTokenizer tokens = new MappedWordTokenizer( channel, 8, 26, StandardCharsets.US_ASCII );
+			List<String> words = new ArrayList<String>();
+			while( tokens.next() )
+			{
+				words.add( tokens.lineNumber() + ":" + tokens );
+			}
+			assertEquals( "Failed to split the range.", java.util.Arrays.asList( "1:first", "1:line", "2:second" ), words );
+			assertEquals( "Failed to count the lines.", 2, tokens.lineCount() );
+		}
+	}
+
+	private void assertSameWords( byte[] text, Charset charset, int window ) throws IOException
+	{
+		List<String> expected = new ArrayList<String>();
+		WordTokenizer reference = new WordTokenizer( new InputStreamReader( new ByteArrayInputStream( text ), charset ), Locale.ROOT );
+		while( reference.next() )
+		{
+			expected.add( reference.lineNumber() + ":" + reference );
+		}
+
+		Files.write( file.toPath(), text );
+		List<String> actual = new ArrayList<String>();
+		try( FileChannel channel = FileChannel.open( file.toPath() ) )
+		{
+			MappedWordTokenizer tokens = new MappedWordTokenizer( channel, 0, text.length, charset, window );
+			while( tokens.next() )
+			{
+				actual.add( tokens.lineNumber() + ":" + tokens );
+			}
+			assertEquals( "Failed to count lines like the reader.", reference.lineCount(), tokens.lineCount() );
+		}
+		assertEquals( "Failed to split like the reader in " + charset + " with window " + window, expected, actual );
+	}
+}
@@ -0,0 +1,107 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import domain.Word;
+import implementations.BSTree;
+import utilities.ReportWriter;
+import utilities.WordTracker;
+
+/**
+ * Class Description: Tests that ReportWriter and the alphabetical report write the
+ * same text as printing each line of the report with println.
+ */
+public class ReportWriterTest
+{
+	/**
+	 * Test method for {@link utilities.ReportWriter#writeWord(Word)} and
+	 * {@link utilities.ReportWriter#writeLine(String)} on words with several files and
+	 * line numbers of every length.
+	 *
+	 * @throws IOException if the report cannot be written
+	 */
+	@Test
+	public void testFormat() throws IOException
+	{
+		Word word = new Word( "cat" );
+		word.addOccurrence( "one.txt", 1 );
+		word.addOccurrence( "dir/two.txt", 7 );
+		word.addOccurrence( "one.txt", 42 );
+		word.addOccurrence( "one.txt", 123456789 );
+		word.addOccurrence( "dir/two.txt", Integer.MAX_VALUE );
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ReportWriter report = new ReportWriter( bytes );
+		report.writeLine( "Words:" );
+		report.writeWord( word );
+		report.writeWord( new Word( "empty" ) );
+		report.flush();
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream( expected );
+		out.println( "Words:" );
+		println( out, word );
+		println( out, new Word( "empty" ) );
+		out.flush();
+		assertEquals( "Failed to write the report as println does.", expected.toString(), bytes.toString() );
+	}
+
+	/**
+	 * Test method for {@link utilities.WordTracker#writeReport} in alphabetical order,
+	 * with a report many times the size of the buffer and a path longer than the buffer.
+	 *
+	 * @throws IOException if the report cannot be written
+	 */
+	@Test
+	public void testAlphabeticalReport() throws IOException
+	{
+		StringBuilder longPath = new StringBuilder();
+		while( longPath.length() <= ReportWriter.BUFFER_SIZE )
+		{
+			longPath.append( "dir/" );
+		}
+		BSTree<Word> tree = new BSTree<Word>();
+		for( int i = 0; i < 5000; i++ )
+		{
+			Word word = new Word( "w" + ( i * 7919 % 5000 ) );
+			tree.add( word );
+			word.addOccurrence( "file" + i % 3 + ".txt", i );
+			word.addOccurrence( "other.txt", i + 1 );
+		}
+		tree.search( new Word( "w17" ) ).getElement().addOccurrence( longPath + "long.txt", 3 );
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream( expected );
+		out.println( "Words in alphabetical order:" );
+		for( Word word : tree )
+		{
+			println( out, word );
+		}
+		out.flush();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		WordTracker.writeReport( tree, true, false, false, 0, bytes );
+		assertTrue( "Failed to fill the buffer.", bytes.size() > 4 * ReportWriter.BUFFER_SIZE );
+		assertEquals( "Failed to write the report as println does.", expected.toString(), bytes.toString() );
+	}
+
+	/**
+	 * prints a word the way WordTracker printed its report before ReportWriter
+	 */
+	private static void println( PrintStream out, Word word )
+	{
+		out.println( word.getWord() );
+		for( Map.Entry<String, List<Integer>> entry : word.getFileOccurrences().entrySet() )
+		{
+			out.println( "  " + entry.getKey() + " -> lines: " + entry.getValue() );
+		}
+	}
+}
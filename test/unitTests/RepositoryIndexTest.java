@@ -0,0 +1,211 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import domain.Word;
+import implementations.BSTree;
+import serialization.RepositoryIndex;
+import serialization.RepositoryJournal;
+import serialization.WordRepository;
+
+/**
+ * Class Description: Tests for RepositoryIndex, lookups in a saved repository
+ * without loading it.
+ */
+public class RepositoryIndexTest
+{
+	private File file;
+	private BSTree<Word> tree;
+
+	/**
+	 * Saves a repository of 2000 words, "w0000" to "w1999", where word i occurs on
+	 * line i of a.txt and, for even i, on line 1 of b.txt.
+	 *
+	 * @throws IOException if the repository cannot be saved
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		file = File.createTempFile( "repository", ".wtr" );
+		tree = new BSTree<>();
+		for( int i = 0; i < 2000; i++ )
+		{
+			Word word = new Word( String.format( "w%04d", i ) );
+			word.addOccurrence( "a.txt", i );
+			if( i % 2 == 0 )
+			{
+				word.addOccurrence( "b.txt", 1 );
+			}
+			tree.add( word );
+		}
+		WordRepository.save( tree, file.toPath() );
+	}
+
+	/**
+	 * Deletes the repository and its journal.
+	 */
+	@After
+	public void tearDown()
+	{
+		file.delete();
+		new RepositoryJournal( file.toPath() ).getPath().toFile().delete();
+	}
+
+	/**
+	 * Test method for {@link serialization.RepositoryIndex#find(String)}.
+	 *
+	 * @throws IOException if the repository cannot be searched
+	 */
+	@Test
+	public void testFind() throws IOException
+	{
+		assertTrue( "Failed to recognise a searchable repository.", RepositoryIndex.canOpen( file.toPath() ) );
+		try( RepositoryIndex index = RepositoryIndex.open( file.toPath() ) )
+		{
+			assertEquals( "Failed to count the words.", 2000, index.size() );
+			for( Word expected : tree )
+			{
+				Word found = index.find( expected.getWord() );
+				assertNotNull( "Failed to find " + expected.getWord(), found );
+				assertEquals( "Failed to decode the occurrences.", expected.getFileOccurrences(),
+						found.getFileOccurrences() );
+			}
+			assertNull( "Found a missing word.", index.find( "w00005" ) );
+			assertNull( "Found a word before the first.", index.find( "a" ) );
+			assertNull( "Found a word after the last.", index.find( "z" ) );
+		}
+	}
+
+	/**
+	 * Test method for {@link serialization.RepositoryIndex#findPrefix(String)} and
+	 * {@link serialization.RepositoryIndex#findRange(String, String)}.
+	 *
+	 * @throws IOException if the repository cannot be searched
+	 */
+	@Test
+	public void testScans() throws IOException
+	{
+		try( RepositoryIndex index = RepositoryIndex.open( file.toPath() ) )
+		{
+			List<Word> words = index.findPrefix( "w012" );
+			assertEquals( "Failed to find every word with the prefix.", 10, words.size() );
+			for( int i = 0; i < words.size(); i++ )
+			{
+				assertEquals( "Failed to keep the order.", String.format( "w%04d", 120 + i ), words.get( i ).getWord() );
+			}
+			assertEquals( "Failed to match every word.", 2000, index.findPrefix( "" ).size() );
+			assertTrue( "Matched a missing prefix.", index.findPrefix( "x" ).isEmpty() );
+
+			words = index.findRange( "w1995", "z" );
+			assertEquals( "Failed to scan to the end.", 5, words.size() );
+			assertEquals( "Failed to stop before the bound.", 3, index.findRange( "w0010", "w0013" ).size() );
+		}
+	}
+
+	/**
+	 * Test method for {@link serialization.RepositoryIndex#open(java.nio.file.Path, int)}
+	 * with windows so small that words, positions and the trailer straddle them.
+	 *
+	 * @throws IOException if the repository cannot be searched
+	 */
+	@Test
+	public void testSmallWindows() throws IOException
+	{
+		for( int windowSize : new int[] { 1, 7, 4096 } )
+		{
+			try( RepositoryIndex index = RepositoryIndex.open( file.toPath(), windowSize ) )
+			{
+				assertEquals( "Failed to count the words.", 2000, index.size() );
+				for( Word expected : tree )
+				{
+					Word found = index.find( expected.getWord() );
+					assertNotNull( "Failed to find " + expected.getWord(), found );
+					assertEquals( "Failed to decode the occurrences.", expected.getFileOccurrences(),
+							found.getFileOccurrences() );
+				}
+				assertEquals( "Failed to match every word.", 2000, index.findPrefix( "" ).size() );
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link serialization.RepositoryIndex#open(java.nio.file.Path, RepositoryJournal)},
+	 * whose lookups must answer as the replayed journal does without rewriting the
+	 * repository. The second record replaces b.txt, dropping its earlier occurrences from
+	 * the repository and from the first record.
+	 *
+	 * @throws IOException if the repository or the journal cannot be read or written
+	 */
+	@Test
+	public void testJournal() throws IOException
+	{
+		RepositoryJournal journal = new RepositoryJournal( file.toPath() );
+		journal.replay( WordRepository.load( file.toPath() ) );
+		journal.append( RepositoryJournalTest.words( "c.txt", 5, "new", "w0003", "w0120x" ) );
+		journal.append( RepositoryJournalTest.words( "b.txt", 2, "gone" ) );
+		journal.append( RepositoryJournalTest.words( "b.txt", 9, "w0004", "w0121x" ), Collections.singleton( "b.txt" ),
+				Collections.emptyMap() );
+		byte[] saved = Files.readAllBytes( file.toPath() );
+
+		BSTree<Word> expected = WordRepository.load( file.toPath() );
+		new RepositoryJournal( file.toPath() ).replay( expected );
+		try( RepositoryIndex index = RepositoryIndex.open( file.toPath(), new RepositoryJournal( file.toPath() ) ) )
+		{
+			for( Word word : expected )
+			{
+				Word found = index.find( word.getWord() );
+				assertNotNull( "Failed to find " + word.getWord(), found );
+				assertEquals( "Failed to apply the journal.", word.getFileOccurrences(), found.getFileOccurrences() );
+				assertEquals( "Failed to count the occurrences.", word.getTotalFrequency(), found.getTotalFrequency() );
+			}
+			assertNull( "Found a word of a replaced file.", index.find( "gone" ) );
+			assertEquals( "Failed to replace the file.", "{a.txt=[4], b.txt=[9]}",
+					index.find( "w0004" ).getFileOccurrences().toString() );
+
+			List<Word> words = index.findPrefix( "" );
+			assertEquals( "Failed to match every word.", expected.size(), words.size() );
+			int i = 0;
+			for( Word word : expected )
+			{
+				assertEquals( "Failed to keep the order.", word.getWord(), words.get( i++ ).getWord() );
+			}
+			assertEquals( "Failed to add the journal's words to the prefix.", 12, index.findPrefix( "w012" ).size() );
+			assertEquals( "Failed to add the journal's words to the range.", 4,
+					index.findRange( "w0120", "w0121y" ).size() );
+		}
+		assertTrue( "Rewrote the repository.", java.util.Arrays.equals( saved, Files.readAllBytes( file.toPath() ) ) );
+	}
+
+	/**
+	 * Test method for {@link serialization.RepositoryIndex#open(java.nio.file.Path)} on
+	 * a file that is not a repository.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testOpenForeignFile() throws IOException
+	{
+		java.nio.file.Files.write( file.toPath(), "not a repository at all".getBytes( "US-ASCII" ) );
+		assertFalse( "Accepted a foreign file.", RepositoryIndex.canOpen( file.toPath() ) );
+		try
+		{
+			RepositoryIndex.open( file.toPath() ).close();
+			fail( "Opened a foreign file." );
+		}
+		catch( IOException e )
+		{
+			// expected
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import domain.FileFingerprint;
+import domain.Word;
+import implementations.BSTree;
+import serialization.RepositoryJournal;
+import serialization.WordRepository;
+
+/**
+ * Class Description: Tests for RepositoryJournal, the journal of updates to a saved
+ * repository.
+ */
+public class RepositoryJournalTest
+{
+	private Path path;
+	private RepositoryJournal journal;
+
+	/**
+	 * Saves a repository of the words "a" to "e", each on line 1 of base.txt.
+	 *
+	 * @throws IOException if the repository cannot be saved
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		path = File.createTempFile( "repository", ".wtr" ).toPath();
+		journal = new RepositoryJournal( path );
+		WordRepository.save( words( "base.txt", 1, "a", "b", "c", "d", "e" ), path );
+	}
+
+	/**
+	 * Deletes the repository and its journal.
+	 *
+	 * @throws IOException if the files cannot be deleted
+	 */
+	@After
+	public void tearDown() throws IOException
+	{
+		Files.deleteIfExists( path );
+		Files.deleteIfExists( journal.getPath() );
+	}
+
+	/**
+	 * Test method for {@link serialization.RepositoryJournal#append(BSTree)} and
+	 * {@link serialization.RepositoryJournal#replay(BSTree)}.
+	 *
+	 * @throws IOException if the repository or the journal cannot be read or written
+	 */
+	@Test
+	public void testAppendAndReplay() throws IOException
+	{
+		assertEquals( "Replayed a missing journal.", 0, journal.replay( WordRepository.load( path ) ) );
+		assertTrue( "Failed to ready the journal.", journal.isReady() );
+		assertFalse( "Found records in a missing journal.", journal.hasRecords() );
+		journal.append( words( "one.txt", 2, "b", "x" ) );
+		journal.append( words( "two.txt", 3, "b", "a" ) );
+		assertTrue( "Failed to count the records.", new RepositoryJournal( path ).hasRecords() );
+
+		BSTree<Word> tree = WordRepository.load( path );
+		assertEquals( "Failed to replay every record.", 2, new RepositoryJournal( path ).replay( tree ) );
+		assertEquals( "Failed to add the new word.", 6, tree.size() );
+		assertEquals( "Failed to merge the occurrences.", "{base.txt=[1], one.txt=[2], two.txt=[3]}",
+				find( tree, "b" ).getFileOccurrences().toString() );
+		assertEquals( "Failed to add the word.", "{one.txt=[2]}", find( tree, "x" ).getFileOccurrences().toString() );
+		assertEquals( "Failed to count the occurrences.", 3, find( tree, "b" ).getTotalFrequency() );
+
+		journal.compact( tree );
+		assertFalse( "Failed to delete the journal.", Files.exists( journal.getPath() ) );
+		assertEquals( "Failed to save the replayed words.", 6, WordRepository.load( path ).size() );
+	}
+
+	/**
+	 * Test method for
+	 * {@link serialization.RepositoryJournal#append(BSTree, java.util.Collection, java.util.Map)}
+	 * and {@link serialization.RepositoryJournal#replay(BSTree, java.util.Map)} with a file
+	 * that was indexed again, whose old occurrences must be replaced.
+	 *
+	 * @throws IOException if the repository or the journal cannot be read or written
+	 */
+	@Test
+	public void testReplacedFile() throws IOException
+	{
+		journal.replay( WordRepository.load( path ) );
+		Map<String, FileFingerprint> indexed = new HashMap<>();
+		indexed.put( "base.txt", new FileFingerprint( 10, 20 ) );
+		journal.append( words( "base.txt", 7, "b", "x" ), Collections.singleton( "base.txt" ), indexed );
+
+		BSTree<Word> tree = WordRepository.load( path );
+		Map<String, FileFingerprint> fingerprints = new HashMap<>();
+		assertEquals( "Failed to replay the record.", 1, new RepositoryJournal( path ).replay( tree, fingerprints ) );
+		assertEquals( "Failed to remove the words left without occurrences.", 2, tree.size() );
+		assertEquals( "Failed to replace the occurrences.", "{base.txt=[7]}",
+				find( tree, "b" ).getFileOccurrences().toString() );
+		assertEquals( "Failed to count the occurrences.", 1, find( tree, "b" ).getTotalFrequency() );
+		assertNull( "Kept a word of the old file.", find( tree, "a" ) );
+		assertEquals( "Failed to replay the fingerprints.", indexed, fingerprints );
+
+		journal.compact( tree, fingerprints );
+		Map<String, FileFingerprint> saved = new HashMap<>();
+		assertEquals( "Failed to save the replaced words.", 2, WordRepository.load( path, saved ).size() );
+		assertEquals( "Failed to save the fingerprints.", indexed, saved );
+	}
+
+	/**
+	 * Test method for {@link serialization.RepositoryJournal#replay(BSTree)} on a journal
+	 * whose last record was cut short, which must be dropped and then overwritten.
+	 *
+	 * @throws IOException if the repository or the journal cannot be read or written
+	 */
+	@Test
+	public void testTornRecord() throws IOException
+	{
+		journal.replay( WordRepository.load( path ) );
+		journal.append( words( "one.txt", 2, "x" ) );
+		journal.append( words( "two.txt", 3, "y" ) );
+		byte[] whole = Files.readAllBytes( journal.getPath() );
+		Files.write( journal.getPath(), Arrays.copyOf( whole, whole.length - 3 ) );
+
+		BSTree<Word> tree = WordRepository.load( path );
+		RepositoryJournal torn = new RepositoryJournal( path );
+		assertEquals( "Failed to drop the torn record.", 1, torn.replay( tree ) );
+		assertNull( "Replayed the torn record.", find( tree, "y" ) );
+
+		torn.append( words( "three.txt", 4, "z" ) );
+		tree = WordRepository.load( path );
+		assertEquals( "Failed to overwrite the torn record.", 2, new RepositoryJournal( path ).replay( tree ) );
+		assertNotNull( "Lost the record before the torn one.", find( tree, "x" ) );
+		assertNotNull( "Lost the record after the torn one.", find( tree, "z" ) );
+		assertNull( "Replayed the torn record.", find( tree, "y" ) );
+	}
+
+	/**
+	 * Test method for {@link serialization.RepositoryJournal#replay(BSTree)} on a journal
+	 * left behind after its repository was replaced, which must be ignored.
+	 *
+	 * @throws IOException if the repository or the journal cannot be read or written
+	 */
+	@Test
+	public void testStaleJournal() throws IOException
+	{
+		BSTree<Word> tree = WordRepository.load( path );
+		journal.replay( tree );
+		journal.append( words( "one.txt", 2, "x" ) );
+		byte[] stale = Files.readAllBytes( journal.getPath() );
+		RepositoryJournal.addAll( tree, words( "one.txt", 2, "x" ) );
+		journal.compact( tree );
+		Files.write( journal.getPath(), stale );
+
+		tree = WordRepository.load( path );
+		RepositoryJournal reopened = new RepositoryJournal( path );
+		assertFalse( "Counted the records of a stale journal.", reopened.hasRecords() );
+		assertEquals( "Replayed a stale journal.", 0, reopened.replay( tree ) );
+		assertEquals( "Failed to keep the compacted word once.", "{one.txt=[2]}",
+				find( tree, "x" ).getFileOccurrences().toString() );
+	}
+
+	/**
+	 * Test method for {@link serialization.RepositoryJournal#replay(BSTree)} on a repository
+	 * saved in an older format, which cannot have a journal.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Test
+	public void testOldRepository() throws IOException
+	{
+		Files.write( path, "not a current repository".getBytes( "US-ASCII" ) );
+		assertEquals( "Replayed the journal of an old repository.", 0, journal.replay( new BSTree<>() ) );
+		assertFalse( "Readied the journal of an old repository.", journal.isReady() );
+		try
+		{
+			journal.append( words( "one.txt", 2, "x" ) );
+			fail( "Appended to the journal of an old repository." );
+		}
+		catch( IllegalStateException e )
+		{
+			// expected
+		}
+	}
+
+	/**
+	 * Builds a tree of words that each occur once, on the same line of the same file.
+	 * Shared with RepositoryIndexTest.
+	 */
+	static BSTree<Word> words( String file, int line, String... texts )
+	{
+		BSTree<Word> tree = new BSTree<>();
+		for( String text : texts )
+		{
+			Word word = new Word( text );
+			word.addOccurrence( file, line );
+			tree.add( word );
+		}
+		return tree;
+	}
+
+	private static Word find( BSTree<Word> tree, String text )
+	{
+		for( Word word : tree )
+		{
+			if( word.getWord().equals( text ) )
+			{
+				return word;
+			}
+		}
+		return null;
+	}
+}
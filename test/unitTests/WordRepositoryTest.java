@@ -0,0 +1,165 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import domain.FileFingerprint;
+import domain.FileTable;
+import domain.Word;
+import implementations.BSTree;
+import serialization.WordRepository;
+
+/**
+ * Class Description: Tests for WordRepository, the binary repository format.
+ */
+public class WordRepositoryTest
+{
+	private File file;
+
+	/**
+	 * @throws IOException if the temporary file cannot be created
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		file = File.createTempFile( "repository", ".wtr" );
+	}
+
+	/**
+	 * Deletes the temporary file.
+	 */
+	@After
+	public void tearDown()
+	{
+		file.delete();
+	}
+
+	/**
+	 * Test method for {@link serialization.WordRepository#save(BSTree, java.nio.file.Path)} and
+	 * {@link serialization.WordRepository#load(java.nio.file.Path)}, with words numbering
+	 * their files in different tables.
+	 *
+	 * @throws IOException if the repository cannot be saved or loaded
+	 */
+	@Test
+	public void testRoundTrip() throws IOException
+	{
+		FileTable shared = new FileTable();
+		Word apple = new Word( "apple", shared );
+		apple.addOccurrence( "b.txt", 3 );
+		apple.addOccurrence( "a.txt", 1 );
+		apple.addOccurrence( "b.txt", 200000 );
+		Word pear = new Word( "pear" );
+		pear.addOccurrence( "c\u00e9.txt", 7 );
+		pear.addOccurrence( "a.txt", 2 );
+		BSTree<Word> tree = new BSTree<>( true );
+		tree.add( pear );
+		tree.add( apple );
+		tree.add( new Word( "\u00e9t\u00e9", shared ) );
+
+		WordRepository.save( tree, file.toPath() );
+		assertTrue( "Failed to recognise the format.", WordRepository.isRepository( file.toPath() ) );
+		BSTree<Word> loaded = WordRepository.load( file.toPath() );
+
+		assertEquals( "Failed to keep every word.", 3, loaded.size() );
+		assertTrue( "Failed to keep the balanced option.", loaded.isBalanced() );
+		java.util.Iterator<Word> expected = tree.iterator();
+		for( Word word : loaded )
+		{
+			Word original = expected.next();
+			assertEquals( "Failed to keep the order.", original.getWord(), word.getWord() );
+			assertEquals( "Failed to keep the occurrences.", original.getFileOccurrences(), word.getFileOccurrences() );
+			assertEquals( "Failed to count the occurrences.", original.getTotalFrequency(), word.getTotalFrequency() );
+			assertSame( "Failed to share one file table.", loaded.getRoot().getElement().getFileTable(), word.getFileTable() );
+		}
+		assertEquals( "Failed to write each file once.", 3, loaded.getRoot().getElement().getFileTable().size() );
+	}
+
+	/**
+	 * Test method for {@link serialization.WordRepository#save(BSTree, java.util.Map, java.nio.file.Path)}
+	 * and {@link serialization.WordRepository#load(java.nio.file.Path, java.util.Map)}.
+	 *
+	 * @throws IOException if the repository cannot be saved or loaded
+	 */
+	@Test
+	public void testFingerprints() throws IOException
+	{
+		Word word = new Word( "kitty" );
+		word.addOccurrence( "a.txt", 1 );
+		BSTree<Word> tree = new BSTree<>();
+		tree.add( word );
+		Map<String, FileFingerprint> fingerprints = new HashMap<>();
+		fingerprints.put( "a.txt", new FileFingerprint( 120, 1700000000000L ) );
+		fingerprints.put( "empty.txt", new FileFingerprint( 0, 1700000000001L, 0xCAFEBABE ) );
+
+		WordRepository.save( tree, fingerprints, file.toPath() );
+		Map<String, FileFingerprint> loaded = new HashMap<>();
+		assertEquals( "Failed to keep the words.", 1, WordRepository.load( file.toPath(), loaded ).size() );
+
+		assertEquals( "Failed to keep the fingerprints.", fingerprints, loaded );
+		assertTrue( "Failed to keep the hash.", loaded.get( "empty.txt" ).hasHash() );
+		assertFalse( "Made up a hash.", loaded.get( "a.txt" ).hasHash() );
+	}
+
+	/**
+	 * Test method for {@link serialization.WordRepository#load(java.nio.file.Path)} on
+	 * damaged and foreign files.
+	 *
+	 * @throws IOException if the repository cannot be saved
+	 */
+	@Test
+	public void testDamagedFile() throws IOException
+	{
+		BSTree<Word> tree = new BSTree<>();
+		for( int i = 0; i < 1000; i++ )
+		{
+			Word word = new Word( "word" + i );
+			word.addOccurrence( "file.txt", i );
+			tree.add( word );
+		}
+		WordRepository.save( tree, file.toPath() );
+		byte[] good = Files.readAllBytes( file.toPath() );
+
+		try( RandomAccessFile raf = new RandomAccessFile( file, "rw" ) )
+		{
+			raf.seek( good.length / 2 );
+			raf.write( good[good.length / 2] ^ 0x04 );
+		}
+		assertLoadFails( "Failed to notice a changed byte." );
+
+		Files.write( file.toPath(), java.util.Arrays.copyOf( good, good.length - 1 ) );
+		assertLoadFails( "Failed to notice a truncated file." );
+
+		byte[] other = good.clone();
+		other[4] = (byte) ( WordRepository.VERSION + 1 );
+		Files.write( file.toPath(), other );
+		assertLoadFails( "Failed to reject another version." );
+
+		Files.write( file.toPath(), "plain text".getBytes( "US-ASCII" ) );
+		assertFalse( "Recognised a foreign file.", WordRepository.isRepository( file.toPath() ) );
+		assertLoadFails( "Failed to reject a foreign file." );
+	}
+
+	private void assertLoadFails( String message )
+	{
+		try
+		{
+			WordRepository.load( file.toPath() );
+			fail( message );
+		}
+		catch( IOException e )
+		{
+			// expected
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import domain.FileTable;
+import domain.Word;
+
+/**
+ * Class Description: Tests for Word, the occurrences of one word across files.
+ */
+public class WordTest
+{
+	/**
+	 * Test method for words sharing a {@link domain.FileTable}, which must number each
+	 * file once and resolve the ids back to the paths.
+	 */
+	@Test
+	public void testSharedFileTable()
+	{
+		FileTable table = new FileTable();
+		Word cat = new Word( "cat", table );
+		Word hat = new Word( "hat", table );
+		cat.addOccurrence( "one.txt", 1 );
+		hat.addOccurrence( "two.txt", 4 );
+		hat.addOccurrence( "one.txt", 2 );
+		cat.addOccurrence( "one.txt", 3 );
+
+		assertEquals( "Failed to number each file once.", 2, table.size() );
+		assertEquals( "Failed to share the id.", cat.getFileIdAt( 0 ), hat.getFileIdAt( 1 ) );
+		assertEquals( "Failed to resolve the ids.", Arrays.asList( "two.txt", "one.txt" ), hat.getFiles() );
+		assertEquals( "Failed to resolve the ids.", "{one.txt=[1, 3]}", cat.getFileOccurrences().toString() );
+		assertEquals( "Failed to find the lines by path.", 2, cat.getLines( "one.txt" ).size() );
+		assertNull( "Found lines in a file of another word.", cat.getLines( "two.txt" ) );
+	}
+
+	/**
+	 * Test method for {@link domain.Word#shareFileTable(FileTable)} and
+	 * {@link domain.Word#merge(Word)} of words numbered in different tables.
+	 */
+	@Test
+	public void testSeparateFileTables()
+	{
+		FileTable table = new FileTable();
+		table.idOf( "other.txt" );
+		Word word = new Word( "cat" );
+		word.addOccurrence( "one.txt", 1 );
+		word.addOccurrence( "two.txt", 2 );
+		word.shareFileTable( table );
+		assertSame( "Failed to move to the table.", table, word.getFileTable() );
+		assertEquals( "Failed to renumber the files.", 1, word.getFileIdAt( 0 ) );
+		assertEquals( "Failed to keep the occurrences.", "{one.txt=[1], two.txt=[2]}", word.getFileOccurrences().toString() );
+
+		Word other = new Word( "cat" );
+		other.addOccurrence( "three.txt", 5 );
+		other.addOccurrence( "two.txt", 6 );
+		word.merge( other );
+		assertEquals( "Failed to merge by path.", "{one.txt=[1], two.txt=[2, 6], three.txt=[5]}",
+				word.getFileOccurrences().toString() );
+		assertEquals( "Failed to number the new file in the table.", 3, table.find( "three.txt" ) );
+	}
+
+	/**
+	 * Test method for {@link domain.Word#getTotalFrequency()} and
+	 * {@link domain.Word#getFileCount()}, which are kept as occurrences are added and must
+	 * match the occurrences after every change: adds, removeFile, merge, seal and
+	 * serialization.
+	 *
+	 * @throws Exception if the word cannot be serialized
+	 */
+	@Test
+	public void testCounts() throws Exception
+	{
+		Word word = new Word( "cat" );
+		assertCounts( word, 0, 0 );
+		word.addOccurrence( "one.txt", 1 );
+		word.addOccurrence( "one.txt", 1 );
+		word.addOccurrence( "two.txt", 4 );
+		assertCounts( word, 3, 2 );
+
+		assertFalse( "Removed a missing file.", word.removeFile( "three.txt" ) );
+		assertCounts( word, 3, 2 );
+		assertTrue( "Failed to remove the file.", word.removeFile( "one.txt" ) );
+		assertCounts( word, 1, 1 );
+
+		Word other = new Word( "cat" );
+		other.addOccurrence( "two.txt", 5 );
+		other.addOccurrence( "three.txt", 6 );
+		word.merge( other );
+		assertCounts( word, 3, 2 );
+		word.merge( new Word( "cat", word.getFileTable() ) );
+		assertCounts( word, 3, 2 );
+
+		word.seal();
+		word.addOccurrence( "two.txt", 9 );
+		word.offsetLines( "two.txt", 10 );
+		assertCounts( word, 4, 2 );
+		word.removeFile( "two.txt" );
+		word.removeFile( "three.txt" );
+		assertCounts( word, 0, 0 );
+		word.addOccurrence( "one.txt", 2 );
+		assertCounts( word, 1, 1 );
+
+		word.addOccurrence( "two.txt", 3 );
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( word );
+		}
+		try( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			assertCounts( (Word) in.readObject(), 2, 2 );
+		}
+	}
+
+	/**
+	 * Test method for serialization of words sharing a table, which must still share
+	 * one table when read back.
+	 *
+	 * @throws Exception if the words cannot be serialized
+	 */
+	@Test
+	public void testSerialization() throws Exception
+	{
+		FileTable table = new FileTable();
+		Word cat = new Word( "cat", table );
+		Word hat = new Word( "hat", table );
+		cat.addOccurrence( "one.txt", 1 );
+		hat.addOccurrence( "two.txt", 2 );
+		hat.addOccurrence( "one.txt", 3 );
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( new Word[] { cat, hat } );
+		}
+		Word[] copy;
+		try( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			copy = (Word[]) in.readObject();
+		}
+		assertSame( "Failed to share the table.", copy[0].getFileTable(), copy[1].getFileTable() );
+		assertEquals( "Failed to keep the occurrences.", "{two.txt=[2], one.txt=[3]}",
+				copy[1].getFileOccurrences().toString() );
+	}
+
+	private static void assertCounts( Word word, int frequency, int files )
+	{
+		int counted = 0;
+		for( java.util.List<Integer> lines : word.getFileOccurrences().values() )
+		{
+			counted += lines.size();
+		}
+		assertEquals( "Failed to count the occurrences.", frequency, word.getTotalFrequency() );
+		assertEquals( "Failed to match the occurrences.", counted, word.getTotalFrequency() );
+		assertEquals( "Failed to count the files.", files, word.getFileCount() );
+		assertEquals( "Failed to match the files.", word.getFiles().size(), word.getFileCount() );
+	}
+}
@@ -0,0 +1,189 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import utilities.WordTokenizer;
+
+/**
+ * Class Description: Tests that WordTokenizer splits text into the same words,
+ * on the same lines, as lowercasing and splitting each line read by readLine.
+ */
+public class WordTokenizerTest
+{
+	private static final Locale[] LOCALES = { Locale.ROOT, Locale.ENGLISH, Locale.forLanguageTag( "tr" ),
+			Locale.forLanguageTag( "az" ), Locale.forLanguageTag( "lt" ) };
+
+	/**
+	 * Test method for {@link utilities.WordTokenizer#next()} on mixed case text,
+	 * separators and every kind of line end.
+	 *
+	 * @throws IOException if the text cannot be read
+	 */
+	@Test
+	public void testWordsAndLines() throws IOException
+	{
+		WordTokenizer tokens = new WordTokenizer( new StringReader( "Hello, World!\r\n\r\nit's 42nd\rEND\n" ), Locale.ROOT );
+		String[] words = { "hello", "world", "it", "s", "nd", "end" };
+		int[] lines = { 1, 1, 3, 3, 3, 4 };
+		for( int i = 0; i < words.length; i++ )
+		{
+			assertTrue( "Failed to find a word.", tokens.next() );
+			assertEquals( "Failed to fold the word.", words[i], tokens.toString() );
+			assertEquals( "Failed to return the length.", words[i].length(), tokens.length() );
+			assertEquals( "Failed to number the line.", lines[i], tokens.lineNumber() );
+		}
+		assertFalse( "Failed to end.", tokens.next() );
+		assertEquals( "Failed to count the lines.", 4, tokens.lineCount() );
+	}
+
+	/**
+	 * Test method for {@link utilities.WordTokenizer#next()} with every character
+	 * of the Basic Multilingual Plane between two letters, in each locale whose
+	 * lowercasing is special.
+	 *
+	 * @throws IOException if the text cannot be read
+	 */
+	@Test
+	public void testEveryCharacter() throws IOException
+	{
+		StringBuilder text = new StringBuilder();
+		for( char c = 0; c < Character.MAX_VALUE; c++ )
+		{
+			text.append( 'A' ).append( c ).append( 'b' ).append( c ).append( c ).append( 'I' ).append( c ).append( '\n' );
+		}
+		for( Locale locale : LOCALES )
+		{
+			assertSameWords( text.toString(), locale );
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.WordTokenizer#next()} on random text read a
+	 * few characters at a time, so words and "\r\n" are split across reads.
+	 *
+	 * @throws IOException if the text cannot be read
+	 */
+	@Test
+	public void testRandomText() throws IOException
+	{
+		String alphabet = "aZ  .-\r\n\r\nIi\u0130\u0131\u0307\u212A\u00CC\u00E9\u03A3";
+		Random random = new Random( 7 );
+		for( int round = 0; round < 200; round++ )
+		{
+			StringBuilder text = new StringBuilder();
+			int length = random.nextInt( 300 );
+			for( int i = 0; i < length; i++ )
+			{
+				text.append( alphabet.charAt( random.nextInt( alphabet.length() ) ) );
+			}
+			for( Locale locale : LOCALES )
+			{
+				assertSameWords( text.toString(), locale );
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.WordTokenizer#lineCount()} on text with and
+	 * without a final line end.
+	 *
+	 * @throws IOException if the text cannot be read
+	 */
+	@Test
+	public void testLineCount() throws IOException
+	{
+		String[] texts = { "", "a", "a\n", "\n", "\r\n", "\r\r", "a\r\nb", "a\n\rb\r" };
+		for( String text : texts )
+		{
+			for( Locale locale : LOCALES )
+			{
+				WordTokenizer tokens = new WordTokenizer( new StringReader( text ), locale );
+				while( tokens.next() )
+				{
+					// skip the words
+				}
+				assertEquals( "Failed to count the lines.", legacyWords( text, locale, null ), tokens.lineCount() );
+			}
+		}
+	}
+
+	private static void assertSameWords( String text, Locale locale ) throws IOException
+	{
+		List<String> expected = new ArrayList<String>();
+		legacyWords( text, locale, expected );
+
+		List<String> actual = new ArrayList<String>();
+		WordTokenizer tokens = new WordTokenizer( new TrickleReader( text ), locale );
+		while( tokens.next() )
+		{
+			actual.add( tokens.lineNumber() + ":" + tokens );
+		}
+		assertEquals( "Failed to split like the line split in " + locale, expected, actual );
+	}
+
+	/**
+	 * splits text the way WordTracker did before the tokenizer
+	 * @return the number of lines
+	 */
+	private static int legacyWords( String text, Locale locale, List<String> words ) throws IOException
+	{
+		BufferedReader reader = new BufferedReader( new StringReader( text ) );
+		int lineNumber = 1;
+		String line;
+		while( ( line = reader.readLine() ) != null )
+		{
+			for( String word : line.toLowerCase( locale ).split( "[^a-zA-Z]+" ) )
+			{
+				if( !word.isEmpty() && words != null )
+				{
+					words.add( lineNumber + ":" + word );
+				}
+			}
+			lineNumber++;
+		}
+		return lineNumber - 1;
+	}
+
+	/**
+	 * Reader that returns at most three characters per read.
+	 */
+	private static final class TrickleReader extends Reader
+	{
+		private final String text;
+		private int position;
+
+		TrickleReader( String text )
+		{
+			this.text = text;
+		}
+
+		@Override
+		public int read( char[] buffer, int offset, int length )
+		{
+			if( position == text.length() )
+			{
+				return -1;
+			}
+			int count = Math.min( Math.min( length, 1 + position % 3 ), text.length() - position );
+			text.getChars( position, position + count, buffer, offset );
+			position += count;
+			return count;
+		}
+
+		@Override
+		public void close()
+		{
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import domain.Word;
+import implementations.BSTree;
+import utilities.WordTracker;
+
+/**
+ * Class Description: Tests for WordTracker, indexing files into a tree of words.
+ */
+public class WordTrackerTest
+{
+	private File directory;
+	private List<File> files;
+
+	/**
+	 * Writes three small files into a temporary directory.
+	 *
+	 * @throws IOException if the files cannot be written
+	 */
+	@Before
+	public void setUp() throws IOException
+	{
+		directory = Files.createTempDirectory( "wordtracker" ).toFile();
+		files = new ArrayList<File>();
+		files.add( write( "one.txt", "The cat sat\non the mat.\n" ) );
+		files.add( write( "two.txt", "A cat, a hat\r\nand THE bat\n\nthe end" ) );
+		files.add( write( "three.txt", "mat\nhat\ncat\n" ) );
+	}
+
+	/**
+	 * Deletes the temporary directory and its files.
+	 */
+	@After
+	public void tearDown()
+	{
+		for( File file : directory.listFiles() )
+		{
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	/**
+	 * Test method for {@link utilities.WordTracker#processFiles(List, BSTree, int)}, whose
+	 * report must be the same with several jobs as with one, also when the tree already
+	 * holds words of the files.
+	 *
+	 * @throws IOException if the files cannot be read
+	 */
+	@Test
+	public void testParallelFiles() throws IOException
+	{
+		String expected = report( WordTracker.processFiles( files, new BSTree<Word>(), 1 ) );
+		for( int jobs = 2; jobs <= 4; jobs++ )
+		{
+			assertEquals( "Failed to match a sequential run.", expected,
+					report( WordTracker.processFiles( files, new BSTree<Word>(), jobs ) ) );
+		}
+
+		BSTree<Word> sequential = WordTracker.processFiles( files.subList( 0, 1 ), new BSTree<Word>(), 1 );
+		sequential = WordTracker.processFiles( files.subList( 1, 3 ), sequential, 1 );
+		BSTree<Word> parallel = WordTracker.processFiles( files.subList( 0, 1 ), new BSTree<Word>(), 1 );
+		parallel = WordTracker.processFiles( files.subList( 1, 3 ), parallel, 3 );
+		assertEquals( "Failed to add to the words of the tree.", report( sequential ), report( parallel ) );
+		assertEquals( "Failed to count the occurrences.", 3, parallel.search( new Word( "cat" ) ).getElement().getFileCount() );
+	}
+
+	/**
+	 * Test method for {@link utilities.WordTracker#processFiles(List, BSTree, int, long, boolean)}
+	 * splitting files into chunks, which must number every line as a sequential run does:
+	 * chunks of one byte, chunks smaller than a line, a line longer than many chunks and
+	 * every kind of line end, read through a reader and through mappings.
+	 *
+	 * @throws IOException if the files cannot be read
+	 */
+	@Test
+	public void testChunkedFiles() throws IOException
+	{
+		Random random = new Random( 42 );
+		String[] ends = { "\n", "\r\n", "\r", "\n\n" };
+		StringBuilder text = new StringBuilder();
+		for( int line = 0; line < 400; line++ )
+		{
+			int words = line == 200 ? 500 : random.nextInt( 8 );
+			for( int i = 0; i < words; i++ )
+			{
+				text.append( (char) ( 'a' + random.nextInt( 6 ) ) ).append( (char) ( 'A' + random.nextInt( 3 ) ) ).append( ' ' );
+			}
+			text.append( ends[random.nextInt( ends.length )] );
+		}
+		files.add( 1, write( "big.txt", text.toString() ) );
+
+		String expected = report( WordTracker.processFiles( files, new BSTree<Word>(), 1 ) );
+		for( long chunkSize : new long[] { 1, 50, 1000 } )
+		{
+			for( boolean mapped : new boolean[] { false, true } )
+			{
+				assertEquals( "Failed to match a sequential run with " + chunkSize + " byte chunks.", expected,
+						report( WordTracker.processFiles( files, new BSTree<Word>(), 4, chunkSize, mapped ) ) );
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.WordTracker#topWords(BSTree, int, java.util.Comparator)}
+	 * in both report orders, which must pick the words a full sort puts first, ties broken
+	 * alphabetically, for every count up to past the number of words.
+	 */
+	@Test
+	public void testTopWords()
+	{
+		BSTree<Word> tree = new BSTree<Word>();
+		Random random = new Random( 7 );
+		for( int i = 0; i < 60; i++ )
+		{
+			Word word = new Word( "w" + random.nextInt( 1000 ) );
+			if( tree.add( word ) )
+			{
+				for( int j = random.nextInt( 4 ); j >= 0; j-- )
+				{
+					word.addOccurrence( "f" + random.nextInt( 3 ) + ".txt", j );
+				}
+			}
+		}
+		for( Comparator<Word> order : Arrays.asList( WordTracker.BY_FREQUENCY, WordTracker.BY_FILES ) )
+		{
+			List<Word> sorted = new ArrayList<Word>();
+			for( Word word : tree )
+			{
+				sorted.add( word );
+			}
+			Collections.sort( sorted, order );
+			for( int count = 0; count <= tree.size() + 1; count++ )
+			{
+				assertEquals( "Failed to pick the first " + count + " words.",
+						sorted.subList( 0, Math.min( count, sorted.size() ) ), WordTracker.topWords( tree, count, order ) );
+			}
+		}
+
+		BSTree<Word> ties = new BSTree<Word>();
+		for( String text : new String[] { "d", "b", "a", "c" } )
+		{
+			Word word = new Word( text );
+			word.addOccurrence( "one.txt", 1 );
+			ties.add( word );
+		}
+		List<Word> top = WordTracker.topWords( ties, 3, WordTracker.BY_FREQUENCY );
+		assertEquals( "Failed to break ties alphabetically.", "a", top.get( 0 ).getWord() );
+		assertEquals( "Failed to break ties alphabetically.", "c", top.get( 2 ).getWord() );
+		assertTrue( "Returned words for a count of 0.", WordTracker.topWords( ties, 0, WordTracker.BY_FILES ).isEmpty() );
+	}
+
+	/**
+	 * Test method for {@link utilities.WordTracker#processFiles(List, BSTree, int)} with
+	 * a file that cannot be read, which must fail the whole call instead of being skipped.
+	 */
+	@Test
+	public void testUnreadableFile()
+	{
+		List<File> withDirectory = new ArrayList<File>( files );
+		withDirectory.add( 1, directory );
+		for( int jobs : new int[] { 1, 4 } )
+		{
+			try
+			{
+				WordTracker.processFiles( withDirectory, new BSTree<Word>(), jobs );
+				fail( "Skipped a file that cannot be read." );
+			}
+			catch( IOException e )
+			{
+				assertTrue( "Failed to name the file.", e.getMessage().startsWith( directory.getName() + ": " ) );
+			}
+		}
+	}
+
+	private static String report( BSTree<Word> tree ) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		WordTracker.writeReport( tree, true, false, false, 0, out );
+		return out.toString();
+	}
+
+	private File write( String name, String text ) throws IOException
+	{
+		File file = new File( directory, name );
+		Files.write( file.toPath(), text.getBytes( "US-ASCII" ) );
+		return file;
+	}
+}